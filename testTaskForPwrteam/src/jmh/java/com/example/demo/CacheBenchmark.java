@@ -0,0 +1,100 @@
+package com.example.demo;
+
+import com.example.demo.cache.CompactPage;
+import com.example.demo.cache.PageCodec;
+import com.example.demo.model.client.GitHubRepo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit and miss paths of the heap caches built by {@link CacheConfig}, including encoding and decoding the cached page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    private static final String PAGE_URI = "https://api.github.com/users/octocat/repos?per_page=";
+
+    @Param({"3", "30", "100"})
+    int perPage;
+    @Param({"true", "false"})
+    boolean compress;
+
+    private Cache pagesCache;
+    private Cache etagsCache;
+    private PageCodec pageCodec;
+    private List<GitHubRepo> repositories;
+    private String pageUri;
+
+    @Setup
+    public void setUp() throws IOException {
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.expireAfterWriteInMin = 10;
+        cacheConfig.pagesMaxBytes = DataSize.ofMegabytes(64);
+        cacheConfig.etagsMaxBytes = DataSize.ofMegabytes(4);
+        cacheConfig.nextUrisMaxBytes = DataSize.ofMegabytes(4);
+        cacheConfig.lastUrisMaxBytes = DataSize.ofMegabytes(4);
+        cacheConfig.validatedMaxBytes = DataSize.ofMegabytes(2);
+        cacheConfig.branchSnapshotsMaxBytes = DataSize.ofMegabytes(16);
+        cacheConfig.branchSnapshotsExpireAfterWriteInHours = 24;
+        cacheConfig.negativeMaxBytes = DataSize.ofMegabytes(1);
+        cacheConfig.negativeExpireAfterWriteInSec = 300;
+        cacheConfig.responsesMaxBytes = DataSize.ofMegabytes(32);
+        cacheConfig.responsesExpireAfterWriteInSec = 60;
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        CacheManager cacheManager = cacheConfig.cacheManager(objectMapper, new SimpleMeterRegistry());
+        pagesCache = cacheManager.getCache("pages");
+        etagsCache = cacheManager.getCache("etags");
+
+        pageCodec = new PageCodec(objectMapper);
+        pageCodec.setCompress(compress);
+        repositories = objectMapper.readValue(Fixtures.repoPage(perPage), new TypeReference<>() {
+        });
+        pageUri = PAGE_URI + perPage;
+        pagesCache.put(pageUri, pageCodec.encode(repositories));
+        etagsCache.put(pageUri, "\"5d4f1b1c2e7d0e6d3b5a7c9e8f0a1b2c\"");
+    }
+
+    @Benchmark
+    public List<GitHubRepo> pageHit() {
+        return pageCodec.decode(pagesCache.get(pageUri, CompactPage.class), GitHubRepo.class);
+    }
+
+    @Benchmark
+    public CompactPage pageMiss() {
+        return pagesCache.get(PAGE_URI + "missing", CompactPage.class);
+    }
+
+    @Benchmark
+    public String etagHit() {
+        return etagsCache.get(pageUri, String.class);
+    }
+
+    @Benchmark
+    public void pageStore() {
+        pagesCache.put(pageUri, pageCodec.encode(repositories));
+    }
+}
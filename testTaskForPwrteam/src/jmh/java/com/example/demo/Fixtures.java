@@ -0,0 +1,65 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Builds GitHub response pages of any size from the recorded repository and branch objects in /fixtures.
+ */
+public final class Fixtures {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Fixtures() {
+    }
+
+    /**
+     * A page of {@code size} repositories, every third one a fork.
+     */
+    public static byte[] repoPage(int size) {
+        ObjectNode template = load("/fixtures/repo.json");
+        ArrayNode page = MAPPER.createArrayNode();
+        for (int i = 0; i < size; i++) {
+            String name = "Hello-World-" + i;
+            ObjectNode repo = template.deepCopy();
+            repo.put("id", 1296269 + i);
+            repo.put("name", name);
+            repo.put("full_name", "octocat/" + name);
+            repo.put("fork", i % 3 == 0);
+            repo.put("branches_url", "https://api.github.com/repos/octocat/" + name + "/branches{/branch}");
+            page.add(repo);
+        }
+        return write(page);
+    }
+
+    public static byte[] branchPage(int size) {
+        ObjectNode template = load("/fixtures/branch.json");
+        ArrayNode page = MAPPER.createArrayNode();
+        for (int i = 0; i < size; i++) {
+            ObjectNode branch = template.deepCopy();
+            branch.put("name", "feature-" + i);
+            page.add(branch);
+        }
+        return write(page);
+    }
+
+    private static ObjectNode load(String resource) {
+        try (InputStream in = Fixtures.class.getResourceAsStream(resource)) {
+            return (ObjectNode) MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] write(ArrayNode page) {
+        try {
+            return MAPPER.writeValueAsBytes(page);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.client;
+
+import com.example.demo.Fixtures;
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson decode of recorded GitHub pages into the client models, configured like the WebClient codecs: as a whole,
+ * element by element through the codecs' tokenizer, and through the {@link PageDecoder} fetchPage uses.
+ * Run with {@code -prof gc} to compare the allocations per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageDecodeBenchmark {
+    private static final int BUFFER_SIZE = 8192;
+
+    @Param({"3", "30", "100"})
+    int perPage;
+
+    private ObjectMapper objectMapper;
+    private JavaType repoListType;
+    private JavaType branchListType;
+    private byte[] repoPage;
+    private byte[] branchPage;
+    private Jackson2JsonDecoder codecDecoder;
+    private PageDecoder pageDecoder;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        repoListType = objectMapper.getTypeFactory().constructCollectionType(List.class, GitHubRepo.class);
+        branchListType = objectMapper.getTypeFactory().constructCollectionType(List.class, GitHubBranch.class);
+        repoPage = Fixtures.repoPage(perPage);
+        branchPage = Fixtures.branchPage(perPage);
+        codecDecoder = new Jackson2JsonDecoder(objectMapper);
+        codecDecoder.setMaxInMemorySize(-1);
+        pageDecoder = new PageDecoder(objectMapper);
+    }
+
+    @Benchmark
+    public List<GitHubRepo> decodeRepositories() throws IOException {
+        return objectMapper.readValue(repoPage, repoListType);
+    }
+
+    @Benchmark
+    public List<GitHubBranch> decodeBranches() throws IOException {
+        return objectMapper.readValue(branchPage, branchListType);
+    }
+
+    @Benchmark
+    public List<GitHubRepo> decodeRepositoriesPerElement() {
+        return codecDecoder.decode(body(repoPage), ResolvableType.forClass(GitHubRepo.class), null, null)
+                .cast(GitHubRepo.class)
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<GitHubRepo> decodeRepositoriesSkippingFields() {
+        return pageDecoder.decode(body(repoPage), GitHubRepo.class).collectList().block();
+    }
+
+    @Benchmark
+    public List<GitHubBranch> decodeBranchesPerElement() {
+        return codecDecoder.decode(body(branchPage), ResolvableType.forClass(GitHubBranch.class), null, null)
+                .cast(GitHubBranch.class)
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<GitHubBranch> decodeBranchesSkippingFields() {
+        return pageDecoder.decode(body(branchPage), GitHubBranch.class).collectList().block();
+    }
+
+    // split like the network delivers it, so both streaming decoders resume their parsers between buffers
+    private static Flux<DataBuffer> body(byte[] page) {
+        return Flux.range(0, (page.length + BUFFER_SIZE - 1) / BUFFER_SIZE)
+                .map(index -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(page, index * BUFFER_SIZE,
+                        Math.min(BUFFER_SIZE, page.length - index * BUFFER_SIZE))));
+    }
+}
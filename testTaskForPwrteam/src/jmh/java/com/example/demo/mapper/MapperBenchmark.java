@@ -0,0 +1,65 @@
+package com.example.demo.mapper;
+
+import com.example.demo.Fixtures;
+import com.example.demo.model.api.BranchDetails;
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MapStruct conversions from client models to the API models, one page at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    @Param({"3", "30", "100"})
+    int perPage;
+
+    private final RepoDetailsMapper repoDetailsMapper = new RepoDetailsMapperImpl();
+    private final BranchDetailsMapper branchDetailsMapper = new BranchDetailsMapperImpl();
+    private List<GitHubRepo> repositories;
+    private List<GitHubBranch> branches;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        repositories = objectMapper.readValue(Fixtures.repoPage(perPage), new TypeReference<>() {
+        });
+        branches = objectMapper.readValue(Fixtures.branchPage(perPage), new TypeReference<>() {
+        });
+    }
+
+    @Benchmark
+    public void toRepoDetails(Blackhole blackhole) {
+        for (GitHubRepo repository : repositories) {
+            blackhole.consume(repoDetailsMapper.toRepoDetails(repository));
+        }
+    }
+
+    @Benchmark
+    public List<BranchDetails> clientListToApiList() {
+        return branchDetailsMapper.clientListToApiList(branches);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.example.demo.Fixtures;
+import com.example.demo.cache.LocalReactiveCacheManager;
+import com.example.demo.cache.PageCodec;
+import com.example.demo.client.ConcurrencyLimiter;
+import com.example.demo.client.RepoFilter;
+import com.example.demo.mapper.BranchDetailsMapperImpl;
+import com.example.demo.mapper.RepoDetailsMapperImpl;
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.model.client.Page;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-page steps of {@link GitHubServiceImplV1}: reading the entities and ETag off a page,
+ * matching the Link header and filtering repositories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServicePipelineBenchmark {
+    private static final String REPO_URI = "https://api.github.com/users/octocat/repos?per_page=";
+
+    @Param({"3", "30", "100"})
+    int perPage;
+
+    private GitHubServiceImplV1 gitHubService;
+    private Page<GitHubRepo> page;
+    private FilterPredicate forked;
+
+    @Setup
+    public void setUp() throws IOException {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        // the pipeline steps measured here never reach the client
+        gitHubService = new GitHubServiceImplV1(null, Optional.empty(), new ConcurrencyLimiter(new SimpleMeterRegistry()),
+                cacheManager, new LocalReactiveCacheManager(cacheManager), new SimpleMeterRegistry(),
+                new BranchDetailsMapperImpl(), new RepoDetailsMapperImpl(), new PageCodec(new ObjectMapper()));
+        gitHubService.setLinkNextPattern("(?<=<)([^>]+)(?=>;\\s*rel=\"next\")");
+        gitHubService.setLinkLastPattern("(?<=<)([^>]+)(?=>;\\s*rel=\"last\")");
+        gitHubService.setPageNumberPattern("(?<=[?&]page=)\\d+");
+        gitHubService.setPlaceholderPattern("\\{.*?\\}");
+        gitHubService.setClientPageSize(perPage);
+        gitHubService.postConstruct();
+
+        List<GitHubRepo> repositories = Jackson2ObjectMapperBuilder.json().build()
+                .readValue(Fixtures.repoPage(perPage), new TypeReference<>() {
+                });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"5d4f1b1c2e7d0e6d3b5a7c9e8f0a1b2c\"");
+        headers.add(HttpHeaders.LINK, "<https://api.github.com/user/583231/repos?per_page=" + perPage + "&page=2>; rel=\"next\", "
+                + "<https://api.github.com/user/583231/repos?per_page=" + perPage + "&page=34>; rel=\"last\"");
+        page = new Page<>(repositories, headers, HttpStatusCode.valueOf(200), REPO_URI + perPage);
+        forked = new FilterPredicate(RepoFilter.FORKED);
+    }
+
+    @Benchmark
+    public List<GitHubRepo> parseData() {
+        return gitHubService.parseData(page).collectList().block();
+    }
+
+    @Benchmark
+    public String getNextUrl() {
+        return gitHubService.getNextUrl(page).block();
+    }
+
+    @Benchmark
+    public long filterPredicate() {
+        return page.getBody().stream().filter(forked).count();
+    }
+}
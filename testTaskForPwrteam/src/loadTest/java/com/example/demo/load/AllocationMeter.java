@@ -0,0 +1,53 @@
+package com.example.demo.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bytes allocated by the app's threads, that is every thread except the simulator's and the load generator's. Threads
+ * that die between two readings take their last allocations with them, so this is a lower bound.
+ */
+class AllocationMeter {
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private Map<Long, Long> last = new HashMap<>();
+
+    AllocationMeter() {
+        threads.setThreadAllocatedMemoryEnabled(true);
+        last = snapshot();
+    }
+
+    /**
+     * Bytes allocated since the previous call, or since construction.
+     */
+    long allocatedSinceLast() {
+        Map<Long, Long> current = snapshot();
+        long allocated = 0;
+        for (Map.Entry<Long, Long> entry : current.entrySet()) {
+            allocated += entry.getValue() - last.getOrDefault(entry.getKey(), 0L);
+        }
+        last = current;
+        return allocated;
+    }
+
+    private Map<Long, Long> snapshot() {
+        long[] ids = threads.getAllThreadIds();
+        ThreadInfo[] infos = threads.getThreadInfo(ids);
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> snapshot = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] == null || allocated[i] < 0 || isHarness(infos[i].getThreadName())) {
+                continue;
+            }
+            snapshot.put(ids[i], allocated[i]);
+        }
+        return snapshot;
+    }
+
+    private static boolean isHarness(String threadName) {
+        return threadName.startsWith(GitHubSimulator.THREAD_PREFIX) || threadName.startsWith(LoadGenerator.THREAD_PREFIX)
+                || threadName.equals("main");
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the GitHub REST endpoints the v1 client calls. Accounts are synthetic, {@code sim-<repos>-<n>} owns
+ * {@code repos} repositories with {@link Settings#branches()} branches each. Every response is delayed by the configured
+ * latency plus jitter, carries rate-limit headers and a stable ETag, and fails with a 502 at the configured error rate.
+ * Runs on its own event loop and scheduler so its threads can be told apart from the app's.
+ */
+class GitHubSimulator implements Closeable {
+    static final String THREAD_PREFIX = "simulator";
+
+    private static final Pattern REPOS_PATH = Pattern.compile("/users/sim-(\\d+)-\\d+/repos");
+    private static final Pattern BRANCHES_PATH = Pattern.compile("/repos/([^/]+)/([^/]+)/branches");
+    private static final String PUSHED_AT = "2024-01-01T00:00:00Z";
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectNode repoTemplate;
+    private final ObjectNode branchTemplate;
+    private final LoopResources loopResources = LoopResources.create(THREAD_PREFIX + "-nio", 2, true);
+    private final Scheduler delayScheduler = Schedulers.newParallel(THREAD_PREFIX + "-delay", 2, true);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong windowRequests = new AtomicLong();
+    private volatile long windowReset;
+    private final DisposableServer server;
+
+    record Settings(Duration latency, Duration jitter, double errorRate, long rateLimit, Duration rateLimitWindow,
+                    int branches) {
+    }
+
+    GitHubSimulator(Settings settings) {
+        this.settings = settings;
+        this.repoTemplate = load("/fixtures/repo.json");
+        this.branchTemplate = load("/fixtures/branch.json");
+        this.windowReset = Instant.now().plus(settings.rateLimitWindow()).getEpochSecond();
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .runOn(loopResources)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    /**
+     * Calls received so far, including the ones answered with an error or 304.
+     */
+    long requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loopResources.dispose();
+        delayScheduler.dispose();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        requests.incrementAndGet();
+        long jitter = settings.jitter().toNanos();
+        Duration delay = settings.latency().plusNanos(jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+        return Mono.delay(delay, delayScheduler)
+                .then(Mono.defer(() -> respond(request, response)));
+    }
+
+    private Mono<Void> respond(HttpServerRequest request, HttpServerResponse response) {
+        long remaining = rateLimitRemaining();
+        response.header("X-RateLimit-Limit", String.valueOf(settings.rateLimit()))
+                .header("X-RateLimit-Remaining", String.valueOf(Math.max(remaining, 0)))
+                .header("X-RateLimit-Reset", String.valueOf(windowReset))
+                .header("X-RateLimit-Resource", "core");
+        if (remaining < 0) {
+            return response.status(HttpResponseStatus.FORBIDDEN).send();
+        }
+        if (settings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+            return response.status(HttpResponseStatus.BAD_GATEWAY).send();
+        }
+
+        QueryStringDecoder query = new QueryStringDecoder(request.uri());
+        int perPage = intParameter(query, "per_page", 30);
+        int page = intParameter(query, "page", 1);
+        Matcher repos = REPOS_PATH.matcher(query.path());
+        if (repos.matches()) {
+            String owner = query.path().split("/")[2];
+            int count = Integer.parseInt(repos.group(1));
+            return sendPage(request, response, query.path(), count, perPage, page,
+                    index -> repo(owner, index));
+        }
+        Matcher branches = BRANCHES_PATH.matcher(query.path());
+        if (branches.matches()) {
+            return sendPage(request, response, query.path(), settings.branches(), perPage, page, this::branch);
+        }
+        return response.status(HttpResponseStatus.NOT_FOUND).send();
+    }
+
+    private Mono<Void> sendPage(HttpServerRequest request, HttpServerResponse response, String path, int count,
+                                int perPage, int page, IntFunction<ObjectNode> item) {
+        int last = Math.max(1, (count + perPage - 1) / perPage);
+        // content never changes, so the path and page are enough to tell versions apart
+        String etag = "\"" + Integer.toHexString(path.hashCode()) + "-" + perPage + "-" + page + "\"";
+        response.header(HttpHeaders.ETAG, etag);
+        if (page < last) {
+            String link = baseUrl() + path + "?per_page=" + perPage + "&page=";
+            response.header(HttpHeaders.LINK, "<" + link + (page + 1) + ">; rel=\"next\", <" + link + last + ">; rel=\"last\"");
+        }
+        if (etag.equals(request.requestHeaders().get(HttpHeaders.IF_NONE_MATCH))) {
+            return response.status(HttpResponseStatus.NOT_MODIFIED).send();
+        }
+
+        ArrayNode items = objectMapper.createArrayNode();
+        for (int index = (page - 1) * perPage; index < Math.min(count, page * perPage); index++) {
+            items.add(item.apply(index));
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(items);
+        } catch (IOException e) {
+            return Mono.error(new UncheckedIOException(e));
+        }
+        return response.status(HttpResponseStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json; charset=utf-8")
+                .sendByteArray(Mono.just(body))
+                .then();
+    }
+
+    private ObjectNode repo(String owner, int index) {
+        String name = "repo-" + index;
+        ObjectNode repo = repoTemplate.deepCopy();
+        repo.put("id", (long) owner.hashCode() * 100_000 + index);
+        repo.put("name", name);
+        repo.put("full_name", owner + "/" + name);
+        repo.put("fork", index % 3 == 0);
+        repo.put("pushed_at", PUSHED_AT);
+        repo.put("branches_url", baseUrl() + "/repos/" + owner + "/" + name + "/branches{/branch}");
+        ((ObjectNode) repo.get("owner")).put("login", owner);
+        return repo;
+    }
+
+    private ObjectNode branch(int index) {
+        ObjectNode branch = branchTemplate.deepCopy();
+        branch.put("name", index == 0 ? "main" : "feature-" + index);
+        return branch;
+    }
+
+    private long rateLimitRemaining() {
+        long now = Instant.now().getEpochSecond();
+        if (now >= windowReset) {
+            synchronized (this) {
+                if (now >= windowReset) {
+                    windowRequests.set(0);
+                    windowReset = now + settings.rateLimitWindow().toSeconds();
+                }
+            }
+        }
+        return settings.rateLimit() - windowRequests.incrementAndGet();
+    }
+
+    private ObjectNode load(String resource) {
+        try (InputStream in = GitHubSimulator.class.getResourceAsStream(resource)) {
+            return (ObjectNode) objectMapper.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int intParameter(QueryStringDecoder query, String name, int defaultValue) {
+        List<String> values = query.parameters().get(name);
+        return values == null || values.isEmpty() ? defaultValue : Integer.parseInt(values.get(0));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Open-model driver: requests are started at a fixed arrival rate whether or not earlier ones have answered, and each
+ * latency is measured from the moment the request was due, so a stalled app shows up as queueing delay instead of a
+ * lower offered load.
+ */
+class LoadGenerator implements Closeable {
+    static final String THREAD_PREFIX = "load";
+
+    private final LoopResources loopResources = LoopResources.create(THREAD_PREFIX + "-nio", 2, true);
+    private final ConnectionProvider connectionProvider = ConnectionProvider.builder(THREAD_PREFIX)
+            .maxConnections(2_000)
+            .pendingAcquireMaxCount(-1)
+            .build();
+    private final Scheduler ticker = Schedulers.newSingle(THREAD_PREFIX + "-ticker", true);
+    private final WebClient webClient;
+    private final Duration timeout;
+
+    record Result(long offered, long succeeded, long failed, long timedOut, Duration elapsed, Histogram latency) {
+    }
+
+    LoadGenerator(String baseUrl, Duration timeout) {
+        this.timeout = timeout;
+        this.webClient = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider).runOn(loopResources)))
+                .build();
+    }
+
+    /**
+     * Offers {@code rate} requests per second for {@code duration}, the n-th one for {@code username.apply(n)}, and waits
+     * for the stragglers before returning.
+     */
+    Result run(double rate, Duration duration, LongFunction<String> username) {
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long offered = (long) (rate * duration.toNanos() / TimeUnit.SECONDS.toNanos(1));
+        Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong timedOut = new AtomicLong();
+        long start = System.nanoTime();
+
+        Flux.interval(Duration.ZERO, Duration.ofNanos(period), ticker)
+                .take(offered)
+                .flatMap(n -> {
+                    long due = start + n * period;
+                    return request(username.apply(n))
+                            .doOnNext(ok -> (ok ? succeeded : failed).incrementAndGet())
+                            .onErrorResume(e -> {
+                                (e instanceof TimeoutException ? timedOut : failed).incrementAndGet();
+                                return Mono.empty();
+                            })
+                            .doFinally(signal -> latency.recordValue(
+                                    Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due), latency.getHighestTrackableValue())));
+                }, Integer.MAX_VALUE)
+                .blockLast();
+
+        return new Result(offered, succeeded.get(), failed.get(), timedOut.get(),
+                Duration.ofNanos(System.nanoTime() - start), latency);
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.disposeLater().block();
+        loopResources.dispose();
+        ticker.dispose();
+    }
+
+    private Mono<Boolean> request(String username) {
+        return webClient.get()
+                .uri("/users/{username}/repositories", username)
+                .accept(MediaType.APPLICATION_JSON)
+                // the body is read to the end so the app pays for assembling it, then dropped
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(response.statusCode().is2xxSuccessful()))
+                .timeout(timeout, ticker);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.load;
+
+import com.example.demo.PwrteamApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Starts the app against {@link GitHubSimulator} and drives {@code GET /users/{username}/repositories} with
+ * {@link LoadGenerator}, first with cold caches, every request naming an account the app has not seen, then warm,
+ * replaying the accounts of the cold phase. Run through {@code ./gradlew loadTest}; every knob is a system property
+ * the task forwards from {@code -Pload.*}:
+ * <ul>
+ *     <li>{@code load.rate} requests per second offered, default 50</li>
+ *     <li>{@code load.duration} length of each phase, default PT30S</li>
+ *     <li>{@code load.timeout} client-side timeout per request, default PT30S</li>
+ *     <li>{@code load.accounts} repositories per account and weight, default 1:40,10:30,100:20,1000:9,10000:1</li>
+ *     <li>{@code load.branches} branches per repository, default 3</li>
+ *     <li>{@code load.latency} and {@code load.jitter} added to every simulated GitHub response, default PT0.05S and PT0.02S</li>
+ *     <li>{@code load.errorRate} share of simulated responses failing with 502, default 0</li>
+ *     <li>{@code load.rateLimit} and {@code load.rateLimitWindow} simulated quota, default 1000000 per PT1H</li>
+ *     <li>{@code load.app.*} passed to the app with the prefix stripped, e.g. {@code load.app.github.client.pageSize=30}</li>
+ * </ul>
+ * Heap and allocation figures cover the whole JVM and the app's threads respectively, so compare runs of this task
+ * with each other rather than with production.
+ */
+public class LoadTest {
+    private static final String PREFIX = "load.";
+    private static final String APP_PREFIX = PREFIX + "app.";
+
+    public static void main(String[] args) throws IOException {
+        double rate = Double.parseDouble(System.getProperty(PREFIX + "rate", "50"));
+        Duration duration = duration("duration", "PT30S");
+        Duration timeout = duration("timeout", "PT30S");
+        Accounts accounts = Accounts.parse(System.getProperty(PREFIX + "accounts", "1:40,10:30,100:20,1000:9,10000:1"));
+        GitHubSimulator.Settings settings = new GitHubSimulator.Settings(
+                duration("latency", "PT0.05S"),
+                duration("jitter", "PT0.02S"),
+                Double.parseDouble(System.getProperty(PREFIX + "errorRate", "0")),
+                Long.parseLong(System.getProperty(PREFIX + "rateLimit", "1000000")),
+                duration("rateLimitWindow", "PT1H"),
+                Integer.parseInt(System.getProperty(PREFIX + "branches", "3")));
+
+        List<Map<String, Object>> phases = new ArrayList<>();
+        try (GitHubSimulator simulator = new GitHubSimulator(settings)) {
+            // passed as command line arguments so they win over application.yaml
+            ConfigurableApplicationContext app = new SpringApplicationBuilder(PwrteamApplication.class)
+                    .run(appArguments(simulator.baseUrl()));
+            int port = ((ReactiveWebServerApplicationContext) app).getWebServer().getPort();
+            AllocationMeter allocationMeter = new AllocationMeter();
+            List<String> seen = new ArrayList<>();
+
+            try (LoadGenerator generator = new LoadGenerator("http://localhost:" + port, timeout)) {
+                phases.add(phase("cold", simulator, allocationMeter, () -> generator.run(rate, duration, n -> {
+                    String username = accounts.username(n);
+                    synchronized (seen) {
+                        seen.add(username);
+                    }
+                    return username;
+                })));
+                SplittableRandom random = new SplittableRandom(42);
+                phases.add(phase("warm", simulator, allocationMeter, () -> generator.run(rate, duration, n -> {
+                    synchronized (seen) {
+                        return seen.get(random.nextInt(seen.size()));
+                    }
+                })));
+            } finally {
+                app.close();
+            }
+        }
+
+        File results = new File(System.getProperty(PREFIX + "results", "build/reports/load/results.json"));
+        results.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(results, phases);
+        System.out.println("Load test result is saved to " + results.getAbsolutePath());
+    }
+
+    private static Map<String, Object> phase(String name, GitHubSimulator simulator, AllocationMeter allocationMeter,
+                                             Supplier<LoadGenerator.Result> run) {
+        long outboundBefore = simulator.requests();
+        allocationMeter.allocatedSinceLast();
+        LoadGenerator.Result result = run.get();
+        long allocated = allocationMeter.allocatedSinceLast();
+        long outbound = simulator.requests() - outboundBefore;
+        System.gc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        double seconds = result.elapsed().toNanos() / 1e9;
+        long completed = result.succeeded() + result.failed() + result.timedOut();
+        Histogram latency = result.latency();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("phase", name);
+        report.put("offered", result.offered());
+        report.put("succeeded", result.succeeded());
+        report.put("failed", result.failed());
+        report.put("timedOut", result.timedOut());
+        report.put("throughputPerSec", round(result.succeeded() / seconds));
+        report.put("p50Ms", millis(latency.getValueAtPercentile(50)));
+        report.put("p99Ms", millis(latency.getValueAtPercentile(99)));
+        report.put("p999Ms", millis(latency.getValueAtPercentile(99.9)));
+        report.put("maxMs", millis(latency.getMaxValue()));
+        report.put("outboundPerRequest", completed == 0 ? 0 : round((double) outbound / completed));
+        report.put("heapUsedAfterGcMb", round(heapUsed / 1048576.0));
+        report.put("allocationMbPerSec", round(allocated / 1048576.0 / seconds));
+        System.out.println(report);
+        return report;
+    }
+
+    private static String[] appArguments(String gitHubUrl) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("github.baseUrl", gitHubUrl);
+        properties.put("github.gitBaseUrl", gitHubUrl);
+        properties.put("github.token", "load-test");
+        // GitHub's maximum, the app's default of 3 would turn every account into a flood of tiny pages
+        properties.put("github.client.pageSize", 100);
+        System.getProperties().stringPropertyNames().stream()
+                .filter(key -> key.startsWith(APP_PREFIX))
+                .forEach(key -> properties.put(key.substring(APP_PREFIX.length()), System.getProperty(key)));
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    private static Duration duration(String name, String defaultValue) {
+        return Duration.parse(System.getProperty(PREFIX + name, defaultValue));
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * Weighted mix of synthetic account sizes; the n-th username is drawn from it deterministically.
+     */
+    private record Accounts(int[] repos, int[] cumulativeWeights) {
+
+        static Accounts parse(String spec) {
+            String[] entries = spec.split(",");
+            int[] repos = new int[entries.length];
+            int[] cumulativeWeights = new int[entries.length];
+            int total = 0;
+            for (int i = 0; i < entries.length; i++) {
+                String[] parts = entries[i].trim().split(":");
+                repos[i] = Integer.parseInt(parts[0]);
+                total += parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+                cumulativeWeights[i] = total;
+            }
+            return new Accounts(repos, cumulativeWeights);
+        }
+
+        String username(long n) {
+            int draw = new SplittableRandom(n).nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (draw >= cumulativeWeights[i]) {
+                i++;
+            }
+            return "sim-" + repos[i] + "-" + n;
+        }
+    }
+}
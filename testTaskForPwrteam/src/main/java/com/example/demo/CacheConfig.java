@@ -1,29 +1,182 @@
 package com.example.demo;
 
+import com.example.demo.cache.BranchSnapshot;
+import com.example.demo.cache.CacheValueMapper;
+import com.example.demo.cache.CompactPage;
+import com.example.demo.cache.DiskCacheStore;
+import com.example.demo.cache.MeteredCache;
+import com.example.demo.cache.TieredCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.example.demo.service.AssembledResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.util.unit.DataSize;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableCaching
+@EnableScheduling
 public class CacheConfig {
-    @Value("${cache.maximumSize}")
-    long maximumSize;
+    private static final Set<String> PERSISTENT_CACHES = Set.of("pages", "etags", "nextUris", "branchSnapshots");
+    private static final String CACHE_MANAGER = "cacheManager";
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    private static final int OBJECT_OVERHEAD_BYTES = 16;
+
     @Value("${cache.expireAfterWriteInMin}")
     long expireAfterWriteInMin;
+    @Value("${cache.pages.maxBytes}")
+    DataSize pagesMaxBytes;
+    @Value("${cache.etags.maxBytes}")
+    DataSize etagsMaxBytes;
+    @Value("${cache.nextUris.maxBytes}")
+    DataSize nextUrisMaxBytes;
+    @Value("${cache.lastUris.maxBytes}")
+    DataSize lastUrisMaxBytes;
+    @Value("${cache.validated.maxBytes}")
+    DataSize validatedMaxBytes;
+    @Value("${cache.branchSnapshots.maxBytes}")
+    DataSize branchSnapshotsMaxBytes;
+    @Value("${cache.branchSnapshots.expireAfterWriteInHours}")
+    long branchSnapshotsExpireAfterWriteInHours;
+    @Value("${cache.negative.maxBytes}")
+    DataSize negativeMaxBytes;
+    @Value("${cache.negative.expireAfterWriteInSec}")
+    long negativeExpireAfterWriteInSec;
+    @Value("${cache.responses.maxBytes}")
+    DataSize responsesMaxBytes;
+    @Value("${cache.responses.expireAfterWriteInSec}")
+    long responsesExpireAfterWriteInSec;
+    @Value("${cache.disk.enabled}")
+    boolean diskEnabled;
+    @Value("${cache.disk.directory}")
+    String diskDirectory;
+    @Value("${cache.disk.expireAfterWriteInHours}")
+    long diskExpireAfterWriteInHours;
+    @Value("${cache.disk.compactionRatio}")
+    double diskCompactionRatio;
+    @Value("${cache.disk.warmEntries}")
+    int diskWarmEntries;
+    private final List<DiskCacheStore> diskCacheStores = new CopyOnWriteArrayList<>();
 
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("pages", "etags", "nextUris");
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(maximumSize)
-                .expireAfterWrite(expireAfterWriteInMin, TimeUnit.MINUTES));
+    public CacheManager cacheManager(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                Cache heap = super.adaptCaffeineCache(name, cache);
+                registerWeightGauges(name, cache, meterRegistry);
+                // the actuator binder only recognises a plain CaffeineCache, so the decorated ones are bound here
+                CaffeineCacheMetrics.monitor(meterRegistry, cache, name, Tags.of("cache.manager", CACHE_MANAGER));
+                return new MeteredCache(diskEnabled && PERSISTENT_CACHES.contains(name)
+                        ? tiered(heap, objectMapper, meterRegistry)
+                        : heap, meterRegistry);
+            }
+        };
+        // every cache has its own byte budget, an empty name list stops unknown names from creating unbounded ones
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache("pages", budgeted(pagesMaxBytes)
+                .expireAfterWrite(expireAfterWriteInMin, TimeUnit.MINUTES).build());
+        cacheManager.registerCustomCache("etags", budgeted(etagsMaxBytes)
+                .expireAfterWrite(expireAfterWriteInMin, TimeUnit.MINUTES).build());
+        cacheManager.registerCustomCache("nextUris", budgeted(nextUrisMaxBytes)
+                .expireAfterWrite(expireAfterWriteInMin, TimeUnit.MINUTES).build());
+        cacheManager.registerCustomCache("lastUris", budgeted(lastUrisMaxBytes)
+                .expireAfterWrite(expireAfterWriteInMin, TimeUnit.MINUTES).build());
+        cacheManager.registerCustomCache("validated", budgeted(validatedMaxBytes)
+                .expireAfterWrite(expireAfterWriteInMin, TimeUnit.MINUTES).build());
+        cacheManager.registerCustomCache("branchSnapshots", budgeted(branchSnapshotsMaxBytes)
+                .expireAfterWrite(branchSnapshotsExpireAfterWriteInHours, TimeUnit.HOURS).build());
+        cacheManager.registerCustomCache("negative", budgeted(negativeMaxBytes)
+                .expireAfterWrite(negativeExpireAfterWriteInSec, TimeUnit.SECONDS).build());
+        cacheManager.registerCustomCache("responses", budgeted(responsesMaxBytes)
+                .expireAfterWrite(responsesExpireAfterWriteInSec, TimeUnit.SECONDS).build());
         return cacheManager;
     }
+
+    private Caffeine<Object, Object> budgeted(DataSize maxBytes) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxBytes.toBytes())
+                .weigher(CacheConfig::weigh)
+                .recordStats();
+    }
+
+    /**
+     * Rough retained size of an entry: the Caffeine node plus key and value, strings counted as compact Latin-1.
+     */
+    static int weigh(Object key, Object value) {
+        return ENTRY_OVERHEAD_BYTES + sizeOf(key) + sizeOf(value);
+    }
+
+    private static int sizeOf(Object value) {
+        if (value instanceof String string) {
+            return STRING_OVERHEAD_BYTES + string.length();
+        } else if (value instanceof CompactPage page) {
+            return OBJECT_OVERHEAD_BYTES + page.bytes().length;
+        } else if (value instanceof BranchSnapshot snapshot) {
+            return OBJECT_OVERHEAD_BYTES + sizeOf(snapshot.pushedAt()) + sizeOf(snapshot.branches());
+        } else if (value instanceof AssembledResponse response) {
+            return OBJECT_OVERHEAD_BYTES + response.body().length + sizeOf(response.etag()) +
+                    response.sourceEtags().entrySet().stream()
+                            .mapToInt(entry -> ENTRY_OVERHEAD_BYTES + sizeOf(entry.getKey()) + sizeOf(entry.getValue()))
+                            .sum();
+        }
+        return OBJECT_OVERHEAD_BYTES;
+    }
+
+    private void registerWeightGauges(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                      MeterRegistry meterRegistry) {
+        // hit, miss and eviction counts come from CaffeineCacheMetrics, it only lacks the weighted size
+        cache.policy().eviction().ifPresent(eviction -> {
+            Gauge.builder("cache.weighted.size", eviction, e -> e.weightedSize().orElse(0))
+                    .tags("cache", name, "cache.manager", CACHE_MANAGER)
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(meterRegistry);
+            Gauge.builder("cache.max.weight", eviction, e -> e.getMaximum())
+                    .tags("cache", name, "cache.manager", CACHE_MANAGER)
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(meterRegistry);
+        });
+    }
+
+    private TieredCache tiered(Cache heap, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        ObjectMapper valueMapper = CacheValueMapper.typed(objectMapper);
+        try {
+            DiskCacheStore disk = new DiskCacheStore(Path.of(diskDirectory), heap.getName(), objectMapper, valueMapper,
+                    TimeUnit.HOURS.toMillis(diskExpireAfterWriteInHours), diskCompactionRatio);
+            diskCacheStores.add(disk);
+            TieredCache tieredCache = new TieredCache(heap, disk, meterRegistry);
+            tieredCache.warm(diskWarmEntries);
+            return tieredCache;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open disk cache " + heap.getName(), e);
+        }
+    }
+
+    @PreDestroy
+    public void closeDiskCaches() throws IOException {
+        for (DiskCacheStore disk : diskCacheStores) {
+            disk.close();
+        }
+    }
 }
@@ -1,32 +1,30 @@
 package com.example.demo;
 
+import com.example.demo.handler.ApiError;
 import com.example.demo.handler.GitHubHandler;
+import com.example.demo.handler.WebhookHandler;
+import com.example.demo.model.api.BatchRequest;
+import com.example.demo.model.api.BranchDetails;
 import com.example.demo.model.api.RepoDetails;
-import com.example.demo.problem.NotFoundException;
-import com.example.demo.problem.RetryExhaustedException;
-import com.example.demo.problem.ServiceException;
-import com.example.demo.problem.UnauthorizedException;
+import com.example.demo.model.api.UserRepoDetails;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.netty.channel.ConnectTimeoutException;
-import io.netty.handler.timeout.ReadTimeoutException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springdoc.core.annotations.RouterOperation;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
-import org.springframework.web.reactive.resource.NoResourceFoundException;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebExceptionHandler;
 import reactor.core.publisher.Mono;
@@ -42,7 +40,8 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
 public class RoutesConfig {
 
     @Bean
-    @RouterOperation(operation = @Operation(operationId = "getRepoDetails", summary = "Get repository details", tags = {"Repository"},
+    @RouterOperation(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE}, operation = @Operation(operationId = "getRepoDetails", summary = "Get repository details", tags = {"Repository"},
             parameters = {
                     @Parameter(in = ParameterIn.PATH, name = "username",
                             description = "The GitHub username whose repositories are to be fetched",
@@ -54,10 +53,29 @@ public class RoutesConfig {
                                     type = "string",
                                     allowableValues = {"forked", "nonforked", "all"},
                                     defaultValue = "all"
-                            ))
+                            )),
+                    @Parameter(in = ParameterIn.QUERY, name = "fields",
+                            description = "Comma separated subset of repoName, ownerLogin and branches (default is all). "
+                                    + "Leaving out branches skips the per-repository branch calls",
+                            required = false, example = "repoName,ownerLogin"),
+                    @Parameter(in = ParameterIn.QUERY, name = "limit",
+                            description = "Page through the repositories, at most this many per response. "
+                                    + "The Link header carries rel=\"next\" while more remain",
+                            required = false, example = "30", schema = @Schema(type = "integer", minimum = "1")),
+                    @Parameter(in = ParameterIn.QUERY, name = "cursor",
+                            description = "Opaque position taken from the previous response's rel=\"next\" link",
+                            required = false)
             },
-            responses = {@ApiResponse(responseCode = "200", description = "Successfully fetched repository details",
-                    content = @Content(schema = @Schema(implementation = RepoDetails.class))),
+            responses = {@ApiResponse(responseCode = "200", description = "Successfully fetched repository details. "
+                    + "application/x-ndjson and text/event-stream stream every repository as soon as its branches are resolved",
+                    content = {
+                            @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    array = @ArraySchema(schema = @Schema(implementation = RepoDetails.class))),
+                            @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = RepoDetails.class)),
+                            @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                                    schema = @Schema(implementation = RepoDetails.class))
+                    }),
                     @ApiResponse(responseCode = "504", description = "The server took too long to respond. "),
                     @ApiResponse(responseCode = "408", description = "Failed to establish a connection to the server. "),
                     @ApiResponse(responseCode = "503", description = "A network error occurred while trying to reach the server. "),
@@ -72,70 +90,80 @@ public class RoutesConfig {
                 .build();
     }
 
+    @Bean
+    @RouterOperation(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE}, operation = @Operation(operationId = "getBranchDetails",
+            summary = "Get the branches of one repository", tags = {"Repository"},
+            parameters = {
+                    @Parameter(in = ParameterIn.PATH, name = "username", description = "Owner of the repository",
+                            required = true, example = "apache"),
+                    @Parameter(in = ParameterIn.PATH, name = "repo", description = "Name of the repository",
+                            required = true, example = "kafka")
+            },
+            responses = {@ApiResponse(responseCode = "200", description = "Successfully fetched the branches. ",
+                    content = {
+                            @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    array = @ArraySchema(schema = @Schema(implementation = BranchDetails.class))),
+                            @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = BranchDetails.class))
+                    }),
+                    @ApiResponse(responseCode = "404", description = "No such repository. ")
+            }))
+    public RouterFunction<ServerResponse> branchRoutes(GitHubHandler gitHubHandler) {
+        return route()
+                .GET("/users/{username}/repositories/{repo}/branches", gitHubHandler::getBranchDetails)
+                .build();
+    }
+
+    @Bean
+    @RouterOperation(produces = MediaType.APPLICATION_NDJSON_VALUE, operation = @Operation(operationId = "getRepoDetailsBatch",
+            summary = "Get repository details of many users", tags = {"Repository"},
+            requestBody = @RequestBody(required = true, content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = BatchRequest.class))),
+            responses = {@ApiResponse(responseCode = "200", description = "One line per user as soon as all of its repositories "
+                    + "are resolved. A user that failed carries the status and message instead of repositories",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = UserRepoDetails.class))),
+                    @ApiResponse(responseCode = "400", description = "No usernames, too many usernames or an invalid filter. ")
+            }))
+    public RouterFunction<ServerResponse> batchRoutes(GitHubHandler gitHubHandler) {
+        return route()
+                .POST("/users/repositories:batch", gitHubHandler::getRepoDetailsBatch)
+                .build();
+    }
+
+    @Bean
+    @RouterOperation(operation = @Operation(operationId = "handleWebhook", summary = "Invalidate cached data on GitHub webhook events",
+            tags = {"Webhook"},
+            parameters = {
+                    @Parameter(in = ParameterIn.HEADER, name = "X-GitHub-Event",
+                            description = "push, create, delete, repository and fork invalidate caches, other events are ignored",
+                            required = true, example = "push"),
+                    @Parameter(in = ParameterIn.HEADER, name = "X-Hub-Signature-256",
+                            description = "HMAC-SHA256 of the body keyed with github.webhookSecret",
+                            required = true, example = "sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17")
+            },
+            responses = {@ApiResponse(responseCode = "204", description = "The delivery was accepted. "),
+                    @ApiResponse(responseCode = "400", description = "The payload is not JSON. "),
+                    @ApiResponse(responseCode = "401", description = "The signature does not match. "),
+                    @ApiResponse(responseCode = "413", description = "The payload exceeds github.webhookMaxPayloadSize. ")
+            }))
+    public RouterFunction<ServerResponse> webhookRoutes(WebhookHandler webhookHandler) {
+        return route()
+                .POST("/webhooks/github", webhookHandler::handleEvent)
+                .build();
+    }
+
     @Bean
     @Order(-2)
     public WebExceptionHandler exceptionHandler() {
         return (ServerWebExchange exchange, Throwable ex) -> {
-            Map<String, Object> errorResponse = new HashMap<>();
-
-            if (ex instanceof RetryExhaustedException re) {
-                Throwable cause = re.getCause();
-
-                if (cause instanceof ReadTimeoutException rte) {
-                    log.info("RouterConfig:: handling exception :: ", rte);
-                    exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
-                    errorResponse.put("status", HttpStatus.GATEWAY_TIMEOUT.value());
-                    errorResponse.put("message", "The server took too long to respond. " + re.getUri());
-                    return writeErrorResponse(exchange, errorResponse);
-                } else if (cause instanceof ConnectTimeoutException cte) {
-                    log.info("RouterConfig:: handling exception :: ", cte);
-                    exchange.getResponse().setStatusCode(HttpStatus.REQUEST_TIMEOUT);
-                    errorResponse.put("status", HttpStatus.REQUEST_TIMEOUT.value());
-                    errorResponse.put("message", "Failed to establish a connection to the server. " + re.getUri());
-                    return writeErrorResponse(exchange, errorResponse);
-                } else if (cause instanceof WebClientRequestException wre) {
-                    log.info("RouterConfig:: handling exception :: ", wre);
-                    exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
-                    errorResponse.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
-                    errorResponse.put("message", "A network error occurred while trying to reach the server. " + re.getUri());
-                    return writeErrorResponse(exchange, errorResponse);
-                } else {
-                    log.info("RouterConfig:: handling exception :: ", ex);
-                    exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
-                    errorResponse.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
-                    errorResponse.put("message", ex.getCause().getMessage());
-                    return writeErrorResponse(exchange, errorResponse);
-                }
-            } else if (ex instanceof NoResourceFoundException) {
-                log.info("RouterConfig:: handling exception :: ", ex);
-                exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
-                errorResponse.put("status", HttpStatus.NOT_FOUND.value());
-                errorResponse.put("message", "please check your path - should be in such format /users/{username}/repositories");
-                return writeErrorResponse(exchange, errorResponse);
-            } else if (ex instanceof UnauthorizedException) {
-                log.info("RouterConfig:: handling exception :: ", ex);
-                exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                errorResponse.put("status", HttpStatus.UNAUTHORIZED.value());
-                errorResponse.put("message", ex.getMessage());
-                return writeErrorResponse(exchange, errorResponse);
-            } else if (ex instanceof NotFoundException) {
-                log.info("RouterConfig:: handling exception :: ", ex);
-                exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
-                errorResponse.put("status", HttpStatus.NOT_FOUND.value());
-                errorResponse.put("message", ex.getMessage());
-                return writeErrorResponse(exchange, errorResponse);
-            } else if (ex instanceof ServiceException) {
-                Throwable cause = ex.getCause();
-                log.info("RouterConfig:: handling exception :: ", ex);
-                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
-                errorResponse.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
-                errorResponse.put("message", "A network error occurred while trying to reach the server. " + cause.getMessage());
-                return writeErrorResponse(exchange, errorResponse);
-            }
             log.info("RouterConfig:: handling exception :: ", ex);
-            exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
-            errorResponse.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
-            errorResponse.put("message", ex.getMessage());
+            ApiError error = ApiError.of(ex);
+            Map<String, Object> errorResponse = new HashMap<>();
+            exchange.getResponse().setStatusCode(error.status());
+            errorResponse.put("status", error.status().value());
+            errorResponse.put("message", error.message());
             return writeErrorResponse(exchange, errorResponse);
         };
     }
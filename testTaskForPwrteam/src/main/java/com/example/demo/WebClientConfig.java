@@ -1,11 +1,14 @@
 package com.example.demo;
 
+import com.example.demo.client.TokenPool;
+import com.example.demo.client.TokenRotationFilter;
 import io.netty.channel.ChannelOption;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.HttpHeaders;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.beans.factory.annotation.Value;
 import reactor.netty.http.client.HttpClient;
@@ -18,15 +21,14 @@ public class WebClientConfig {
 
     @Value("#{gitHubConfig.baseUrl}")
     String gitHubBaseUrl;
-    @Value("#{gitHubConfig.token}")
-    String gitHubToken;
     @Value("#{gitHubConfig.client.connectTimeoutInMilliseconds}")
     int connectTimeoutInMilliseconds;
     @Value("#{gitHubConfig.client.responseTimeoutInSeconds}")
     long responseTimeoutInSeconds;
 
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
+    @Primary
+    public WebClient webClient(WebClient.Builder builder, TokenRotationFilter tokenRotationFilter) {
 
         HttpClient client = HttpClient.create().responseTimeout(Duration.ofSeconds(responseTimeoutInSeconds))
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutInMilliseconds);
@@ -34,7 +36,21 @@ public class WebClientConfig {
             return WebClient.builder()
                     .clientConnector(new ReactorClientHttpConnector(client))
                     .baseUrl(gitHubBaseUrl)
-                    .defaultHeader(HttpHeaders.AUTHORIZATION, "token " + gitHubToken)
+                    .filter(tokenRotationFilter)
                     .build();
     }
+
+    @Bean
+    public WebClient gitWebClient(TokenPool tokenPool) {
+
+        HttpClient client = HttpClient.create().responseTimeout(Duration.ofSeconds(responseTimeoutInSeconds))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutInMilliseconds);
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(client))
+                .filter((request, next) -> next.exchange(ClientRequest.from(request)
+                        .headers(headers -> headers.setBasicAuth("x-access-token", tokenPool.select()))
+                        .build()))
+                .build();
+    }
 }
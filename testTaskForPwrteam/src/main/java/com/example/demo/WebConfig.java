@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.server.WebFilter;
@@ -13,11 +14,15 @@ import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
 @Configuration
 public class WebConfig implements WebFluxConfigurer {
+    private static final List<MediaType> SUPPORTED_MEDIA_TYPES =
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
     @Bean
     public WebFilter contentNegotiationFilter() {
         return (exchange, chain) -> {
@@ -28,15 +33,16 @@ public class WebConfig implements WebFluxConfigurer {
             String userAgent = exchange.getRequest().getHeaders().getFirst("User-Agent");
 
 
-            boolean isOpenApiRequest = path.contains("/swagger") || path.contains("/v3/api-docs")
-                    || (userAgent != null && userAgent.contains("Swagger"));
+            // only the API routes negotiate, actuator scrapers and the OpenAPI docs answer in their own types
+            boolean isApiRequest = path.startsWith("/users/");
+            boolean isSwaggerClient = userAgent != null && userAgent.contains("Swagger");
 
-            if (acceptHeader != null && acceptHeader.contains(MediaType.APPLICATION_XML_VALUE) && !isOpenApiRequest) {
+            if (isApiRequest && !isSwaggerClient && acceptHeader != null && !isSupported(acceptHeader)) {
 
                 exchange.getResponse().setStatusCode(HttpStatus.NOT_ACCEPTABLE);
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("status", HttpStatus.NOT_ACCEPTABLE.value());
-                errorResponse.put("message", "Application response only in application/json");
+                errorResponse.put("message", "Application response only in application/json, application/x-ndjson or text/event-stream");
                 exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
                 byte[] bytes = serializeToJson(errorResponse).getBytes(StandardCharsets.UTF_8);
                 return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
@@ -45,6 +51,18 @@ public class WebConfig implements WebFluxConfigurer {
         };
     }
 
+    private boolean isSupported(String acceptHeader) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(acceptHeader);
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+        return accepted.stream()
+                .filter(mediaType -> mediaType.getQualityValue() > 0)
+                .anyMatch(mediaType -> SUPPORTED_MEDIA_TYPES.stream().anyMatch(mediaType::isCompatibleWith));
+    }
+
     private String serializeToJson(Map<String, Object> errorResponse) {
         try {
             return new ObjectMapper().writeValueAsString(errorResponse);
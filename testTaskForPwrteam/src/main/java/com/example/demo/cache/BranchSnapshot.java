@@ -0,0 +1,7 @@
+package com.example.demo.cache;
+
+/**
+ * The branch list of one repository as it was when the repository was last pushed at {@code pushedAt}.
+ */
+public record BranchSnapshot(String pushedAt, CompactPage branches) {
+}
@@ -0,0 +1,30 @@
+package com.example.demo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+
+/**
+ * Mapper for cache values leaving the heap. Values are compact pages, strings and client models, so their types
+ * are recorded alongside them and nothing outside those packages is trusted on the way back.
+ * Values must be written through {@link #writer(ObjectMapper)}, otherwise a final root type such as a record
+ * is written without its type id.
+ */
+public final class CacheValueMapper {
+
+    private CacheValueMapper() {
+    }
+
+    public static ObjectMapper typed(ObjectMapper objectMapper) {
+        return objectMapper.copy().activateDefaultTyping(BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.example.demo.model.")
+                .allowIfSubType("com.example.demo.cache.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.lang.")
+                .build(), ObjectMapper.DefaultTyping.NON_FINAL);
+    }
+
+    public static ObjectWriter writer(ObjectMapper typedMapper) {
+        return typedMapper.writerFor(Object.class);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.demo.cache;
+
+/**
+ * A cached page kept as its serialized JSON array, gzip-compressed when that pays off.
+ * Only the fields the client models bind survive serialization, so the bytes are already trimmed.
+ */
+public record CompactPage(byte[] bytes, boolean compressed, int size) {
+}
@@ -0,0 +1,269 @@
+package com.example.demo.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only log of cache entries, one JSON line per put or eviction, with an in-memory index of the latest
+ * line per key. Writes, the startup scan and compaction run on a single writer thread; reads are positional.
+ * Once dead lines outweigh the compaction ratio the live entries are rewritten to a fresh file.
+ */
+@Slf4j
+public class DiskCacheStore implements Closeable {
+    private static final long COMPACTION_MIN_BYTES = 64 * 1024;
+
+    private record Location(long offset, int length, long writtenAt) {
+    }
+
+    private final String name;
+    private final Path file;
+    private final ObjectMapper envelopeMapper;
+    private final ObjectMapper valueMapper;
+    private final long expireAfterWriteMillis;
+    private final double compactionRatio;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService writer;
+    private FileChannel channel;
+    private long deadBytes;
+
+    public DiskCacheStore(Path directory, String name, ObjectMapper envelopeMapper, ObjectMapper valueMapper,
+                          long expireAfterWriteMillis, double compactionRatio) throws IOException {
+        Files.createDirectories(directory);
+        this.name = name;
+        this.file = directory.resolve(name + ".log");
+        this.envelopeMapper = envelopeMapper;
+        this.valueMapper = valueMapper;
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+        this.compactionRatio = compactionRatio;
+        this.channel = open(file);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "disk-cache-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Rebuilds the index from the log in the background; lookups miss until it completes.
+     */
+    public CompletableFuture<Void> load() {
+        return CompletableFuture.runAsync(this::scan, writer);
+    }
+
+    public Optional<Object> get(String key) {
+        lock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            if (location == null || isExpired(location)) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(valueMapper.treeToValue(read(location).get("v"), Object.class));
+        } catch (IOException e) {
+            log.warn("failed to read disk cache " + name + " entry: " + key, e);
+            return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(String key, Object value) {
+        ObjectNode line = envelopeMapper.createObjectNode()
+                .put("k", key)
+                .put("t", System.currentTimeMillis());
+        try {
+            line.set("v", valueMapper.readTree(CacheValueMapper.writer(valueMapper).writeValueAsBytes(value)));
+        } catch (IOException e) {
+            log.warn("failed to serialize disk cache " + name + " entry: " + key, e);
+            return;
+        }
+        writer.execute(() -> append(key, line));
+    }
+
+    public void evict(String key) {
+        ObjectNode line = envelopeMapper.createObjectNode()
+                .put("k", key)
+                .put("t", System.currentTimeMillis());
+        writer.execute(() -> append(key, line));
+    }
+
+    public void clear() {
+        writer.execute(() -> {
+            lock.writeLock().lock();
+            try {
+                channel.truncate(0);
+                index.clear();
+                deadBytes = 0;
+            } catch (IOException e) {
+                log.warn("failed to clear disk cache " + name, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Live entries ordered by most recent write; SWR refreshes rewrite hot users' pages, so these are the hottest.
+     */
+    public CompletableFuture<List<Map.Entry<String, Object>>> hottest(int limit) {
+        return CompletableFuture.supplyAsync(() -> index.entrySet().stream()
+                .filter(entry -> !isExpired(entry.getValue()))
+                .sorted(Comparator.comparingLong((Map.Entry<String, Location> entry) -> entry.getValue().writtenAt()).reversed())
+                .limit(limit)
+                .map(entry -> get(entry.getKey()).map(value -> Map.entry(entry.getKey(), value)))
+                .flatMap(Optional::stream)
+                .toList(), writer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(true);
+        channel.close();
+    }
+
+    private void scan() {
+        long offset = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                line.write(b);
+                if (b == '\n') {
+                    index(line.toByteArray(), offset);
+                    offset += line.size();
+                    line.reset();
+                }
+            }
+            if (line.size() > 0) {
+                // a torn write from a crash, drop it so the next append starts on a line boundary
+                channel.truncate(offset);
+            }
+            log.info("loaded " + index.size() + " entries from disk cache " + name);
+        } catch (IOException e) {
+            log.warn("failed to load disk cache " + name, e);
+        }
+    }
+
+    private void index(byte[] bytes, long offset) {
+        try {
+            JsonNode line = envelopeMapper.readTree(bytes);
+            Location previous = line.has("v")
+                    ? index.put(line.get("k").asText(), new Location(offset, bytes.length, line.get("t").asLong()))
+                    : index.remove(line.get("k").asText());
+            deadBytes += previous == null ? 0 : previous.length();
+            deadBytes += line.has("v") ? 0 : bytes.length;
+        } catch (IOException e) {
+            deadBytes += bytes.length;
+        }
+    }
+
+    private void append(String key, ObjectNode line) {
+        try {
+            byte[] bytes = (envelopeMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+            long offset = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            Location previous = line.has("v")
+                    ? index.put(key, new Location(offset, bytes.length, line.get("t").asLong()))
+                    : index.remove(key);
+            deadBytes += previous == null ? 0 : previous.length();
+            deadBytes += line.has("v") ? 0 : bytes.length;
+            long size = channel.size();
+            if (size > COMPACTION_MIN_BYTES && deadBytes > size * compactionRatio) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.warn("failed to write disk cache " + name + " entry: " + key, e);
+        }
+    }
+
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compacting");
+        Map<String, Location> compactedIndex = new ConcurrentHashMap<>();
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                if (isExpired(location)) {
+                    continue;
+                }
+                ByteBuffer buffer = readBytes(location);
+                long offset = target.position();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                compactedIndex.put(entry.getKey(), new Location(offset, location.length(), location.writtenAt()));
+            }
+            target.force(true);
+        }
+        lock.writeLock().lock();
+        try {
+            channel.close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = open(file);
+            index.clear();
+            index.putAll(compactedIndex);
+            deadBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("compacted disk cache " + name + " to " + compactedIndex.size() + " entries");
+    }
+
+    private JsonNode read(Location location) throws IOException {
+        return envelopeMapper.readTree(readBytes(location).array());
+    }
+
+    private ByteBuffer readBytes(Location location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.length());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, location.offset() + buffer.position()) < 0) {
+                throw new IOException("unexpected end of disk cache " + name);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private boolean isExpired(Location location) {
+        return System.currentTimeMillis() - location.writtenAt() > expireAfterWriteMillis;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.cache;
+
+import org.springframework.cache.Cache;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Adapts a Spring {@link Cache} of this instance; Caffeine lookups never block, so no scheduler hop is needed
+ * unless a {@link TieredCache} may fall through to positional file reads, those run on the bounded elastic pool.
+ */
+public class LocalReactiveCache implements ReactiveCache {
+    private final Cache cache;
+    private final boolean blockingReads;
+
+    public LocalReactiveCache(Cache cache) {
+        this.cache = cache;
+        Cache target = cache instanceof MeteredCache metered ? metered.getTargetCache() : cache;
+        this.blockingReads = target instanceof TieredCache;
+    }
+
+    @Override
+    public String getName() {
+        return cache.getName();
+    }
+
+    @Override
+    public <T> Mono<T> get(String key, Class<T> type) {
+        Mono<T> lookup = Mono.fromSupplier(() -> cache.get(key, type));
+        return blockingReads ? lookup.subscribeOn(Schedulers.boundedElastic()) : lookup;
+    }
+
+    @Override
+    public Mono<Void> put(String key, Object value) {
+        return Mono.fromRunnable(() -> cache.put(key, value));
+    }
+
+    @Override
+    public Mono<Void> evict(String key) {
+        return Mono.fromRunnable(() -> cache.evict(key));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@ConditionalOnProperty(name = "cache.remote.enabled", havingValue = "false", matchIfMissing = true)
+public class LocalReactiveCacheManager implements ReactiveCacheManager {
+    private final CacheManager cacheManager;
+    private final Map<String, ReactiveCache> caches = new ConcurrentHashMap<>();
+
+    public LocalReactiveCacheManager(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public ReactiveCache getCache(String name) {
+        return caches.computeIfAbsent(name, key -> new LocalReactiveCache(cacheManager.getCache(name)));
+    }
+}
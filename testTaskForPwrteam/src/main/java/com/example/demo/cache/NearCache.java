@@ -0,0 +1,72 @@
+package com.example.demo.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.BiFunction;
+
+/**
+ * Local cache in front of the shared remote one. Reads fall through to the remote tier and fill the local one;
+ * writes go to both and are broadcast so other replicas drop their now outdated local copy.
+ * Remote reads are bounded by a short timeout and remote writes are fire-and-forget, so a slow or failing
+ * remote tier degrades to local-only caching instead of holding up or failing the request. The remote writes of
+ * every near cache sharing one {@link RemoteWriteQueue} reach the shared tier per key in the order they were made.
+ */
+@Slf4j
+public class NearCache implements ReactiveCache {
+    private final ReactiveCache near;
+    private final ReactiveCache remote;
+    private final BiFunction<String, String, Mono<Void>> invalidation;
+    private final Duration timeout;
+    private final RemoteWriteQueue remoteWrites;
+
+    NearCache(ReactiveCache near, ReactiveCache remote, BiFunction<String, String, Mono<Void>> invalidation,
+              Duration timeout, RemoteWriteQueue remoteWrites) {
+        this.near = near;
+        this.remote = remote;
+        this.invalidation = invalidation;
+        this.timeout = timeout;
+        this.remoteWrites = remoteWrites;
+    }
+
+    @Override
+    public String getName() {
+        return near.getName();
+    }
+
+    @Override
+    public <T> Mono<T> get(String key, Class<T> type) {
+        return near.get(key, type)
+                .switchIfEmpty(Mono.defer(() -> remote.get(key, type)
+                        .timeout(timeout)
+                        .onErrorResume(throwable -> remoteFailed("read", key, throwable))
+                        .flatMap(value -> near.put(key, value).thenReturn(value))));
+    }
+
+    @Override
+    public Mono<Void> put(String key, Object value) {
+        return near.put(key, value)
+                .doOnSuccess(ignored -> inBackground("write", key, true, remote.put(key, value)));
+    }
+
+    @Override
+    public Mono<Void> evict(String key) {
+        return near.evict(key)
+                .doOnSuccess(ignored -> inBackground("evict", key, false, remote.evict(key)));
+    }
+
+    // the local tier already answers for this replica, the shared tier and the broadcast catch up behind it
+    private void inBackground(String operation, String key, boolean write, Mono<Void> remoteOperation) {
+        remoteWrites.submit(key, write, remoteOperation
+                .then(Mono.defer(() -> invalidation.apply(getName(), key)))
+                .timeout(timeout)
+                .thenReturn(true)
+                .onErrorResume(throwable -> remoteFailed(operation, key, throwable).thenReturn(false)));
+    }
+
+    private <T> Mono<T> remoteFailed(String operation, String key, Throwable throwable) {
+        log.warn("remote cache " + getName() + " " + operation + " failed for key: " + key, throwable);
+        return Mono.empty();
+    }
+}
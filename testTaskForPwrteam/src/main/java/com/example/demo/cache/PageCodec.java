@@ -0,0 +1,55 @@
+package com.example.demo.cache;
+
+import com.example.demo.problem.ServiceException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+@Setter
+public class PageCodec {
+    private static final int COMPRESSION_MIN_BYTES = 512;
+
+    @Value("${cache.pages.compress}")
+    private boolean compress;
+    private final ObjectMapper objectMapper;
+
+    public PageCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public CompactPage encode(List<?> items) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(items);
+            if (!compress || json.length < COMPRESSION_MIN_BYTES) {
+                return new CompactPage(json, false, items.size());
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return new CompactPage(compressed.toByteArray(), true, items.size());
+        } catch (IOException e) {
+            throw new ServiceException("Failed to encode cached page", e);
+        }
+    }
+
+    public <T> List<T> decode(CompactPage page, Class<T> type) {
+        try (InputStream in = page.compressed()
+                ? new GZIPInputStream(new ByteArrayInputStream(page.bytes()))
+                : new ByteArrayInputStream(page.bytes())) {
+            return objectMapper.readValue(in, objectMapper.getTypeFactory().constructCollectionType(List.class, type));
+        } catch (IOException e) {
+            throw new ServiceException("Failed to decode cached page", e);
+        }
+    }
+}
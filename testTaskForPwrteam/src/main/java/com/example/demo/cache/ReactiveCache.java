@@ -0,0 +1,17 @@
+package com.example.demo.cache;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking store for cached GitHub data, a miss completes empty.
+ */
+public interface ReactiveCache {
+
+    String getName();
+
+    <T> Mono<T> get(String key, Class<T> type);
+
+    Mono<Void> put(String key, Object value);
+
+    Mono<Void> evict(String key);
+}
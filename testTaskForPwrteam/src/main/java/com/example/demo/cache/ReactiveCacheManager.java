@@ -0,0 +1,6 @@
+package com.example.demo.cache;
+
+public interface ReactiveCacheManager {
+
+    ReactiveCache getCache(String name);
+}
@@ -0,0 +1,62 @@
+package com.example.demo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Remote tier shared by every replica, values are stored as typed JSON under {@code <prefix><cache>:<key>}.
+ */
+@Slf4j
+public class RedisReactiveCache implements ReactiveCache {
+    private final String name;
+    private final String keyPrefix;
+    private final ReactiveRedisOperations<String, byte[]> redis;
+    private final ObjectMapper valueMapper;
+    private final Duration expireAfterWrite;
+
+    public RedisReactiveCache(String name, String keyPrefix, ReactiveRedisOperations<String, byte[]> redis,
+                              ObjectMapper valueMapper, Duration expireAfterWrite) {
+        this.name = name;
+        this.keyPrefix = keyPrefix + name + ":";
+        this.redis = redis;
+        this.valueMapper = valueMapper;
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public <T> Mono<T> get(String key, Class<T> type) {
+        return redis.opsForValue().get(keyPrefix + key)
+                .handle((bytes, sink) -> {
+                    try {
+                        Object value = valueMapper.readValue(bytes, Object.class);
+                        if (type.isInstance(value)) {
+                            sink.next(type.cast(value));
+                        }
+                    } catch (IOException e) {
+                        log.warn("skipping unreadable remote cache " + name + " entry: " + key, e);
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Void> put(String key, Object value) {
+        return Mono.fromCallable(() -> CacheValueMapper.writer(valueMapper).writeValueAsBytes(value))
+                .flatMap(bytes -> redis.opsForValue().set(keyPrefix + key, bytes, expireAfterWrite))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> evict(String key) {
+        return redis.delete(keyPrefix + key).then();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the page, ETag, next-uri, last-uri, branch snapshot and negative caches between replicas through Redis, each behind a local near cache.
+ * Writes are announced on an invalidation channel as {@code <instance>\n<cache>\n<key>} and every other
+ * replica evicts that key locally, so all of them converge on one set of ETags.
+ */
+@Slf4j
+@Setter
+@Component
+@ConditionalOnProperty(name = "cache.remote.enabled", havingValue = "true")
+public class RedisReactiveCacheManager implements ReactiveCacheManager {
+    private static final Set<String> SHARED_CACHES = Set.of("pages", "etags", "nextUris", "lastUris", "branchSnapshots",
+            "negative");
+
+    @Value("${cache.remote.keyPrefix}")
+    private String keyPrefix;
+    @Value("${cache.remote.expireAfterWriteInMin}")
+    private long expireAfterWriteInMin;
+    @Value("${cache.remote.timeoutInMillis}")
+    private long timeoutInMillis;
+    @Value("${cache.negative.expireAfterWriteInSec}")
+    private long negativeExpireAfterWriteInSec;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final CacheManager cacheManager;
+    private final ReactiveRedisConnectionFactory connectionFactory;
+    private final ReactiveRedisTemplate<String, byte[]> redis;
+    private final ObjectMapper valueMapper;
+    private final Map<String, ReactiveCache> caches = new ConcurrentHashMap<>();
+    // one for all caches, a page and its ETag share their key
+    private final RemoteWriteQueue remoteWrites = new RemoteWriteQueue();
+    private ReactiveRedisMessageListenerContainer listenerContainer;
+    private Disposable invalidations;
+    private Mono<Void> subscribed;
+
+    public RedisReactiveCacheManager(CacheManager cacheManager, ReactiveRedisConnectionFactory connectionFactory,
+                                     ObjectMapper objectMapper) {
+        this.cacheManager = cacheManager;
+        this.connectionFactory = connectionFactory;
+        this.redis = new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext
+                .<String, byte[]>newSerializationContext(RedisSerializer.string())
+                .value(RedisSerializer.byteArray())
+                .build());
+        this.valueMapper = CacheValueMapper.typed(objectMapper);
+    }
+
+    @PostConstruct
+    public void postConstruct() {
+        listenerContainer = new ReactiveRedisMessageListenerContainer(connectionFactory);
+        subscribed = listenerContainer.receiveLater(ChannelTopic.of(invalidationChannel()))
+                .doOnNext(messages -> invalidations = messages
+                        .subscribe(message -> invalidateLocally(message.getMessage()),
+                                throwable -> log.warn("cache invalidation channel failed", throwable)))
+                .then()
+                .doOnError(throwable -> log.warn("failed to subscribe to cache invalidations", throwable))
+                .cache();
+        // without the channel replicas still share the remote tier, their near caches just expire on their own
+        subscribed.onErrorComplete().subscribe();
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        if (invalidations != null) {
+            invalidations.dispose();
+        }
+        listenerContainer.destroy();
+    }
+
+    @Override
+    public ReactiveCache getCache(String name) {
+        return caches.computeIfAbsent(name, key -> {
+            LocalReactiveCache near = new LocalReactiveCache(cacheManager.getCache(name));
+            if (!SHARED_CACHES.contains(name)) {
+                return near;
+            }
+            // known 404s and empty pages must not outlive their short local expiry in the shared tier
+            Duration ttl = name.equals("negative")
+                    ? Duration.ofSeconds(negativeExpireAfterWriteInSec)
+                    : Duration.ofMinutes(expireAfterWriteInMin);
+            RedisReactiveCache remote = new RedisReactiveCache(name, keyPrefix, redis, valueMapper, ttl);
+            return new NearCache(near, remote, this::publishInvalidation, Duration.ofMillis(timeoutInMillis), remoteWrites);
+        });
+    }
+
+    /**
+     * Completes once this replica listens for invalidations.
+     */
+    public Mono<Void> subscribed() {
+        return subscribed;
+    }
+
+    private Mono<Void> publishInvalidation(String name, String key) {
+        return redis.convertAndSend(invalidationChannel(), String.join("\n", instanceId, name, key).getBytes(StandardCharsets.UTF_8))
+                .then();
+    }
+
+    private void invalidateLocally(String message) {
+        String[] parts = message.split("\n", 3);
+        if (parts.length < 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(parts[1]);
+        if (cache != null) {
+            cache.evict(parts[2]);
+        }
+    }
+
+    private String invalidationChannel() {
+        return keyPrefix + "invalidations";
+    }
+}
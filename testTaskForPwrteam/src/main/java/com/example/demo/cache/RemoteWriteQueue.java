@@ -0,0 +1,26 @@
+package com.example.demo.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the near caches' background remote operations one key at a time, across caches, in the order they were
+ * issued. A write is dropped when the operation before it on the same key failed, so a page's ETag never reaches
+ * the shared tier without the page, and another replica never pairs a new ETag with an old page.
+ */
+class RemoteWriteQueue {
+    // the outcome of the last operation issued per key, dropped once it finished without a successor
+    private final Map<String, Mono<Boolean>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * @param operation emits whether it succeeded and never fails
+     */
+    void submit(String key, boolean write, Mono<Boolean> operation) {
+        Mono<Boolean> next = tails.compute(key, (k, tail) -> (tail == null ? Mono.just(true) : tail)
+                .flatMap(succeeded -> succeeded || !write ? operation : Mono.just(false))
+                .cache());
+        next.subscribe(ignored -> tails.remove(key, next));
+    }
+}
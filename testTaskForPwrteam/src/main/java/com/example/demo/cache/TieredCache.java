@@ -0,0 +1,111 @@
+package com.example.demo.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Heap cache backed by a {@link DiskCacheStore}: reads go L1, then L2 (promoting hits back to L1),
+ * writes and evictions go to both.
+ */
+public class TieredCache implements Cache {
+    private final Cache heap;
+    private final DiskCacheStore disk;
+    private final Counter diskHits;
+    private final Counter diskMisses;
+
+    public TieredCache(Cache heap, DiskCacheStore disk, MeterRegistry meterRegistry) {
+        this.heap = heap;
+        this.disk = disk;
+        this.diskHits = meterRegistry.counter("cache.l2.requests", "cache", heap.getName(), "result", "hit");
+        this.diskMisses = meterRegistry.counter("cache.l2.requests", "cache", heap.getName(), "result", "miss");
+    }
+
+    @Override
+    public String getName() {
+        return heap.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return heap.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper cached = heap.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return disk.get(key.toString())
+                .map(value -> {
+                    diskHits.increment();
+                    heap.putIfAbsent(key, value);
+                    return (ValueWrapper) new SimpleValueWrapper(value);
+                })
+                .orElseGet(() -> {
+                    diskMisses.increment();
+                    return null;
+                });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper cached = get(key);
+        Object value = cached == null ? null : cached.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        try {
+            T value = valueLoader.call();
+            put(key, value);
+            return value;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        heap.put(key, value);
+        if (value != null) {
+            disk.put(key.toString(), value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        heap.evict(key);
+        disk.evict(key.toString());
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+        disk.clear();
+    }
+
+    /**
+     * Reloads the most recently written entries into the heap tier without overwriting anything fresher.
+     */
+    public CompletableFuture<Void> warm(int entries) {
+        return disk.load()
+                .thenCompose(ignored -> disk.hottest(entries))
+                .thenAccept(hottest -> hottest.forEach(entry -> heap.putIfAbsent(entry.getKey(), entry.getValue())));
+    }
+}
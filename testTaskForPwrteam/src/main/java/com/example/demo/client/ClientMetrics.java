@@ -0,0 +1,78 @@
+package com.example.demo.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Times every outbound attempt as github.client.requests, tagged by what it fetched and how GitHub answered,
+ * and counts it against the inbound request that put an {@link #OUTBOUND_CALLS} counter into the context.
+ */
+@Component
+public class ClientMetrics {
+    public static final String OUTBOUND_CALLS = "outboundCalls";
+    public static final String REPO = "repo";
+    public static final String BRANCH = "branch";
+
+    private final MeterRegistry meterRegistry;
+
+    public ClientMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Wraps a single attempt, resubscribing it on retry records the next attempt separately.
+     */
+    public <T> Mono<T> timed(Mono<T> attempt, String type, Function<T, HttpStatusCode> status) {
+        return Mono.deferContextual(context -> {
+            countOutbound(context.getOrDefault(OUTBOUND_CALLS, null));
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return attempt
+                    .doOnNext(value -> sample.stop(timer(type, status(status.apply(value)))))
+                    .doOnError(throwable -> sample.stop(timer(type, status(throwable))));
+        });
+    }
+
+    public <T> Flux<T> timed(Flux<T> attempt, String type) {
+        return Flux.deferContextual(context -> {
+            countOutbound(context.getOrDefault(OUTBOUND_CALLS, null));
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return attempt
+                    .doOnComplete(() -> sample.stop(timer(type, "200")))
+                    .doOnError(throwable -> sample.stop(timer(type, status(throwable))));
+        });
+    }
+
+    public void retried(String type) {
+        meterRegistry.counter("github.client.retries", "type", type).increment();
+    }
+
+    private void countOutbound(AtomicInteger outboundCalls) {
+        if (outboundCalls != null) {
+            outboundCalls.incrementAndGet();
+        }
+    }
+
+    private Timer timer(String type, String status) {
+        return Timer.builder("github.client.requests")
+                .tags("type", type, "status", status)
+                .register(meterRegistry);
+    }
+
+    // 200 and 304 are the answers that matter for caching, everything else is grouped by class
+    private static String status(HttpStatusCode statusCode) {
+        int value = statusCode.value();
+        return value == 200 || value == 304 ? String.valueOf(value) : value / 100 + "xx";
+    }
+
+    private static String status(Throwable throwable) {
+        return throwable instanceof WebClientResponseException e ? status(e.getStatusCode()) : "io_error";
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.client;
+
+import com.example.demo.problem.RetryExhaustedException;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+
+final class ClientRetry {
+
+    private ClientRetry() {
+    }
+
+    static RetryBackoffSpec backoff(int maxRetryAttempts, int minBackOff, int maxBackoffInSeconds, String uri, Class<?> responseType) {
+        return Retry.backoff(maxRetryAttempts, Duration.ofMillis(minBackOff))
+                .maxBackoff(Duration.ofSeconds(maxBackoffInSeconds))  // Maximum backoff per retry
+                .filter(throwable ->
+                        throwable instanceof ReadTimeoutException ||
+                                throwable instanceof ConnectTimeoutException ||
+                                throwable instanceof WebClientRequestException ||
+                                isSecondaryRateLimit(throwable)
+                )
+                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
+                    Throwable lastThrowable = retrySignal.failure();
+                    throw new RetryExhaustedException("Retries exhausted: " + retrySignal.totalRetriesInARow() +
+                            " attempts", lastThrowable, uri, responseType);
+                });
+    }
+
+    // the retried attempt goes back through RateLimitScheduler, which holds it until Retry-After has passed
+    static boolean isSecondaryRateLimit(Throwable throwable) {
+        return throwable instanceof WebClientResponseException e &&
+                (e.getStatusCode().value() == 403 || e.getStatusCode().value() == 429) &&
+                e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER) != null;
+    }
+}
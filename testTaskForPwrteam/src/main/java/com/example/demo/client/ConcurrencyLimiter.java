@@ -0,0 +1,307 @@
+package com.example.demo.client;
+
+import com.example.demo.problem.ServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caps the GitHub calls in flight with a limit that adapts AIMD-style: it grows by one per round trip while latency
+ * stays within {@code latencyTolerance} of the no-load baseline and the limit is actually used, shrinks by a tenth
+ * when latency grows past it, and halves on a secondary rate limit or a timeout. Calls over the limit wait in FIFO
+ * order in a bounded queue. The {@link #DEADLINE} of the inbound request bounds only that wait: a call that would
+ * still be queued when it passes is rejected, while calls that got their slot and responses that are already
+ * streaming run to the end. Pipelines shared by several requests hold each subscriber to its own deadline through
+ * {@link Waits}.
+ */
+@Component
+public class ConcurrencyLimiter {
+    public static final String DEADLINE = "deadlineMillis";
+    private static final String WAITS = "concurrencyWaits";
+
+    private static final double SMOOTHING = 0.2;
+    // lets the baseline follow GitHub when it gets slower for good, e.g. at a busier time of day
+    private static final double BASELINE_DRIFT = 0.01;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double DROP_BACKOFF = 0.5;
+
+    @Setter
+    @Value("#{gitHubConfig.client.concurrencyInitialLimit}")
+    private int initialLimit = 8;
+    @Setter
+    @Value("#{gitHubConfig.client.concurrencyMinLimit}")
+    private int minLimit = 2;
+    @Setter
+    @Value("#{gitHubConfig.client.concurrencyMaxLimit}")
+    private int maxLimit = 64;
+    @Setter
+    @Value("#{gitHubConfig.client.concurrencyMaxQueue}")
+    private int maxQueue = 256;
+    @Setter
+    @Value("#{gitHubConfig.client.concurrencyLatencyTolerance}")
+    private double latencyTolerance = 2.0;
+
+    private final Deque<Sinks.Empty<Void>> queue = new ArrayDeque<>();
+    private final Counter queueFullRejections;
+    private final Counter deadlineRejections;
+    private double limit;
+    private int inFlight;
+    private double baselineRttNanos;
+    private double smoothedRttNanos;
+
+    public ConcurrencyLimiter(MeterRegistry meterRegistry) {
+        Gauge.builder("github.client.concurrency.limit", this, ConcurrencyLimiter::limit).register(meterRegistry);
+        Gauge.builder("github.client.concurrency.inflight", this, ConcurrencyLimiter::inFlight).register(meterRegistry);
+        Gauge.builder("github.client.concurrency.queued", this, ConcurrencyLimiter::queued).register(meterRegistry);
+        this.queueFullRejections = meterRegistry.counter("github.client.concurrency.rejections", "reason", "queue_full");
+        this.deadlineRejections = meterRegistry.counter("github.client.concurrency.rejections", "reason", "deadline");
+    }
+
+    /**
+     * Runs {@code call} once a slot is free; every subscription, so every retry, takes a slot of its own.
+     * It is rejected if it would still wait for the slot when the {@link #DEADLINE} in its context passes.
+     */
+    public <T> Mono<T> limited(Mono<T> call) {
+        return Mono.deferContextual(context -> acquire(context.<Waits>getOrEmpty(WAITS),
+                        context.getOrDefault(DEADLINE, Long.MAX_VALUE)))
+                .then(Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    long[] rttNanos = {-1};
+                    AtomicReference<Throwable> failure = new AtomicReference<>();
+                    return call
+                            .doOnNext(value -> rttNanos[0] = System.nanoTime() - start)
+                            .doOnError(failure::set)
+                            .doFinally(signal -> release(signal, rttNanos[0], failure.get()));
+                }));
+    }
+
+    /**
+     * The context of a pipeline shared by several subscribers. The calls in it no longer wait for the first
+     * subscriber's deadline but report their waits to {@code waits}, which each subscriber's view watches through
+     * {@link #withinDeadline(Flux, Waits)}.
+     */
+    public static Context sharedBy(Context context, Waits waits) {
+        return context.delete(DEADLINE).put(WAITS, waits);
+    }
+
+    public <T> Mono<T> withinDeadline(Mono<T> view, Waits waits) {
+        return Mono.from(withinDeadline(view.flux(), waits));
+    }
+
+    /**
+     * The view of one subscriber on a pipeline shared through {@code waits}. It fails once the subscriber's
+     * {@link #DEADLINE} has passed while a call of the pipeline waits for a slot, just like the call would on its own,
+     * and is never cut short while the calls run or stream. Only this subscriber is cancelled, the pipeline carries
+     * on for the others. When the subscriber is itself part of a shared pipeline, the waits are passed on to it.
+     */
+    public <T> Flux<T> withinDeadline(Flux<T> view, Waits waits) {
+        return Flux.deferContextual(context -> {
+            Flux<T> forwarded = context.<Waits>getOrEmpty(WAITS)
+                    .filter(outer -> outer != waits)
+                    .map(outer -> view.doOnSubscribe(subscription -> waits.forwardTo(outer))
+                            .doFinally(signal -> waits.stopForwardingTo(outer)))
+                    .orElse(view);
+            long deadlineMillis = context.getOrDefault(DEADLINE, Long.MAX_VALUE);
+            if (deadlineMillis == Long.MAX_VALUE) {
+                return forwarded;
+            }
+            // re-armed after every item, so a wait for a later page still counts once the first ones streamed
+            return forwarded.timeout(waitingPast(deadlineMillis, waits), item -> waitingPast(deadlineMillis, waits),
+                    Flux.error(() -> rejected(deadlineRejections, "deadline of the request passed while waiting")));
+        });
+    }
+
+    public synchronized double limit() {
+        if (limit == 0) {
+            limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        }
+        return limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    private Mono<Void> acquire(Optional<Waits> waits, long deadlineMillis) {
+        Sinks.Empty<Void> permit = Sinks.empty();
+        long remainingMillis = deadlineMillis - System.currentTimeMillis();
+        synchronized (this) {
+            if (queue.isEmpty() && inFlight < limit()) {
+                inFlight++;
+                return Mono.empty();
+            }
+            if (queue.size() >= maxQueue) {
+                return Mono.error(() -> rejected(queueFullRejections, maxQueue + " GitHub calls are already waiting"));
+            }
+            if (remainingMillis <= 0) {
+                return Mono.error(() -> rejected(deadlineRejections, "deadline of the request has passed"));
+            }
+            queue.add(permit);
+        }
+        waits.ifPresent(shared -> shared.change(1));
+        Mono<Void> granted = permit.asMono()
+                .doOnCancel(() -> abandon(permit))
+                .doFinally(signal -> waits.ifPresent(shared -> shared.change(-1)));
+        return deadlineMillis == Long.MAX_VALUE
+                ? granted
+                : granted.timeout(Duration.ofMillis(remainingMillis),
+                        Mono.error(() -> rejected(deadlineRejections, "deadline of the request passed while waiting")));
+    }
+
+    private static Mono<Void> waitingPast(long deadlineMillis, Waits waits) {
+        return Mono.delay(Duration.ofMillis(Math.max(0, deadlineMillis - System.currentTimeMillis())))
+                .then(waits.waiting());
+    }
+
+    private void abandon(Sinks.Empty<Void> permit) {
+        synchronized (this) {
+            if (queue.remove(permit)) {
+                return;
+            }
+            // granted by drain just before the cancellation arrived, hand the slot on
+            inFlight--;
+        }
+        drain();
+    }
+
+    private void release(SignalType signal, long rttNanos, Throwable failure) {
+        synchronized (this) {
+            if (failure != null && isDrop(failure)) {
+                limit = Math.max(minLimit, limit() * DROP_BACKOFF);
+            } else if (signal != SignalType.CANCEL && rttNanos > 0) {
+                sample(rttNanos);
+            }
+            inFlight--;
+        }
+        drain();
+    }
+
+    private void sample(long rttNanos) {
+        if (baselineRttNanos == 0 || rttNanos < baselineRttNanos) {
+            baselineRttNanos = rttNanos;
+        } else {
+            baselineRttNanos += (rttNanos - baselineRttNanos) * BASELINE_DRIFT;
+        }
+        smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos : smoothedRttNanos + (rttNanos - smoothedRttNanos) * SMOOTHING;
+        double current = limit();
+        if (smoothedRttNanos > baselineRttNanos * latencyTolerance) {
+            limit = Math.max(minLimit, current * LATENCY_BACKOFF);
+        } else if (inFlight * 2 >= current) {
+            // only grow a limit that is in use, otherwise a quiet period would leave it far above what GitHub takes
+            limit = Math.min(maxLimit, current + 1 / current);
+        }
+    }
+
+    private void drain() {
+        List<Sinks.Empty<Void>> granted = new ArrayList<>();
+        synchronized (this) {
+            while (!queue.isEmpty() && inFlight < limit()) {
+                granted.add(queue.poll());
+                inFlight++;
+            }
+        }
+        granted.forEach(Sinks.Empty::tryEmitEmpty);
+    }
+
+    private static ServiceException rejected(Counter counter, String reason) {
+        counter.increment();
+        return new ServiceException("Too many concurrent GitHub calls", new RejectedExecutionException(reason));
+    }
+
+    // secondary rate limits and timeouts mean GitHub is overloaded, a plain 403 does not; WebClient may wrap the timeouts
+    private static boolean isDrop(Throwable throwable) {
+        if (ClientRetry.isSecondaryRateLimit(throwable)) {
+            return true;
+        }
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ReadTimeoutException || cause instanceof ConnectTimeoutException ||
+                    cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The calls of one shared pipeline waiting for a slot. It passes its count on to the shared pipelines subscribed
+     * to it, so a page fetch shared by two user pipelines counts for both. Wakeups are signalled outside the locks,
+     * which are only ever taken from a pipeline towards the ones subscribed to it.
+     */
+    public static final class Waits {
+        private final List<Waits> observers = new ArrayList<>();
+        private final List<Sinks.Empty<Void>> wakeups = new ArrayList<>();
+        private int waiting;
+
+        private void change(int delta) {
+            List<Sinks.Empty<Void>> woken = new ArrayList<>();
+            add(delta, woken);
+            woken.forEach(Sinks.Empty::tryEmitEmpty);
+        }
+
+        private void forwardTo(Waits observer) {
+            List<Sinks.Empty<Void>> woken = new ArrayList<>();
+            synchronized (this) {
+                observers.add(observer);
+                observer.add(waiting, woken);
+            }
+            woken.forEach(Sinks.Empty::tryEmitEmpty);
+        }
+
+        private synchronized void stopForwardingTo(Waits observer) {
+            if (observers.remove(observer)) {
+                observer.add(-waiting, new ArrayList<>());
+            }
+        }
+
+        private synchronized void add(int delta, List<Sinks.Empty<Void>> woken) {
+            waiting += delta;
+            if (waiting > 0) {
+                woken.addAll(wakeups);
+                wakeups.clear();
+            }
+            observers.forEach(observer -> observer.add(delta, woken));
+        }
+
+        // completes as soon as a call waits for a slot, right away if one already does
+        private Mono<Void> waiting() {
+            return Mono.defer(() -> {
+                Sinks.Empty<Void> wakeup = Sinks.empty();
+                synchronized (this) {
+                    if (waiting > 0) {
+                        return Mono.empty();
+                    }
+                    wakeups.add(wakeup);
+                }
+                return wakeup.asMono().doOnCancel(() -> {
+                    synchronized (this) {
+                        wakeups.remove(wakeup);
+                    }
+                });
+            });
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.client;
+
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import reactor.core.publisher.Flux;
+
+public interface GitHubBranchClient {
+    Flux<GitHubBranch> fetchBranches(GitHubRepo repo);
+}
@@ -0,0 +1,95 @@
+package com.example.demo.client;
+
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.problem.NotFoundException;
+import com.example.demo.problem.UnauthorizedException;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+/**
+ * Lists branches from the git smart-HTTP ref advertisement, one request per repository
+ * and outside of the REST rate limit.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "github.branchSource", havingValue = "smart-http")
+@Setter
+public class GitHubBranchClientSmartHttp implements GitHubBranchClient {
+    private static final String HEADS_PREFIX = "refs/heads/";
+
+    @Value("#{gitHubConfig.gitBaseUrl}")
+    private String gitBaseUrl;
+    @Value("#{gitHubConfig.client.maxRetryAttempts}")
+    private int maxRetryAttempts;
+    @Value("#{gitHubConfig.client.minBackOff}")
+    private int minBackOff;
+    @Value("#{gitHubConfig.client.maxBackoffInSeconds}")
+    private int maxBackoffInSeconds;
+    private final WebClient gitWebClient;
+    private final ClientMetrics clientMetrics;
+
+    public GitHubBranchClientSmartHttp(@Qualifier("gitWebClient") WebClient gitWebClient, ClientMetrics clientMetrics) {
+        this.gitWebClient = gitWebClient;
+        this.clientMetrics = clientMetrics;
+    }
+
+    String constructRefsUri(GitHubRepo repo) {
+        return gitBaseUrl + "/" + repo.getOwner().getLogin() + "/" + repo.getName() + ".git/info/refs?service=git-upload-pack";
+    }
+
+    public Flux<GitHubBranch> fetchBranches(GitHubRepo repo) {
+        String uri = constructRefsUri(repo);
+        Retry retrySpec = ClientRetry.backoff(maxRetryAttempts, minBackOff, maxBackoffInSeconds, uri, GitHubBranch.class)
+                .doBeforeRetry(signal -> clientMetrics.retried(ClientMetrics.BRANCH));
+
+        return Flux.defer(() -> {
+                    PktLineDecoder decoder = new PktLineDecoder();
+                    return clientMetrics.timed(gitWebClient.get()
+                            .uri(uri)
+                            .retrieve()
+                            .bodyToFlux(DataBuffer.class), ClientMetrics.BRANCH)
+                            .concatMapIterable(decoder::decode);
+                })
+                .retryWhen(retrySpec)
+                .onErrorMap(WebClientResponseException.class, this::mapResponseException)
+                .mapNotNull(this::toBranch);
+    }
+
+    private Throwable mapResponseException(WebClientResponseException exception) {
+        int status = exception.getStatusCode().value();
+        if (status == 401) {
+            return new UnauthorizedException("failed  authorization on github, please check your token ", exception);
+        } else if (status == 404) {
+            return new NotFoundException("resource which you trying to obtain does not exist", exception);
+        }
+        return exception;
+    }
+
+    private GitHubBranch toBranch(String line) {
+        if (line.startsWith("#")) {
+            return null;
+        }
+        int end = line.indexOf('\0');
+        String ref = (end >= 0 ? line.substring(0, end) : line).stripTrailing();
+        int separator = ref.indexOf(' ');
+        if (separator < 0 || !ref.startsWith(HEADS_PREFIX, separator + 1)) {
+            return null;
+        }
+        GitHubBranch.Commit commit = new GitHubBranch.Commit();
+        commit.setSha(ref.substring(0, separator));
+        GitHubBranch branch = new GitHubBranch();
+        branch.setName(ref.substring(separator + 1 + HEADS_PREFIX.length()));
+        branch.setCommit(commit);
+        return branch;
+    }
+}
@@ -5,5 +5,9 @@ import reactor.core.publisher.Mono;
 
 public interface GitHubClient {
     String constructRepoUri(String username);
-    <T> Mono<Page<T>> fetchPage(String uri, String pageEtag, Class<T> responseType);
+    String constructBranchesUrl(String owner, String repoName);
+    /**
+     * Reads one page, {@code type} is what it holds for the client metrics, {@link ClientMetrics#REPO} or {@link ClientMetrics#BRANCH}.
+     */
+    <T> Mono<Page<T>> fetchPage(String uri, String pageEtag, Class<T> responseType, String type);
 }
@@ -1,9 +1,8 @@
 package com.example.demo.client;
 
+import com.example.demo.jfr.Events;
+import com.example.demo.jfr.PageFetchEvent;
 import com.example.demo.model.client.Page;
-import com.example.demo.problem.RetryExhaustedException;
-import io.netty.channel.ConnectTimeoutException;
-import io.netty.handler.timeout.ReadTimeoutException;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,13 +10,17 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
-import java.time.Duration;
-import java.util.List;
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @ClientVersion("1.0.0")
@@ -42,44 +45,100 @@ public class GitHubClientImplV1 implements GitHubClient {
     @Value("#{gitHubConfig.placeholderPattern}")
     private String placeholderPattern;
     private final WebClient webClient;
+    private final RateLimitScheduler rateLimitScheduler;
+    private final ClientMetrics clientMetrics;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final PageDecoder pageDecoder;
 
-    public GitHubClientImplV1(WebClient webClient) {
+    public GitHubClientImplV1(WebClient webClient, RateLimitScheduler rateLimitScheduler, ClientMetrics clientMetrics,
+                              ConcurrencyLimiter concurrencyLimiter, PageDecoder pageDecoder) {
         this.webClient = webClient;
+        this.rateLimitScheduler = rateLimitScheduler;
+        this.clientMetrics = clientMetrics;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.pageDecoder = pageDecoder;
     }
 
     public String constructRepoUri(String username) {
-        return baseUrl + endpoint.replaceAll(placeholderPattern, username) + "?per_page=" + clientPageSize;
+        return UriComponentsBuilder.fromHttpUrl(baseUrl + endpoint.replaceAll(placeholderPattern, "{username}"))
+                .queryParam("per_page", clientPageSize)
+                .encode()
+                .buildAndExpand(username)
+                .toUriString();
     }
-    public <T> Mono<Page<T>> fetchPage(String uri, String pageEtag, Class<T> responseType) {
-        Retry retrySpec = Retry.backoff(maxRetryAttempts, Duration.ofMillis(minBackOff))
-                .maxBackoff(Duration.ofSeconds(maxBackoffInSeconds))  // Maximum backoff per retry
-                .filter(throwable ->
-                        throwable instanceof ReadTimeoutException ||
-                                throwable instanceof ConnectTimeoutException ||
-                                throwable instanceof WebClientRequestException
-                )
-                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                    Throwable lastThrowable = retrySignal.failure();
-                    throw new RetryExhaustedException("Retries exhausted: " + retrySignal.totalRetriesInARow() +
-                            " attempts", lastThrowable, uri, responseType);
-                });
+
+    public String constructBranchesUrl(String owner, String repoName) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .path("/repos/{owner}/{repo}/branches")
+                .encode()
+                .buildAndExpand(owner, repoName)
+                .toUriString();
+    }
+
+    // uris arrive encoded, built above or taken from GitHub's Link headers, so they are sent as they are
+    // instead of through the WebClient's template encoding, which would encode their escapes a second time
+    public <T> Mono<Page<T>> fetchPage(String uri, String pageEtag, Class<T> responseType, String type) {
+        Retry retrySpec = ClientRetry.backoff(maxRetryAttempts, minBackOff, maxBackoffInSeconds, uri, responseType)
+                .doBeforeRetry(signal -> clientMetrics.retried(type));
 
         WebClient.RequestHeadersSpec<?> requestSpec = webClient.get()
-                .uri(uri)
+                .uri(URI.create(uri))
                 .header("X-GitHub-Api-Version", XGitHubApiVersion);
 
         if (StringUtils.hasLength(pageEtag)) {
             requestSpec.header("if-none-match", pageEtag);
         }
 
-        return requestSpec.retrieve()
-                .toEntityList(responseType)
-                .retryWhen(retrySpec)
-                .map(responseEntity -> {
-                    List<T> body = responseEntity.getBody();
+        // the page decoder binds the array element by element as the buffers arrive and skips the fields
+        // the models do not keep, so a page is never aggregated as a whole
+        Mono<Page<T>> exchange = clientMetrics.timed(recorded(requestSpec.retrieve()
+                .toEntityFlux(BodyExtractors.toDataBuffers())
+                .flatMap(responseEntity -> {
+                    Flux<T> body = pageDecoder.decode(
+                            Optional.ofNullable(responseEntity.getBody()).orElseGet(Flux::empty), responseType);
                     HttpHeaders headers = responseEntity.getHeaders();
                     HttpStatusCode statusCode = responseEntity.getStatusCode();
-                    return new Page<>(body, headers, statusCode, uri);
-                });
+                    rateLimitScheduler.update(headers);
+                    return body.collectList().map(items -> new Page<>(items, headers, statusCode, uri));
+                })
+                .doOnError(WebClientResponseException.class, e -> rateLimitScheduler.update(e.getHeaders())),
+                uri, StringUtils.hasLength(pageEtag), new AtomicInteger()), type, Page::getStatusCode);
+
+        // quota first, so a call paused for Retry-After does not hold one of the concurrency slots
+        return rateLimitScheduler.acquire()
+                .then(concurrencyLimiter.limited(exchange))
+                .retryWhen(retrySpec);
+    }
+
+    /**
+     * Emits a {@link PageFetchEvent} per attempt, {@code attempts} is shared by the attempts of one fetchPage call.
+     */
+    private <T> Mono<Page<T>> recorded(Mono<Page<T>> attempt, String uri, boolean conditional, AtomicInteger attempts) {
+        return Mono.deferContextual(context -> {
+            int attemptIndex = attempts.getAndIncrement();
+            PageFetchEvent event = new PageFetchEvent();
+            if (!event.isEnabled()) {
+                return attempt;
+            }
+            event.begin();
+            event.correlationId = Events.correlationId(context);
+            event.uriTemplate = Events.uriTemplate(uri);
+            event.pageIndex = Events.pageIndex(uri);
+            event.attempt = attemptIndex;
+            event.conditional = conditional;
+            return attempt
+                    .doOnNext(page -> {
+                        event.status = page.getStatusCode().value();
+                        event.etagHit = event.status == 304;
+                        event.bytes = page.getHeaders().getContentLength();
+                        event.items = page.getBody() == null ? 0 : page.getBody().size();
+                        event.commit();
+                    })
+                    .doOnError(throwable -> {
+                        event.status = throwable instanceof WebClientResponseException e ? e.getStatusCode().value() : 0;
+                        event.bytes = -1;
+                        event.commit();
+                    });
+        });
     }
 }
@@ -0,0 +1,130 @@
+package com.example.demo.client;
+
+import com.example.demo.model.client.graphql.GraphQlResponse;
+import com.example.demo.model.client.graphql.QueryData;
+import com.example.demo.problem.NotFoundException;
+import com.example.demo.problem.ServiceException;
+import com.example.demo.problem.UnauthorizedException;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+@ClientVersion("2.0.0")
+@Component("gitHubClientV2")
+@ConditionalOnProperty(name = "github.version", havingValue = "2.0.0")
+@Setter
+public class GitHubClientImplV2 implements GitHubGraphQlClient {
+    private static final String REPOSITORIES_QUERY = """
+            query($login: String!, $cursor: String, $pageSize: Int!, $branchPageSize: Int!) {
+              repositoryOwner(login: $login) {
+                repositories(first: $pageSize, after: $cursor, ownerAffiliations: OWNER) {
+                  pageInfo { hasNextPage endCursor }
+                  nodes {
+                    id name isFork owner { login }
+                    refs(refPrefix: "refs/heads/", first: $branchPageSize) {
+                      pageInfo { hasNextPage endCursor }
+                      nodes { name target { oid } }
+                    }
+                  }
+                }
+              }
+            }
+            """;
+    private static final String BRANCHES_QUERY = """
+            query($owner: String!, $name: String!, $cursor: String, $branchPageSize: Int!) {
+              repository(owner: $owner, name: $name) {
+                refs(refPrefix: "refs/heads/", first: $branchPageSize, after: $cursor) {
+                  pageInfo { hasNextPage endCursor }
+                  nodes { name target { oid } }
+                }
+              }
+            }
+            """;
+
+    @Value("#{gitHubConfig.baseUrl}")
+    String baseUrl;
+    @Value("#{gitHubConfig.graphqlEndpoint}")
+    String graphqlEndpoint;
+    @Value("#{gitHubConfig.client.graphqlPageSize}")
+    private int graphqlPageSize;
+    @Value("#{gitHubConfig.client.maxRetryAttempts}")
+    private int maxRetryAttempts;
+    @Value("#{gitHubConfig.client.minBackOff}")
+    private int minBackOff;
+    @Value("#{gitHubConfig.client.maxBackoffInSeconds}")
+    private int maxBackoffInSeconds;
+    private final WebClient webClient;
+    private final RateLimitScheduler rateLimitScheduler;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    public GitHubClientImplV2(WebClient webClient, RateLimitScheduler rateLimitScheduler,
+                              ConcurrencyLimiter concurrencyLimiter) {
+        this.webClient = webClient;
+        this.rateLimitScheduler = rateLimitScheduler;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public Mono<QueryData> fetchRepositories(String username, String cursor) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("login", username);
+        variables.put("cursor", cursor);
+        variables.put("pageSize", graphqlPageSize);
+        variables.put("branchPageSize", graphqlPageSize);
+        return execute(REPOSITORIES_QUERY, variables)
+                .flatMap(data -> data.getRepositoryOwner() == null
+                        ? Mono.error(new NotFoundException("resource which you trying to obtain does not exist", null))
+                        : Mono.just(data));
+    }
+
+    public Mono<QueryData> fetchBranches(String owner, String repoName, String cursor) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("owner", owner);
+        variables.put("name", repoName);
+        variables.put("cursor", cursor);
+        variables.put("branchPageSize", graphqlPageSize);
+        return execute(BRANCHES_QUERY, variables);
+    }
+
+    private Mono<QueryData> execute(String query, Map<String, Object> variables) {
+        String uri = baseUrl + graphqlEndpoint;
+        Mono<GraphQlResponse> exchange = webClient.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("query", query, "variables", variables))
+                .retrieve()
+                .toEntity(GraphQlResponse.class)
+                .doOnNext(response -> rateLimitScheduler.update(response.getHeaders()))
+                .doOnError(WebClientResponseException.class, e -> rateLimitScheduler.update(e.getHeaders()))
+                .flatMap(response -> Mono.justOrEmpty(response.getBody()));
+        // every attempt waits for quota and a concurrency slot like the REST calls do
+        return rateLimitScheduler.acquire()
+                .then(concurrencyLimiter.limited(exchange))
+                .retryWhen(ClientRetry.backoff(maxRetryAttempts, minBackOff, maxBackoffInSeconds, uri, QueryData.class))
+                .onErrorMap(WebClientResponseException.class, exception -> exception.getStatusCode().value() == 401
+                        ? new UnauthorizedException("failed  authorization on github, please check your token ", exception)
+                        : exception)
+                .flatMap(this::toData);
+    }
+
+    private Mono<QueryData> toData(GraphQlResponse response) {
+        if (response.getErrors() != null && !response.getErrors().isEmpty()) {
+            GraphQlResponse.Error error = response.getErrors().get(0);
+            if ("NOT_FOUND".equals(error.getType())) {
+                return Mono.error(new NotFoundException("resource which you trying to obtain does not exist", null));
+            }
+            return Mono.error(new ServiceException("GitHub GraphQL request failed",
+                    new IllegalStateException(error.getMessage())));
+        }
+        return Mono.justOrEmpty(response.getData());
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.client;
+
+import com.example.demo.model.client.graphql.QueryData;
+import reactor.core.publisher.Mono;
+
+public interface GitHubGraphQlClient {
+    Mono<QueryData> fetchRepositories(String username, String cursor);
+    Mono<QueryData> fetchBranches(String owner, String repoName, String cursor);
+}
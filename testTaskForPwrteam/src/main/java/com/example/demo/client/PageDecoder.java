@@ -0,0 +1,212 @@
+package com.example.demo.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes a JSON array page element by element as the buffers arrive. Only the properties the element type binds
+ * are buffered, every other field is skipped by the non-blocking parser without being copied, which is what
+ * {@code skipChildren()} does for a blocking parser. GitHub sends around eighty fields per repository and the
+ * models keep six.
+ */
+@Component
+class PageDecoder {
+    // deep enough for the models, and a stop for types that refer to themselves
+    private static final int MAX_FILTERED_DEPTH = 4;
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, Binding<?>> bindings = new ConcurrentHashMap<>();
+
+    PageDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    <T> Flux<T> decode(Flux<DataBuffer> body, Class<T> type) {
+        @SuppressWarnings("unchecked")
+        Binding<T> binding = (Binding<T>) bindings.computeIfAbsent(type,
+                ignored -> new Binding<>(objectMapper.readerFor(type), fieldsOf(objectMapper.constructType(type), 0)));
+        return Flux.defer(() -> {
+            PageReader<T> reader = new PageReader<>(binding, parser());
+            return body.concatMapIterable(reader::read)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(reader.end())));
+        });
+    }
+
+    private JsonParser parser() {
+        try {
+            return objectMapper.getFactory().createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new DecodingException("Could not create a JSON parser", e);
+        }
+    }
+
+    // beans are filtered down to their properties, anything Jackson binds on its own is kept whole
+    private Fields fieldsOf(JavaType type, int depth) {
+        if (depth == MAX_FILTERED_DEPTH || type.isContainerType() || type.isEnumType() || type.isPrimitive()
+                || type.getRawClass().getName().startsWith("java.")) {
+            return Fields.ALL;
+        }
+        BeanDescription description = objectMapper.getDeserializationConfig().introspect(type);
+        List<BeanPropertyDefinition> properties = description.findProperties();
+        if (properties.isEmpty() || description.findAnySetterAccessor() != null) {
+            return Fields.ALL;
+        }
+        Map<String, Fields> nested = new HashMap<>();
+        properties.forEach(property -> nested.put(property.getName(), fieldsOf(property.getPrimaryType(), depth + 1)));
+        return new Fields(Map.copyOf(nested));
+    }
+
+    /**
+     * The fields kept of an object, {@link #ALL} keeps an object or array as it is.
+     */
+    private record Fields(Map<String, Fields> nested) {
+        static final Fields ALL = new Fields(null);
+
+        boolean keepsAll() {
+            return nested == null;
+        }
+    }
+
+    private record Binding<T>(ObjectReader reader, Fields fields) {
+    }
+
+    /**
+     * The parse state of one response, not thread safe.
+     */
+    private static class PageReader<T> {
+        private final Binding<T> binding;
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        // the filter of every object or array open within the current element
+        private final List<Fields> open = new ArrayList<>();
+        private TokenBuffer element;
+        private Fields next;
+        // nesting of the unwanted value being skipped, -1 right after its field name
+        private int skipping;
+        private boolean started;
+        private boolean inArray;
+
+        PageReader(Binding<T> binding, JsonParser parser) {
+            this.binding = binding;
+            this.parser = parser;
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        List<T> read(DataBuffer buffer) {
+            List<T> items = new ArrayList<>();
+            try (DataBuffer.ByteBufferIterator byteBuffers = buffer.readableByteBuffers()) {
+                while (byteBuffers.hasNext()) {
+                    ByteBuffer byteBuffer = byteBuffers.next();
+                    started |= byteBuffer.hasRemaining();
+                    feeder.feedInput(byteBuffer);
+                    drain(items);
+                }
+            } catch (IOException e) {
+                throw new DecodingException("Could not decode the JSON page: " + e.getMessage(), e);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            return items;
+        }
+
+        List<T> end() {
+            List<T> items = new ArrayList<>();
+            try {
+                feeder.endOfInput();
+                drain(items);
+            } catch (IOException e) {
+                throw new DecodingException("Could not decode the JSON page: " + e.getMessage(), e);
+            }
+            if (started && (inArray || element != null)) {
+                throw new DecodingException("The JSON page ended before its array was closed");
+            }
+            return items;
+        }
+
+        private void drain(List<T> items) throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (skipping != 0) {
+                    skip(token);
+                } else if (element == null) {
+                    startElement(token, items);
+                } else {
+                    copy(token, items);
+                }
+            }
+        }
+
+        private void skip(JsonToken token) {
+            if (skipping < 0) {
+                skipping = token.isStructStart() ? 1 : 0;
+            } else if (token.isStructStart()) {
+                skipping++;
+            } else if (token.isStructEnd()) {
+                skipping--;
+            }
+        }
+
+        private void startElement(JsonToken token, List<T> items) throws IOException {
+            if (!inArray) {
+                if (token != JsonToken.START_ARRAY) {
+                    throw new DecodingException("Expected a JSON array page but got " + token);
+                }
+                inArray = true;
+                return;
+            }
+            if (token == JsonToken.END_ARRAY) {
+                inArray = false;
+                return;
+            }
+            element = new TokenBuffer(parser);
+            next = binding.fields();
+            copy(token, items);
+        }
+
+        private void copy(JsonToken token, List<T> items) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                Fields current = open.get(open.size() - 1);
+                if (!current.keepsAll() && !current.nested().containsKey(parser.currentName())) {
+                    skipping = -1;
+                    return;
+                }
+                next = current.keepsAll() ? Fields.ALL : current.nested().get(parser.currentName());
+                element.copyCurrentEvent(parser);
+                return;
+            }
+            element.copyCurrentEvent(parser);
+            if (token == JsonToken.START_OBJECT) {
+                open.add(next);
+            } else if (token == JsonToken.START_ARRAY) {
+                open.add(Fields.ALL);
+            } else if (token.isStructEnd()) {
+                open.remove(open.size() - 1);
+            }
+            next = Fields.ALL;
+            if (open.isEmpty()) {
+                items.add(binding.reader().readValue(element.asParser()));
+                element = null;
+            }
+        }
+    }
+}
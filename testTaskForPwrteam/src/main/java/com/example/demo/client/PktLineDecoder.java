@@ -0,0 +1,58 @@
+package com.example.demo.client;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a git pkt-line stream into lines as the buffers arrive. Not thread safe, one instance per response.
+ */
+class PktLineDecoder {
+    private static final int HEADER_LENGTH = 4;
+
+    private byte[] data = new byte[8192];
+    private int start;
+    private int end;
+
+    List<String> decode(DataBuffer buffer) {
+        int readable = buffer.readableByteCount();
+        ensureCapacity(readable);
+        buffer.read(data, end, readable);
+        end += readable;
+        DataBufferUtils.release(buffer);
+
+        List<String> lines = new ArrayList<>();
+        while (end - start >= HEADER_LENGTH) {
+            int length = Integer.parseInt(new String(data, start, HEADER_LENGTH, StandardCharsets.US_ASCII), 16);
+            if (length < HEADER_LENGTH) {
+                // flush-pkt and delim-pkt carry no payload
+                start += HEADER_LENGTH;
+                continue;
+            }
+            if (end - start < length) {
+                break;
+            }
+            lines.add(new String(data, start + HEADER_LENGTH, length - HEADER_LENGTH, StandardCharsets.UTF_8));
+            start += length;
+        }
+        return lines;
+    }
+
+    // only the unfinished line is moved to the front, and the buffer doubles when even that does not leave room
+    private void ensureCapacity(int incoming) {
+        if (data.length - end >= incoming) {
+            return;
+        }
+        int pending = end - start;
+        byte[] target = pending + incoming <= data.length
+                ? data
+                : new byte[Math.max(data.length * 2, pending + incoming)];
+        System.arraycopy(data, start, target, 0, pending);
+        data = target;
+        start = 0;
+        end = pending;
+    }
+}
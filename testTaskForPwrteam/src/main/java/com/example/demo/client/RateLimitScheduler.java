@@ -0,0 +1,220 @@
+package com.example.demo.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gates outbound REST and GraphQL calls on the quota the {@link TokenPool} has left and on secondary-limit Retry-After pauses.
+ * Once the remaining quota drops below the pacing threshold, the rest of it is spread evenly until the reset,
+ * and interactive requests are released before background ones. A call shared by several requests waits with the
+ * highest priority among them, see {@link SharedPriority}.
+ */
+@Slf4j
+@Component
+public class RateLimitScheduler {
+    public static final String PRIORITY = "outboundPriority";
+    private static final String SHARED_PRIORITY = "sharedOutboundPriority";
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    // the priority of a waiting call may be raised, it is only changed while the call is out of the queue
+    private static final class Pending {
+        private Priority priority;
+        private final long sequence;
+        private final Sinks.Empty<Void> permit = Sinks.empty();
+
+        private Pending(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        private Priority priority() {
+            return priority;
+        }
+
+        private long sequence() {
+            return sequence;
+        }
+    }
+
+    /**
+     * The priority of a call shared by several subscribers, the highest any of them asked for. A subscriber that
+     * {@link #raise raises} it moves the call up the queue if it is already waiting.
+     */
+    public static final class SharedPriority {
+        private final List<Pending> waiting = new ArrayList<>();
+        private Priority priority;
+        private RateLimitScheduler scheduler;
+
+        public SharedPriority(Priority priority) {
+            this.priority = priority;
+        }
+
+        public void raise(Priority requested) {
+            RateLimitScheduler current;
+            synchronized (this) {
+                if (requested.compareTo(priority) >= 0) {
+                    return;
+                }
+                priority = requested;
+                current = scheduler;
+            }
+            if (current != null) {
+                current.requeue(this);
+            }
+        }
+
+        private synchronized Priority priority() {
+            return priority;
+        }
+
+        private synchronized void queuedBy(RateLimitScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+    }
+
+    @Value("#{gitHubConfig.client.rateLimitPacingThreshold}")
+    private double pacingThreshold = 0.2;
+
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>(
+            Comparator.comparing(Pending::priority).thenComparingLong(Pending::sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final TokenPool tokenPool;
+    @Getter
+    private volatile long blockedUntilMillis;
+    private long nextSlotMillis;
+    private boolean drainScheduled;
+
+    public RateLimitScheduler(TokenPool tokenPool, MeterRegistry meterRegistry) {
+        this.tokenPool = tokenPool;
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("github.ratelimit.queue.depth", this, scheduler -> scheduler.queueDepth(priority))
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * The context of a call shared by several subscribers, it waits with {@code priority} rather than the first
+     * subscriber's {@link #PRIORITY}.
+     */
+    public static Context sharedBy(Context context, SharedPriority priority) {
+        return context.put(SHARED_PRIORITY, priority);
+    }
+
+    public Mono<Void> acquire() {
+        return Mono.deferContextual(context -> {
+            Optional<SharedPriority> shared = context.getOrEmpty(SHARED_PRIORITY);
+            Pending pending = new Pending(context.getOrDefault(PRIORITY, Priority.INTERACTIVE), sequence.incrementAndGet());
+            synchronized (this) {
+                // read under the queue's lock, so a raise either sees the call queued or the call sees the raise
+                shared.ifPresent(sharedPriority -> {
+                    pending.priority = sharedPriority.priority();
+                    sharedPriority.queuedBy(this);
+                    sharedPriority.waiting.add(pending);
+                });
+                queue.add(pending);
+            }
+            drain();
+            return pending.permit.asMono()
+                    .doFinally(signal -> {
+                        synchronized (this) {
+                            queue.remove(pending);
+                            shared.ifPresent(sharedPriority -> sharedPriority.waiting.remove(pending));
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Quota headers are tracked per token by {@link TokenPool}, only the secondary-limit pause is global.
+     */
+    public void update(HttpHeaders headers) {
+        if (headers == null) {
+            return;
+        }
+        parse(headers.getFirst(HttpHeaders.RETRY_AFTER)).ifPresent(value -> {
+            blockedUntilMillis = Math.max(blockedUntilMillis, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(value));
+            log.info("secondary rate limit hit, pausing outbound calls for " + value + " seconds");
+        });
+        drain();
+    }
+
+    private synchronized void requeue(SharedPriority shared) {
+        Priority priority = shared.priority();
+        for (Pending pending : shared.waiting) {
+            if (queue.remove(pending)) {
+                pending.priority = priority;
+                queue.add(pending);
+            }
+        }
+    }
+
+    public synchronized int queueDepth(Priority priority) {
+        return (int) queue.stream().filter(pending -> pending.priority() == priority).count();
+    }
+
+    private void drain() {
+        long delay;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            while (!queue.isEmpty() && now >= releaseAtMillis()) {
+                queue.poll().permit.tryEmitEmpty();
+                nextSlotMillis = now + pacingDelay(now);
+            }
+            if (queue.isEmpty() || drainScheduled) {
+                return;
+            }
+            drainScheduled = true;
+            delay = releaseAtMillis() - now;
+        }
+        Schedulers.parallel().schedule(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private long releaseAtMillis() {
+        return Math.max(nextSlotMillis, Math.max(blockedUntilMillis, tokenPool.exhaustedUntilMillis()));
+    }
+
+    private long pacingDelay(long now) {
+        long remaining = tokenPool.remaining();
+        long limit = tokenPool.limit();
+        long resetAtMillis = tokenPool.resetAtMillis();
+        if (remaining <= 0 || limit <= 0 || now >= resetAtMillis || remaining > limit * pacingThreshold) {
+            return 0;
+        }
+        return (resetAtMillis - now) / remaining;
+    }
+
+    private Optional<Long> parse(String value) {
+        try {
+            return value == null ? Optional.empty() : Optional.of(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
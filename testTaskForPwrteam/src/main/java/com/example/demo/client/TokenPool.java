@@ -0,0 +1,163 @@
+package com.example.demo.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Tracks the core REST quota of every configured token and hands out the one with the most requests left.
+ * Exhausted tokens sit out until their reset, a token answered with 401 is quarantined on its own.
+ */
+@Slf4j
+@Component
+public class TokenPool {
+    private static final String CORE_RESOURCE = "core";
+
+    private static final class TokenState {
+        private final String token;
+        private volatile long limit = -1;
+        private volatile long remaining = -1;
+        private volatile long resetAtMillis;
+        private volatile long quarantinedUntilMillis;
+
+        private TokenState(String token) {
+            this.token = token;
+        }
+
+        private boolean isUsable(long now) {
+            return now >= quarantinedUntilMillis && (remaining != 0 || now >= resetAtMillis);
+        }
+
+        private long availableAtMillis() {
+            return Math.max(quarantinedUntilMillis, remaining == 0 ? resetAtMillis : 0);
+        }
+    }
+
+    private final List<TokenState> tokens;
+    private final long quarantineMillis;
+
+    public TokenPool(@Value("#{gitHubConfig.tokens}") List<String> tokens,
+                     @Value("#{gitHubConfig.token}") String token,
+                     @Value("#{gitHubConfig.client.tokenQuarantineInSeconds}") long tokenQuarantineInSeconds,
+                     MeterRegistry meterRegistry) {
+        List<String> configured = CollectionUtils.isEmpty(tokens) ? List.of(token) : tokens;
+        this.tokens = configured.stream().map(TokenState::new).toList();
+        this.quarantineMillis = TimeUnit.SECONDS.toMillis(tokenQuarantineInSeconds);
+        // tokens are tagged by position so their values never reach the metrics backend
+        IntStream.range(0, this.tokens.size()).forEach(index -> {
+            TokenState state = this.tokens.get(index);
+            String tag = String.valueOf(index);
+            Gauge.builder("github.ratelimit.limit", state, s -> s.limit).tag("token", tag).register(meterRegistry);
+            Gauge.builder("github.ratelimit.remaining", state, s -> s.remaining).tag("token", tag).register(meterRegistry);
+            Gauge.builder("github.ratelimit.reset.seconds", state,
+                            s -> Math.max(0, s.resetAtMillis - System.currentTimeMillis()) / 1000.0)
+                    .tag("token", tag).register(meterRegistry);
+            Gauge.builder("github.ratelimit.quarantined", state,
+                            s -> System.currentTimeMillis() < s.quarantinedUntilMillis ? 1 : 0)
+                    .tag("token", tag).register(meterRegistry);
+        });
+    }
+
+    public String select() {
+        return select(null);
+    }
+
+    /**
+     * Picks the usable token with the most remaining quota, tokens with no known quota yet go first.
+     * When nothing is usable the token that recovers soonest is returned so the call still goes out.
+     */
+    public String select(String excluded) {
+        long now = System.currentTimeMillis();
+        return tokens.stream()
+                .filter(state -> !state.token.equals(excluded) && state.isUsable(now))
+                .max(Comparator.comparingLong(state -> state.remaining < 0 ? Long.MAX_VALUE : state.remaining))
+                .or(() -> tokens.stream()
+                        .filter(state -> !state.token.equals(excluded))
+                        .min(Comparator.comparingLong(TokenState::availableAtMillis)))
+                .orElse(tokens.get(0))
+                .token;
+    }
+
+    public boolean hasAlternative(String token) {
+        long now = System.currentTimeMillis();
+        return tokens.stream().anyMatch(state -> !state.token.equals(token) && state.isUsable(now));
+    }
+
+    public void update(String token, HttpHeaders headers) {
+        String resource = headers.getFirst("X-RateLimit-Resource");
+        if (resource != null && !CORE_RESOURCE.equals(resource)) {
+            return;
+        }
+        find(token).ifPresent(state -> {
+            parse(headers.getFirst("X-RateLimit-Limit")).ifPresent(value -> state.limit = value);
+            parse(headers.getFirst("X-RateLimit-Remaining")).ifPresent(value -> state.remaining = value);
+            parse(headers.getFirst("X-RateLimit-Reset"))
+                    .ifPresent(value -> state.resetAtMillis = TimeUnit.SECONDS.toMillis(value));
+        });
+    }
+
+    public void quarantine(String token) {
+        find(token).ifPresent(state -> {
+            state.quarantinedUntilMillis = System.currentTimeMillis() + quarantineMillis;
+            log.warn("token #" + tokens.indexOf(state) + " was rejected with 401, quarantined for "
+                    + TimeUnit.MILLISECONDS.toSeconds(quarantineMillis) + " seconds");
+        });
+    }
+
+    /**
+     * Sum of the remaining quota of usable tokens, -1 while any of them has not reported its quota yet.
+     */
+    public long remaining() {
+        long now = System.currentTimeMillis();
+        List<TokenState> usable = tokens.stream().filter(state -> state.isUsable(now)).toList();
+        if (usable.stream().anyMatch(state -> state.remaining < 0 || now >= state.resetAtMillis)) {
+            return -1;
+        }
+        return usable.stream().mapToLong(state -> state.remaining).sum();
+    }
+
+    public long limit() {
+        long now = System.currentTimeMillis();
+        return tokens.stream().filter(state -> state.isUsable(now)).mapToLong(state -> Math.max(0, state.limit)).sum();
+    }
+
+    public long resetAtMillis() {
+        long now = System.currentTimeMillis();
+        return tokens.stream().filter(state -> state.isUsable(now)).mapToLong(state -> state.resetAtMillis).max().orElse(0);
+    }
+
+    /**
+     * Moment the first token gets quota back, 0 while one is usable. Quarantined tokens do not hold calls back,
+     * so with every token rejected the 401 still reaches the caller.
+     */
+    public long exhaustedUntilMillis() {
+        long now = System.currentTimeMillis();
+        List<TokenState> trusted = tokens.stream().filter(state -> now >= state.quarantinedUntilMillis).toList();
+        if (trusted.isEmpty() || trusted.stream().anyMatch(state -> state.isUsable(now))) {
+            return 0;
+        }
+        return trusted.stream().mapToLong(state -> state.resetAtMillis).min().orElse(0);
+    }
+
+    private Optional<TokenState> find(String token) {
+        return tokens.stream().filter(state -> state.token.equals(token)).findFirst();
+    }
+
+    private Optional<Long> parse(String value) {
+        try {
+            return value == null ? Optional.empty() : Optional.of(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends every request with the token {@link TokenPool} picks and feeds the quota headers back to it.
+ * A 401 quarantines the token and the request is replayed once per remaining token;
+ * conditional headers are left untouched, since cached ETags are keyed by uri and not by token.
+ */
+@Component
+public class TokenRotationFilter implements ExchangeFilterFunction {
+    private final TokenPool tokenPool;
+
+    public TokenRotationFilter(TokenPool tokenPool) {
+        this.tokenPool = tokenPool;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> exchange(request, next, tokenPool.select()));
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, String token) {
+        ClientRequest authorized = ClientRequest.from(request)
+                .headers(headers -> headers.set(HttpHeaders.AUTHORIZATION, "token " + token))
+                .build();
+        return next.exchange(authorized)
+                .flatMap(response -> {
+                    tokenPool.update(token, response.headers().asHttpHeaders());
+                    if (response.statusCode().value() != HttpStatus.UNAUTHORIZED.value()) {
+                        return Mono.just(response);
+                    }
+                    tokenPool.quarantine(token);
+                    if (!tokenPool.hasAlternative(token)) {
+                        return Mono.just(response);
+                    }
+                    return response.releaseBody().then(exchange(request, next, tokenPool.select(token)));
+                });
+    }
+}
@@ -3,24 +3,54 @@ package com.example.demo.configuration;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
 
 @Component("gitHubConfig")
 @ConfigurationProperties(prefix = "github")
 @Data
 public class GitHubConfig {
     private String baseUrl;
+    private String gitBaseUrl;
+    private String branchSource;
     private String endpoint;
+    private String graphqlEndpoint;
+    private String version;
     private String token;
+    private List<String> tokens;
+    private String webhookSecret;
+    private DataSize webhookMaxPayloadSize;
     private String XGitHubApiVersion;
     private String linkNextPattern;
+    private String linkLastPattern;
+    private String pageNumberPattern;
     private String placeholderPattern;
     private Client client;
 
     @Data
     public static class Client {
         private int pageSize;
+        private int graphqlPageSize;
+        private int pageConcurrency;
+        private int branchConcurrency;
+        private int branchPrefetch;
+        private boolean branchOrdered;
+        private int replayHistory;
+        private int batchConcurrency;
+        private int batchMaxUsernames;
+        private int defaultLimit;
+        private int maxLimit;
+        private double rateLimitPacingThreshold;
+        private long tokenQuarantineInSeconds;
         private int connectTimeoutInMilliseconds;
         private long responseTimeoutInSeconds;
+        private long requestDeadlineInMillis;
+        private int concurrencyInitialLimit;
+        private int concurrencyMinLimit;
+        private int concurrencyMaxLimit;
+        private int concurrencyMaxQueue;
+        private double concurrencyLatencyTolerance;
         private long maxRetryAttempts;
         private long minBackOff;
         private long maxBackoffInSeconds;
@@ -0,0 +1,42 @@
+package com.example.demo.handler;
+
+import com.example.demo.problem.NotFoundException;
+import com.example.demo.problem.RetryExhaustedException;
+import com.example.demo.problem.ServiceException;
+import com.example.demo.problem.UnauthorizedException;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.resource.NoResourceFoundException;
+
+/**
+ * Status and message a failure is reported with, both by the exception handler and by the inline lines of a batch.
+ */
+public record ApiError(HttpStatus status, String message) {
+
+    public static ApiError of(Throwable ex) {
+        if (ex instanceof RetryExhaustedException re) {
+            Throwable cause = re.getCause();
+            if (cause instanceof ReadTimeoutException) {
+                return new ApiError(HttpStatus.GATEWAY_TIMEOUT, "The server took too long to respond. " + re.getUri());
+            } else if (cause instanceof ConnectTimeoutException) {
+                return new ApiError(HttpStatus.REQUEST_TIMEOUT, "Failed to establish a connection to the server. " + re.getUri());
+            } else if (cause instanceof WebClientRequestException) {
+                return new ApiError(HttpStatus.SERVICE_UNAVAILABLE,
+                        "A network error occurred while trying to reach the server. " + re.getUri());
+            }
+            return new ApiError(HttpStatus.SERVICE_UNAVAILABLE, cause.getMessage());
+        } else if (ex instanceof NoResourceFoundException) {
+            return new ApiError(HttpStatus.NOT_FOUND, "please check your path - should be in such format /users/{username}/repositories");
+        } else if (ex instanceof UnauthorizedException) {
+            return new ApiError(HttpStatus.UNAUTHORIZED, ex.getMessage());
+        } else if (ex instanceof NotFoundException) {
+            return new ApiError(HttpStatus.NOT_FOUND, ex.getMessage());
+        } else if (ex instanceof ServiceException) {
+            return new ApiError(HttpStatus.SERVICE_UNAVAILABLE,
+                    "A network error occurred while trying to reach the server. " + ex.getCause().getMessage());
+        }
+        return new ApiError(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+    }
+}
@@ -1,25 +1,63 @@
 package com.example.demo.handler;
 
 import com.example.demo.client.RepoFilter;
+import com.example.demo.model.api.BatchRequest;
+import com.example.demo.model.api.BranchDetails;
 import com.example.demo.model.api.RepoDetails;
+import com.example.demo.model.api.RepoDetailsProjection;
+import com.example.demo.model.api.UserRepoDetails;
+import com.example.demo.service.AssembledResponseCache;
 import com.example.demo.service.GitHubService;
+import com.example.demo.service.PageCursor;
+import com.example.demo.service.RepoDetailsPage;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
 
 
 @Slf4j
+@Setter
 @Component
 public class GitHubHandler {
+    private static final String REPO_NAME = "repoName";
+    private static final String OWNER_LOGIN = "ownerLogin";
+    private static final String BRANCHES = "branches";
+    private static final Set<String> ALL_FIELDS = Set.of(REPO_NAME, OWNER_LOGIN, BRANCHES);
+
+    @Value("#{gitHubConfig.client.batchConcurrency}")
+    private int batchConcurrency;
+    @Value("#{gitHubConfig.client.batchMaxUsernames}")
+    private int batchMaxUsernames;
+    @Value("#{gitHubConfig.client.defaultLimit}")
+    private int defaultLimit;
+    @Value("#{gitHubConfig.client.maxLimit}")
+    private int maxLimit;
+
     private final GitHubService gitHubService;
+    private final AssembledResponseCache assembledResponseCache;
 
-    public GitHubHandler(GitHubService gitHubService) {
+    public GitHubHandler(GitHubService gitHubService, AssembledResponseCache assembledResponseCache) {
         this.gitHubService = gitHubService;
+        this.assembledResponseCache = assembledResponseCache;
     }
 
     public Mono<ServerResponse> getRepoDetails(ServerRequest serverRequest) {
@@ -32,9 +70,175 @@ public class GitHubHandler {
                     .bodyValue("{\"status\": 400, \"message\": \"" + ex.getMessage() + "\"}");
         }
 
+        Set<String> fields;
+        try {
+            fields = parseFields(serverRequest.queryParam("fields"));
+        } catch (IllegalArgumentException ex) {
+            return badRequest(ex.getMessage());
+        }
+
         final String username = serverRequest.pathVariable("username");
-        return ok()
-                .contentType(MediaType.APPLICATION_JSON).body(gitHubService.getRepoDetails(username, filter),
-                        RepoDetails.class);
+        MediaType contentType = negotiateContentType(serverRequest);
+        Optional<String> cursorParam = serverRequest.queryParam("cursor");
+        Optional<String> limitParam = serverRequest.queryParam("limit");
+        if (cursorParam.isPresent() || limitParam.isPresent()) {
+            return getRepoDetailsPage(serverRequest, username, filter, fields, contentType, cursorParam, limitParam);
+        }
+        if (!fields.equals(ALL_FIELDS)) {
+            // without branches only the repository pages are read, no per-repository branch calls
+            Flux<RepoDetailsProjection> projections = (fields.contains(BRANCHES)
+                    ? gitHubService.getRepoDetails(username, filter)
+                    : gitHubService.listRepositories(username, filter))
+                    .map(details -> project(details, fields));
+            return MediaType.APPLICATION_JSON.equals(contentType)
+                    ? projections.collectList().flatMap(list -> ok().contentType(contentType).bodyValue(list))
+                    : ok().contentType(contentType).body(projections, RepoDetailsProjection.class);
+        }
+        if (!MediaType.APPLICATION_JSON.equals(contentType)) {
+            // streaming types flush every RepoDetails as soon as its branches are resolved
+            return ok()
+                    .contentType(contentType).body(gitHubService.getRepoDetails(username, filter),
+                            RepoDetails.class);
+        }
+        List<String> ifNoneMatch = serverRequest.headers().header(HttpHeaders.IF_NONE_MATCH);
+        return assembledResponseCache.get(username, filter, () -> gitHubService.getRepoDetails(username, filter))
+                .flatMap(response -> matches(ifNoneMatch, response.etag())
+                        ? ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(response.etag()).build()
+                        : ok().contentType(MediaType.APPLICATION_JSON).eTag(response.etag()).bodyValue(response.body()));
+    }
+
+    public Mono<ServerResponse> getBranchDetails(ServerRequest serverRequest) {
+        String username = serverRequest.pathVariable("username");
+        String repo = serverRequest.pathVariable("repo");
+        MediaType contentType = negotiateContentType(serverRequest);
+        Flux<BranchDetails> branchDetails = gitHubService.getBranchDetails(username, repo);
+        return MediaType.APPLICATION_JSON.equals(contentType)
+                ? branchDetails.collectList().flatMap(branches -> ok().contentType(contentType).bodyValue(branches))
+                : ok().contentType(contentType).body(branchDetails, BranchDetails.class);
+    }
+
+    private Mono<ServerResponse> getRepoDetailsPage(ServerRequest serverRequest, String username, RepoFilter filter,
+                                                    Set<String> fields, MediaType contentType, Optional<String> cursorParam,
+                                                    Optional<String> limitParam) {
+        PageCursor cursor;
+        int limit;
+        try {
+            cursor = cursorParam.map(PageCursor::decode).orElse(PageCursor.FIRST);
+            limit = limitParam.map(Integer::parseInt).orElse(defaultLimit);
+        } catch (IllegalArgumentException ex) {
+            return badRequest(ex instanceof NumberFormatException ? "Invalid limit value." : ex.getMessage());
+        }
+        if (limit < 1 || limit > maxLimit) {
+            return badRequest("limit must be between 1 and " + maxLimit);
+        }
+        return gitHubService.getRepoDetailsPage(username, filter, cursor, limit, fields.contains(BRANCHES))
+                .flatMap(page -> {
+                    ServerResponse.BodyBuilder response = ok().contentType(contentType);
+                    if (page.nextCursor() != null) {
+                        response.header(HttpHeaders.LINK, "<" + nextUri(serverRequest, page, limit) + ">; rel=\"next\"");
+                    }
+                    if (fields.equals(ALL_FIELDS)) {
+                        return body(response, contentType, page.repositories(), RepoDetails.class);
+                    }
+                    return body(response, contentType, page.repositories().stream()
+                            .map(details -> project(details, fields))
+                            .toList(), RepoDetailsProjection.class);
+                })
+                .onErrorResume(IllegalArgumentException.class, ex -> badRequest(ex.getMessage()));
+    }
+
+    private Set<String> parseFields(Optional<String> fieldsParam) {
+        if (fieldsParam.isEmpty()) {
+            return ALL_FIELDS;
+        }
+        Set<String> fields = Arrays.stream(fieldsParam.get().split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        if (fields.isEmpty() || !ALL_FIELDS.containsAll(fields)) {
+            throw new IllegalArgumentException("Invalid fields value. Allowed values are: repoName, ownerLogin, branches.");
+        }
+        return fields;
+    }
+
+    private RepoDetailsProjection project(RepoDetails repoDetails, Set<String> fields) {
+        return new RepoDetailsProjection(
+                fields.contains(REPO_NAME) ? repoDetails.getRepoName() : null,
+                fields.contains(OWNER_LOGIN) ? repoDetails.getOwnerLogin() : null,
+                fields.contains(BRANCHES) ? repoDetails.getBranchDetailsList() : null);
+    }
+
+    private <T> Mono<ServerResponse> body(ServerResponse.BodyBuilder response, MediaType contentType, List<T> repositories,
+                                          Class<T> type) {
+        return MediaType.APPLICATION_JSON.equals(contentType)
+                ? response.bodyValue(repositories)
+                : response.body(Flux.fromIterable(repositories), type);
+    }
+
+    private String nextUri(ServerRequest serverRequest, RepoDetailsPage page, int limit) {
+        return UriComponentsBuilder.fromUri(serverRequest.uri())
+                .replaceQueryParam("cursor", page.nextCursor())
+                .replaceQueryParam("limit", limit)
+                .build()
+                .toUriString();
+    }
+
+    public Mono<ServerResponse> getRepoDetailsBatch(ServerRequest serverRequest) {
+        return serverRequest.bodyToMono(BatchRequest.class)
+                .flatMap(batchRequest -> {
+                    List<String> usernames = batchRequest.usernames();
+                    if (usernames == null || usernames.isEmpty() || usernames.size() > batchMaxUsernames
+                            || usernames.stream().anyMatch(username -> username == null || username.isBlank())) {
+                        return badRequest("usernames must hold between 1 and " + batchMaxUsernames + " non-blank names");
+                    }
+                    RepoFilter filter;
+                    try {
+                        filter = RepoFilter.fromString(batchRequest.filter() == null ? "all" : batchRequest.filter());
+                    } catch (IllegalArgumentException ex) {
+                        return badRequest(ex.getMessage());
+                    }
+                    // every user is flushed as its own line once all of its repositories are resolved
+                    return ok()
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .body(gitHubService.getRepoDetails(usernames, filter, batchConcurrency), UserRepoDetails.class);
+                })
+                .switchIfEmpty(Mono.defer(() -> badRequest("request body is required")))
+                .onErrorResume(ServerWebInputException.class, ex -> badRequest("request body is not a valid batch request"));
+    }
+
+    private Mono<ServerResponse> badRequest(String message) {
+        return ServerResponse.badRequest()
+                .bodyValue("{\"status\": 400, \"message\": \"" + message + "\"}");
+    }
+
+    // If-None-Match compares weakly, so a W/ prefix added by a proxy still matches
+    private boolean matches(List<String> ifNoneMatch, String etag) {
+        String opaqueTag = stripWeakPrefix(etag);
+        return ifNoneMatch.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .anyMatch(value -> value.equals("*") || stripWeakPrefix(value).equals(opaqueTag));
+    }
+
+    private static String stripWeakPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    // highest q first, the sort is stable so equal q keeps the client's order; q=0 rules a type out
+    private MediaType negotiateContentType(ServerRequest serverRequest) {
+        List<MediaType> acceptedTypes = serverRequest.headers().accept().stream()
+                .filter(accepted -> accepted.getQualityValue() > 0)
+                .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                .toList();
+        for (MediaType accepted : acceptedTypes) {
+            if (accepted.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)) {
+                return MediaType.APPLICATION_NDJSON;
+            } else if (accepted.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM)) {
+                return MediaType.TEXT_EVENT_STREAM;
+            } else if (accepted.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
     }
 }
@@ -0,0 +1,72 @@
+package com.example.demo.handler;
+
+import com.example.demo.client.ClientMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records github.handler.requests, the latency of an API request until its body is fully written, and
+ * github.request.fanout, the GitHub calls it caused. Both are tagged by route pattern, never by username.
+ * Runs outside {@link RequestTracingFilter} so the trace can read the same outbound call counter.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RequestMetricsFilter implements WebFilter {
+    private final MeterRegistry meterRegistry;
+
+    public RequestMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (path.startsWith("/actuator") || path.startsWith("/openapi")) {
+            return chain.filter(exchange);
+        }
+        AtomicInteger outboundCalls = new AtomicInteger();
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> record(exchange, signal, outboundCalls.get(), System.nanoTime() - start))
+                .contextWrite(context -> context.put(ClientMetrics.OUTBOUND_CALLS, outboundCalls));
+    }
+
+    private void record(ServerWebExchange exchange, SignalType signal, int outboundCalls, long nanos) {
+        Object pattern = exchange.getAttribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern == null ? "UNKNOWN" : pattern.toString();
+        Timer.builder("github.handler.requests")
+                .tags("route", route, "status", status(exchange, signal))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("github.request.fanout")
+                .description("GitHub calls per inbound request, requests joining an in-flight one count none")
+                .tag("route", route)
+                .register(meterRegistry)
+                .record(outboundCalls);
+    }
+
+    // errors become responses in the exception handler further out, so their final status is not known here
+    static String status(ServerWebExchange exchange, SignalType signal) {
+        if (signal == SignalType.CANCEL) {
+            return "cancelled";
+        } else if (signal == SignalType.ON_ERROR) {
+            return "error";
+        }
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        return statusCode == null ? "200" : String.valueOf(statusCode.value());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.handler;
+
+import com.example.demo.client.ClientMetrics;
+import com.example.demo.client.ConcurrencyLimiter;
+import com.example.demo.jfr.Events;
+import com.example.demo.jfr.InboundRequestEvent;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Gives every API request a correlation id, the caller's X-Request-Id when it looks like one, and puts it into the
+ * Reactor context and the response so the JFR events of the request can be joined with it. The deadline until which
+ * its GitHub calls may wait for a concurrency slot goes into the context as well, see {@link ConcurrencyLimiter}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@Setter
+public class RequestTracingFilter implements WebFilter {
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final Pattern REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Value("#{gitHubConfig.client.requestDeadlineInMillis}")
+    private long requestDeadlineInMillis = 10000;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (path.startsWith("/actuator") || path.startsWith("/openapi")) {
+            return chain.filter(exchange);
+        }
+        String correlationId = correlationId(exchange.getRequest().getHeaders().getFirst(REQUEST_ID_HEADER));
+        exchange.getResponse().getHeaders().set(REQUEST_ID_HEADER, correlationId);
+        long deadlineMillis = System.currentTimeMillis() + requestDeadlineInMillis;
+        return Mono.deferContextual(context -> {
+                    InboundRequestEvent event = new InboundRequestEvent();
+                    if (!event.isEnabled()) {
+                        return chain.filter(exchange);
+                    }
+                    AtomicInteger outboundCalls = context.getOrDefault(ClientMetrics.OUTBOUND_CALLS, null);
+                    event.begin();
+                    return chain.filter(exchange)
+                            .doFinally(signal -> {
+                                event.end();
+                                if (event.shouldCommit()) {
+                                    Object pattern = exchange.getAttribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE);
+                                    event.correlationId = correlationId;
+                                    event.route = pattern == null ? "UNKNOWN" : pattern.toString();
+                                    event.status = RequestMetricsFilter.status(exchange, signal);
+                                    event.outboundCalls = outboundCalls == null ? -1 : outboundCalls.get();
+                                    event.commit();
+                                }
+                            });
+                })
+                .contextWrite(context -> context
+                        .put(Events.CORRELATION_ID, correlationId)
+                        .put(ConcurrencyLimiter.DEADLINE, deadlineMillis));
+    }
+
+    private static String correlationId(String requestId) {
+        return requestId != null && REQUEST_ID.matcher(requestId).matches() ? requestId : UUID.randomUUID().toString();
+    }
+}
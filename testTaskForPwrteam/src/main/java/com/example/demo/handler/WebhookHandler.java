@@ -0,0 +1,165 @@
+package com.example.demo.handler;
+
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.service.AssembledResponseCache;
+import com.example.demo.service.GitHubService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Receives GitHub webhook deliveries and drops the cache entries the event made stale, so cached pages can live
+ * for hours for accounts that send webhooks. Deliveries are authenticated with the X-Hub-Signature-256 HMAC.
+ */
+@Slf4j
+@Setter
+@Component
+public class WebhookHandler {
+    static final String EVENT_HEADER = "X-GitHub-Event";
+    static final String SIGNATURE_HEADER = "X-Hub-Signature-256";
+    private static final String SIGNATURE_PREFIX = "sha256=";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    @Value("#{gitHubConfig.webhookSecret}")
+    private String webhookSecret;
+    @Value("#{gitHubConfig.webhookMaxPayloadSize}")
+    private DataSize webhookMaxPayloadSize;
+
+    private final GitHubService gitHubService;
+    private final AssembledResponseCache assembledResponseCache;
+    private final ObjectMapper objectMapper;
+
+    public WebhookHandler(GitHubService gitHubService, AssembledResponseCache assembledResponseCache,
+                          ObjectMapper objectMapper) {
+        this.gitHubService = gitHubService;
+        this.assembledResponseCache = assembledResponseCache;
+        this.objectMapper = objectMapper;
+    }
+
+    public Mono<ServerResponse> handleEvent(ServerRequest serverRequest) {
+        String event = serverRequest.headers().firstHeader(EVENT_HEADER);
+        String signature = serverRequest.headers().firstHeader(SIGNATURE_HEADER);
+        // the codecs' 256KB in-memory limit is far below GitHub's payload cap, so the body is joined under its own cap
+        return DataBufferUtils.join(serverRequest.body(BodyExtractors.toDataBuffers()), (int) webhookMaxPayloadSize.toBytes())
+                .map(buffer -> {
+                    byte[] body = new byte[buffer.readableByteCount()];
+                    buffer.read(body);
+                    DataBufferUtils.release(buffer);
+                    return body;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> {
+                    if (!isSigned(body, signature)) {
+                        log.info("rejecting webhook delivery with invalid signature, event: " + event);
+                        return ServerResponse.status(HttpStatus.UNAUTHORIZED)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue("{\"status\": 401, \"message\": \"invalid webhook signature\"}");
+                    }
+                    JsonNode payload;
+                    try {
+                        payload = objectMapper.readTree(body);
+                    } catch (IOException e) {
+                        return ServerResponse.badRequest()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue("{\"status\": 400, \"message\": \"malformed webhook payload\"}");
+                    }
+                    return invalidate(event, payload)
+                            .then(ServerResponse.noContent().build());
+                })
+                .onErrorResume(DataBufferLimitException.class, ex -> ServerResponse.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"status\": 413, \"message\": \"webhook payload exceeds " + webhookMaxPayloadSize + "\"}"));
+    }
+
+    private Mono<Void> invalidate(String event, JsonNode payload) {
+        if (event == null || payload == null) {
+            return Mono.empty();
+        }
+        GitHubRepo repository = repository(payload.path("repository"));
+        List<String> owners = new ArrayList<>();
+        boolean branchesChanged = false;
+        switch (event) {
+            case "push" -> {
+                // pushed_at moves with every push, so the owner's repository list changes too
+                owners.add(owner(repository));
+                branchesChanged = true;
+            }
+            case "create", "delete" -> {
+                owners.add(owner(repository));
+                branchesChanged = "branch".equals(payload.path("ref_type").asText());
+            }
+            case "repository" -> {
+                owners.add(owner(repository));
+                // a transfer names the previous owner as either a user or an organization
+                JsonNode previousOwner = payload.path("changes").path("owner").path("from");
+                owners.add(previousOwner.path("user").path("login").asText(null));
+                owners.add(previousOwner.path("organization").path("login").asText(null));
+                branchesChanged = List.of("deleted", "renamed", "transferred").contains(payload.path("action").asText());
+            }
+            case "fork" -> owners.add(owner(repository(payload.path("forkee"))));
+            default -> {
+                return Mono.empty();
+            }
+        }
+        owners.removeIf(owner -> owner == null || owner.isBlank());
+        log.info("invalidating caches for webhook event: " + event + ", owners: " + owners);
+        Mono<Void> branches = branchesChanged && repository != null
+                ? gitHubService.invalidateBranches(repository)
+                : Mono.empty();
+        return branches.then(Flux.fromIterable(owners)
+                .concatMap(owner -> gitHubService.invalidateRepositories(owner)
+                        .then(Mono.fromRunnable(() -> assembledResponseCache.evict(owner))))
+                .then());
+    }
+
+    private GitHubRepo repository(JsonNode node) {
+        if (!node.isObject()) {
+            return null;
+        }
+        return objectMapper.convertValue(node, GitHubRepo.class);
+    }
+
+    private String owner(GitHubRepo repository) {
+        return repository == null || repository.getOwner() == null ? null : repository.getOwner().getLogin();
+    }
+
+    private boolean isSigned(byte[] body, String signature) {
+        if (webhookSecret == null || webhookSecret.isEmpty() || signature == null
+                || !signature.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            byte[] expected = HexFormat.of().formatHex(mac.doFinal(body)).getBytes(StandardCharsets.UTF_8);
+            byte[] actual = signature.substring(SIGNATURE_PREFIX.length()).getBytes(StandardCharsets.UTF_8);
+            // constant time, so the signature cannot be guessed byte by byte from response timings
+            return MessageDigest.isEqual(expected, actual);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.jfr;
+
+import reactor.util.context.ContextView;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shared fields of the custom Flight Recorder events. All of them are enabled by default and cost one
+ * {@code isEnabled()} check while no recording runs; to see the timeline of a slow request start the app with
+ * {@code -XX:StartFlightRecording=filename=github.jfr}, then filter
+ * {@code jfr print --events com.example.demo.InboundRequest,com.example.demo.PageFetch,com.example.demo.PageCacheDecision github.jfr}
+ * by the request's X-Request-Id.
+ */
+public final class Events {
+    public static final String CORRELATION_ID = "correlationId";
+
+    private static final Pattern USER_SEGMENT = Pattern.compile("/users/[^/]+");
+    private static final Pattern REPO_SEGMENT = Pattern.compile("/repos/[^/]+/[^/]+");
+    private static final Pattern PAGE_PARAMETER = Pattern.compile("[?&]page=(\\d+)");
+
+    private Events() {
+    }
+
+    public static String correlationId(ContextView context) {
+        return context.getOrDefault(CORRELATION_ID, "");
+    }
+
+    /**
+     * The uri's path with user, owner and repository names replaced, so events group by endpoint.
+     */
+    public static String uriTemplate(String uri) {
+        int scheme = uri.indexOf("://");
+        int start = scheme < 0 ? 0 : uri.indexOf('/', scheme + 3);
+        int query = uri.indexOf('?');
+        String path = start < 0 ? "" : uri.substring(start, query < start ? uri.length() : query);
+        path = USER_SEGMENT.matcher(path).replaceFirst("/users/{username}");
+        return REPO_SEGMENT.matcher(path).replaceFirst("/repos/{owner}/{repo}");
+    }
+
+    public static int pageIndex(String uri) {
+        Matcher matcher = PAGE_PARAMETER.matcher(uri);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.demo.InboundRequest")
+@Label("Inbound Request")
+@Category({"GitHub Browser", "Requests"})
+@Description("An API request from arrival until its body is fully written")
+@StackTrace(false)
+public class InboundRequestEvent extends Event {
+    @Label("Correlation Id")
+    public String correlationId;
+    @Label("Route")
+    public String route;
+    @Label("Status")
+    public String status;
+    @Label("Outbound Calls")
+    public int outboundCalls;
+}
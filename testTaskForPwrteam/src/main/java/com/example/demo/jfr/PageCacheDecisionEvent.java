@@ -0,0 +1,26 @@
+package com.example.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.demo.PageCacheDecision")
+@Label("Page Cache Decision")
+@Category({"GitHub Browser", "Cache"})
+@Description("How the service answered a page or branch list: from cache, from GitHub, from a negative entry or from another request's fetch")
+@StackTrace(false)
+public class PageCacheDecisionEvent extends Event {
+    @Label("Correlation Id")
+    public String correlationId;
+    @Label("URI Template")
+    public String uriTemplate;
+    @Label("Page Index")
+    public int pageIndex;
+    @Label("Decision")
+    @Description("fresh, stale, miss, fetched, revalidated, negative_not_found, negative_empty, snapshot_hit, snapshot_miss"
+            + " or coalesced, for a request that joined another one's fetch")
+    public String decision;
+}
@@ -0,0 +1,41 @@
+package com.example.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.demo.PageFetch")
+@Label("GitHub Page Fetch")
+@Category({"GitHub Browser", "Upstream"})
+@Description("One attempt at fetching a GitHub page, including decoding its entities")
+@StackTrace(false)
+public class PageFetchEvent extends Event {
+    @Label("Correlation Id")
+    public String correlationId;
+    @Label("URI Template")
+    public String uriTemplate;
+    @Label("Page Index")
+    public int pageIndex;
+    @Label("Attempt")
+    @Description("0 for the first attempt, counting up with every retry")
+    public int attempt;
+    @Label("Conditional")
+    @Description("Whether If-None-Match carried a cached ETag")
+    public boolean conditional;
+    @Label("ETag Hit")
+    @Description("GitHub answered 304 Not Modified")
+    public boolean etagHit;
+    @Label("Status")
+    @Description("HTTP status, 0 when no response arrived")
+    public int status;
+    @Label("Bytes")
+    @Description("Content-Length of the response, -1 when it was chunked")
+    @DataAmount
+    public long bytes;
+    @Label("Items")
+    public int items;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.mapper;
+
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.model.client.graphql.RepositoryNode;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface GraphQlMapper {
+    @Mapping( target = "branchesUrl", ignore = true )
+    @Mapping( target = "pushedAt", ignore = true )
+    GitHubRepo toGitHubRepo(RepositoryNode node);
+    @Mapping( target = "commit.sha", source = "target.oid" )
+    GitHubBranch toGitHubBranch(RepositoryNode.RefNode ref);
+    List<GitHubBranch> toGitHubBranches(List<RepositoryNode.RefNode> refs);
+}
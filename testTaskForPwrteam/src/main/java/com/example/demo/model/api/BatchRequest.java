@@ -0,0 +1,7 @@
+package com.example.demo.model.api;
+
+import java.util.List;
+
+public record BatchRequest(List<String> usernames, String filter) {
+
+}
@@ -0,0 +1,12 @@
+package com.example.demo.model.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * The subset of {@link RepoDetails} a client asked for with {@code fields}, the fields left out are omitted from the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RepoDetailsProjection(String repoName, String ownerLogin, List<BranchDetails> branchDetailsList) {
+}
@@ -0,0 +1,20 @@
+package com.example.demo.model.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One line of a batch response, either the repositories of {@code username} or the status and message it failed with.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserRepoDetails(String username, List<RepoDetails> repositories, Integer status, String message) {
+
+    public static UserRepoDetails found(String username, List<RepoDetails> repositories) {
+        return new UserRepoDetails(username, repositories, null, null);
+    }
+
+    public static UserRepoDetails failed(String username, int status, String message) {
+        return new UserRepoDetails(username, null, status, message);
+    }
+}
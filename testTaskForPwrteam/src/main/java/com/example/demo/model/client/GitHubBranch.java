@@ -1,8 +1,10 @@
 package com.example.demo.model.client;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 
 @Data
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class GitHubBranch {
     private String name;
     private Commit commit;
@@ -1,9 +1,11 @@
 package com.example.demo.model.client;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 @Data
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class GitHubRepo {
     private String id;
     private String name;
@@ -11,6 +13,8 @@ public class GitHubRepo {
     private boolean fork;
     @JsonProperty("branches_url")
     private String branchesUrl;
+    @JsonProperty("pushed_at")
+    private String pushedAt;
 
     @Data
     public static class Owner {
@@ -0,0 +1,17 @@
+package com.example.demo.model.client.graphql;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class Connection<T> {
+    private PageInfo pageInfo;
+    private List<T> nodes;
+
+    @Data
+    public static class PageInfo {
+        private boolean hasNextPage;
+        private String endCursor;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.model.client.graphql;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GraphQlResponse {
+    private QueryData data;
+    private List<Error> errors;
+
+    @Data
+    public static class Error {
+        private String type;
+        private String message;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.model.client.graphql;
+
+import lombok.Data;
+
+@Data
+public class QueryData {
+    private RepositoryOwner repositoryOwner;
+    private RepositoryNode repository;
+
+    @Data
+    public static class RepositoryOwner {
+        private Connection<RepositoryNode> repositories;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.model.client.graphql;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+public class RepositoryNode {
+    private String id;
+    private String name;
+    @JsonProperty("isFork")
+    private boolean fork;
+    private Owner owner;
+    private Connection<RefNode> refs;
+
+    @Data
+    public static class Owner {
+        private String login;
+    }
+
+    @Data
+    public static class RefNode {
+        private String name;
+        private Target target;
+
+        @Data
+        public static class Target {
+            private String oid;
+        }
+    }
+}
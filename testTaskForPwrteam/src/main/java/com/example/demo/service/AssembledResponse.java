@@ -0,0 +1,7 @@
+package com.example.demo.service;
+
+import java.util.Map;
+
+public record AssembledResponse(byte[] body, String etag, Map<String, String> sourceEtags) {
+
+}
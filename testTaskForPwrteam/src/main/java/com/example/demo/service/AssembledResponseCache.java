@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.ReactiveCache;
+import com.example.demo.cache.ReactiveCacheManager;
+import com.example.demo.client.RepoFilter;
+import com.example.demo.model.api.RepoDetails;
+import com.example.demo.problem.ServiceException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps fully serialized responses per (username, filter). An entry stays valid while the page ETags
+ * it was built from are still the ones in the etags cache, its own ETag is derived from them.
+ */
+@Slf4j
+@Component
+public class AssembledResponseCache {
+    static final String SOURCE_ETAGS = "sourceEtags";
+
+    private final CacheManager cacheManager;
+    private final ReactiveCacheManager reactiveCacheManager;
+    private final ObjectMapper objectMapper;
+    private Cache responsesCache;
+    private ReactiveCache etagsCache;
+
+    public AssembledResponseCache(CacheManager cacheManager, ReactiveCacheManager reactiveCacheManager,
+                                  ObjectMapper objectMapper) {
+        this.cacheManager = cacheManager;
+        this.reactiveCacheManager = reactiveCacheManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void postConstruct() {
+        responsesCache = cacheManager.getCache("responses");
+        etagsCache = reactiveCacheManager.getCache("etags");
+    }
+
+    public Mono<AssembledResponse> get(String username, RepoFilter filter, Supplier<Flux<RepoDetails>> source) {
+        String key = key(username, filter);
+        AssembledResponse cached = responsesCache.get(key, AssembledResponse.class);
+        Mono<AssembledResponse> assembled = Mono.defer(() -> assemble(key, source));
+        if (cached == null) {
+            return assembled;
+        }
+        return isValid(cached)
+                .flatMap(valid -> {
+                    if (!valid) {
+                        return assembled;
+                    }
+                    log.info("getting assembled response for key: " + key);
+                    return Mono.just(cached);
+                });
+    }
+
+    private Mono<AssembledResponse> assemble(String key, Supplier<Flux<RepoDetails>> source) {
+        Map<String, String> sourceEtags = new ConcurrentHashMap<>();
+        return source.get()
+                .collectList()
+                .contextWrite(context -> context.put(SOURCE_ETAGS, sourceEtags))
+                .map(repoDetails -> {
+                    byte[] body = serialize(repoDetails);
+                    AssembledResponse response = new AssembledResponse(body, etag(key, sourceEtags, body), Map.copyOf(sourceEtags));
+                    // without source ETags nothing could ever invalidate the entry
+                    if (!sourceEtags.isEmpty()) {
+                        responsesCache.put(key, response);
+                    }
+                    return response;
+                });
+    }
+
+    public void evict(String username) {
+        for (RepoFilter filter : RepoFilter.values()) {
+            responsesCache.evict(key(username, filter));
+        }
+    }
+
+    private Mono<Boolean> isValid(AssembledResponse response) {
+        if (response.sourceEtags().isEmpty()) {
+            return Mono.just(false);
+        }
+        return Flux.fromIterable(response.sourceEtags().entrySet())
+                .flatMap(entry -> etagsCache.get(entry.getKey(), String.class)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(etag -> etag.equals(Optional.of(entry.getValue()))))
+                .all(Boolean::booleanValue);
+    }
+
+    private String key(String username, RepoFilter filter) {
+        return username.toLowerCase() + ":" + filter;
+    }
+
+    private byte[] serialize(Object repoDetails) {
+        try {
+            return objectMapper.writeValueAsBytes(repoDetails);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("Error serializing response", e);
+        }
+    }
+
+    private String etag(String key, Map<String, String> sourceEtags, byte[] body) {
+        MessageDigest digest = sha256();
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        // a page without an ETag cannot vouch for its content, the body itself is hashed instead
+        if (sourceEtags.isEmpty() || sourceEtags.containsValue("")) {
+            digest.update(body);
+        } else {
+            new TreeMap<>(sourceEtags).forEach((uri, etag) -> {
+                digest.update(uri.getBytes(StandardCharsets.UTF_8));
+                digest.update(etag.getBytes(StandardCharsets.UTF_8));
+            });
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
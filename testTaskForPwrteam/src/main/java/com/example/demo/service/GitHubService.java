@@ -1,9 +1,64 @@
 package com.example.demo.service;
 
+import com.example.demo.client.ConcurrencyLimiter;
 import com.example.demo.client.RepoFilter;
+import com.example.demo.handler.ApiError;
+import com.example.demo.model.api.BranchDetails;
 import com.example.demo.model.api.RepoDetails;
+import com.example.demo.model.api.UserRepoDetails;
+import com.example.demo.model.client.GitHubRepo;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface GitHubService {
     Flux<RepoDetails> getRepoDetails(String username, RepoFilter repoFilter);
+
+    /**
+     * Lists the repositories without their branches, so only the repository pages are read.
+     */
+    Flux<RepoDetails> listRepositories(String username, RepoFilter repoFilter);
+
+    Flux<BranchDetails> getBranchDetails(String owner, String repoName);
+
+    /**
+     * Resolves at most {@code limit} repositories starting at {@code cursor}, reading only the upstream pages they are on.
+     */
+    Mono<RepoDetailsPage> getRepoDetailsPage(String username, RepoFilter repoFilter, PageCursor cursor, int limit,
+                                             boolean withBranches);
+
+    /**
+     * Resolves many users through one pipeline that works on at most {@code concurrency} of them at a time and
+     * emits each user as soon as it completes. A failing user becomes a line with its status instead of an error.
+     */
+    default Flux<UserRepoDetails> getRepoDetails(List<String> usernames, RepoFilter repoFilter, int concurrency) {
+        return Flux.fromIterable(usernames)
+                // GitHub logins are case-insensitive, like the cache keys
+                .distinct(username -> username.toLowerCase())
+                .flatMap(username -> getRepoDetails(username, repoFilter)
+                        .collectList()
+                        .map(repositories -> UserRepoDetails.found(username, repositories))
+                        .onErrorResume(throwable -> {
+                            ApiError error = ApiError.of(throwable);
+                            return Mono.just(UserRepoDetails.failed(username, error.status().value(), error.message()));
+                        })
+                        // users start as earlier ones finish, long after the request arrived, so they are not
+                        // held to its deadline; the bounded queue of the concurrency limiter still sheds load
+                        .contextWrite(context -> context.delete(ConcurrencyLimiter.DEADLINE)), concurrency);
+    }
+
+    /**
+     * Drops whatever is cached for the repository list of {@code username}, so the next request reads it upstream.
+     */
+    default Mono<Void> invalidateRepositories(String username) {
+        return Mono.empty();
+    }
+
+    /**
+     * Drops whatever is cached for the branches of {@code repository}.
+     */
+    default Mono<Void> invalidateBranches(GitHubRepo repository) {
+        return Mono.empty();
+    }
 }
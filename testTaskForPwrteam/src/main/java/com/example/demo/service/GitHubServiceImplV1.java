@@ -1,9 +1,21 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.BranchSnapshot;
+import com.example.demo.cache.CompactPage;
+import com.example.demo.cache.PageCodec;
+import com.example.demo.cache.ReactiveCache;
+import com.example.demo.cache.ReactiveCacheManager;
+import com.example.demo.client.GitHubBranchClient;
+import com.example.demo.client.ClientMetrics;
+import com.example.demo.client.ConcurrencyLimiter;
 import com.example.demo.client.GitHubClient;
+import com.example.demo.client.RateLimitScheduler;
 import com.example.demo.client.RepoFilter;
+import com.example.demo.jfr.Events;
+import com.example.demo.jfr.PageCacheDecisionEvent;
 import com.example.demo.mapper.BranchDetailsMapper;
 import com.example.demo.mapper.RepoDetailsMapper;
+import com.example.demo.model.api.BranchDetails;
 import com.example.demo.model.api.RepoDetails;
 import com.example.demo.model.client.GitHubBranch;
 import com.example.demo.model.client.GitHubRepo;
@@ -12,21 +24,38 @@ import com.example.demo.problem.NotFoundException;
 import com.example.demo.problem.RetryExhaustedException;
 import com.example.demo.problem.ServiceException;
 import com.example.demo.problem.UnauthorizedException;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,60 +63,341 @@ import java.util.regex.Pattern;
 @Slf4j
 @Setter
 @Service("gitHubService")
+@ConditionalOnProperty(name = "github.version", havingValue = "1.0.0", matchIfMissing = true)
 public class GitHubServiceImplV1 implements GitHubService {
+    private static final String REVALIDATE = "revalidate";
+    private static final String NOT_FOUND = "NOT_FOUND";
+    private static final String EMPTY = "EMPTY";
+
+    /**
+     * One in-flight assembly, {@code sourceEtags} collects the page ETags it read so every subscriber gets them.
+     * It replays at most {@code replayHistory} repositories, a subscriber arriving after more went by runs its own.
+     */
+    private static final class SharedAssembly {
+        private final Flux<RepoDetails> repoDetails;
+        private final Map<String, String> sourceEtags;
+        private final ConcurrencyLimiter.Waits waits;
+        private final int replayHistory;
+        private int emitted;
+
+        private SharedAssembly(Flux<RepoDetails> assembly, Map<String, String> sourceEtags,
+                               ConcurrencyLimiter.Waits waits, int replayHistory) {
+            this.repoDetails = assembly
+                    .doOnNext(details -> {
+                        synchronized (this) {
+                            emitted++;
+                        }
+                    })
+                    .replay(replayHistory)
+                    .refCount();
+            this.sourceEtags = sourceEtags;
+            this.waits = waits;
+            this.replayHistory = replayHistory;
+        }
+
+        // decided under the lock the emissions are counted with, so nothing slips out of the replay in between
+        private Flux<RepoDetails> joinOr(Function<Flux<RepoDetails>, Flux<RepoDetails>> join, Flux<RepoDetails> own) {
+            Flux<RepoDetails> joined = join.apply(repoDetails);
+            return Flux.from(subscriber -> {
+                synchronized (this) {
+                    if (emitted <= replayHistory) {
+                        joined.subscribe(subscriber);
+                        return;
+                    }
+                }
+                own.subscribe(subscriber);
+            });
+        }
+    }
+
+    private record SharedPage(Mono<? extends Page<?>> page, ConcurrencyLimiter.Waits waits,
+                              RateLimitScheduler.SharedPriority priority) {
+    }
 
     @Value("#{gitHubConfig.linkNextPattern}")
     private String linkNextPattern;
+    @Value("#{gitHubConfig.linkLastPattern}")
+    private String linkLastPattern;
+    @Value("#{gitHubConfig.pageNumberPattern}")
+    private String pageNumberPattern;
     @Value("#{gitHubConfig.placeholderPattern}")
     private String placeholderPattern;
     @Value("#{gitHubConfig.client.pageSize}")
     private int clientPageSize;
+    @Value("#{gitHubConfig.client.pageConcurrency}")
+    private int pageConcurrency;
+    @Value("#{gitHubConfig.client.branchConcurrency}")
+    private int branchConcurrency;
+    @Value("#{gitHubConfig.client.branchPrefetch}")
+    private int branchPrefetch;
+    @Value("#{gitHubConfig.client.branchOrdered}")
+    private boolean branchOrdered;
+    @Value("#{gitHubConfig.client.replayHistory}")
+    private int replayHistory;
+    @Value("${cache.swr.enabled:false}")
+    private boolean swrEnabled;
+    @Value("${cache.swr.freshnessWindowInSec:0}")
+    private long freshnessWindowInSec;
+    @Value("${cache.swr.hotUserThreshold:0}")
+    private int hotUserThreshold;
 
     private final GitHubClient gitHubClient;
+    private final Optional<GitHubBranchClient> gitHubBranchClient;
+    private final ConcurrencyLimiter concurrencyLimiter;
     private final BranchDetailsMapper branchDetailsMapper;
     private final RepoDetailsMapper repoDetailsMapper;
+    private final PageCodec pageCodec;
     private final CacheManager cacheManager;
-    private Cache etagsCache;
-    private Cache pagesCache;
-    private Cache nextUrisCache;
+    private final ReactiveCacheManager reactiveCacheManager;
+    private final MeterRegistry meterRegistry;
+    private ReactiveCache etagsCache;
+    private ReactiveCache pagesCache;
+    private ReactiveCache nextUrisCache;
+    private ReactiveCache branchSnapshotsCache;
+    private ReactiveCache negativeCache;
+    private ReactiveCache lastUrisCache;
+    private Cache validatedCache;
+    private Counter freshCounter;
+    private Counter staleCounter;
+    private Counter missCounter;
+    private Counter snapshotHitCounter;
+    private Counter snapshotMissCounter;
+    private Counter negativeNotFoundCounter;
+    private Counter negativeEmptyCounter;
+    private Counter coalescedRequestCounter;
+    private Counter coalescedPageCounter;
+    private Timer firstItemTimer;
+    private final Set<String> revalidations = ConcurrentHashMap.newKeySet();
+    private final Map<String, SharedAssembly> inFlightRequests = new ConcurrentHashMap<>();
+    private final Map<String, SharedPage> inFlightPages = new ConcurrentHashMap<>();
+    private final com.github.benmanes.caffeine.cache.Cache<String, AtomicInteger> accessCounts = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
     private Pattern nextPattern;
+    private Pattern lastPattern;
+    private Pattern pageNumber;
 
-    public GitHubServiceImplV1(GitHubClient gitHubClient, CacheManager cacheManager,
-                               BranchDetailsMapper branchDetailsMapper, RepoDetailsMapper repoDetailsMapper) {
+    public GitHubServiceImplV1(GitHubClient gitHubClient, Optional<GitHubBranchClient> gitHubBranchClient,
+                               ConcurrencyLimiter concurrencyLimiter, CacheManager cacheManager, ReactiveCacheManager reactiveCacheManager,
+                               MeterRegistry meterRegistry, BranchDetailsMapper branchDetailsMapper,
+                               RepoDetailsMapper repoDetailsMapper, PageCodec pageCodec) {
         this.gitHubClient = gitHubClient;
+        this.gitHubBranchClient = gitHubBranchClient;
+        this.concurrencyLimiter = concurrencyLimiter;
         this.cacheManager = cacheManager;
+        this.reactiveCacheManager = reactiveCacheManager;
+        this.meterRegistry = meterRegistry;
         this.branchDetailsMapper = branchDetailsMapper;
         this.repoDetailsMapper = repoDetailsMapper;
+        this.pageCodec = pageCodec;
 
     }
 
     @PostConstruct
     public void postConstruct() {
-        pagesCache = cacheManager.getCache("pages");
-        etagsCache = cacheManager.getCache("etags");
-        nextUrisCache = cacheManager.getCache("nextUris");
+        pagesCache = reactiveCacheManager.getCache("pages");
+        etagsCache = reactiveCacheManager.getCache("etags");
+        nextUrisCache = reactiveCacheManager.getCache("nextUris");
+        branchSnapshotsCache = reactiveCacheManager.getCache("branchSnapshots");
+        negativeCache = reactiveCacheManager.getCache("negative");
+        lastUrisCache = reactiveCacheManager.getCache("lastUris");
+        validatedCache = cacheManager.getCache("validated");
+
+        freshCounter = meterRegistry.counter("github.cache.swr.requests", "result", "fresh");
+        staleCounter = meterRegistry.counter("github.cache.swr.requests", "result", "stale");
+        missCounter = meterRegistry.counter("github.cache.swr.requests", "result", "miss");
+        snapshotHitCounter = meterRegistry.counter("github.branches.snapshot.requests", "result", "hit");
+        snapshotMissCounter = meterRegistry.counter("github.branches.snapshot.requests", "result", "miss");
+        negativeNotFoundCounter = meterRegistry.counter("github.cache.negative.hits", "kind", "not_found");
+        negativeEmptyCounter = meterRegistry.counter("github.cache.negative.hits", "kind", "empty");
+        coalescedRequestCounter = meterRegistry.counter("github.coalesced", "kind", "repositories");
+        coalescedPageCounter = meterRegistry.counter("github.coalesced", "kind", "page");
+        firstItemTimer = Timer.builder("github.repositories.first.item")
+                .description("Time from subscribing to the first emitted RepoDetails")
+                .register(meterRegistry);
 
         nextPattern = Pattern.compile(linkNextPattern);
+        lastPattern = Pattern.compile(linkLastPattern);
+        pageNumber = Pattern.compile(pageNumberPattern);
     }
 
     public Flux<RepoDetails> getRepoDetails(String username, RepoFilter filter) {
-        return getRepositories(username, filter).flatMap(this::fillRepoDetails).onErrorResume(throwable ->
-        {
-            if (throwable instanceof UnauthorizedException || throwable instanceof NotFoundException ||
-            throwable instanceof RetryExhaustedException) {
-                return Mono.error(throwable);
-            } else {
-                return Mono.error(
-                        new ServiceException("Unexpected exception while getting data", throwable)
-                );
+        // concurrent requests for the same user and filter share one upstream pipeline,
+        // replay() lets late subscribers catch up on a bounded history and refCount() keeps it alive while anyone
+        // still listens. The pipeline runs with its first subscriber's context, so the markers that change how it
+        // fetches are part of the key, source ETags are collected by the pipeline and handed to each subscriber
+        // and each subscriber is held to its own request deadline while the pipeline waits for a slot.
+        // The GitHub calls count against the request that started the pipeline, the others record that they joined
+        return Flux.deferContextual(context -> {
+            // revalidations, refreshHotUsers' own among them, are not traffic, or a user would stay hot forever
+            if (swrEnabled && !context.hasKey(REVALIDATE)) {
+                accessCounts.get(username, key -> new AtomicInteger()).incrementAndGet();
+            }
+            boolean revalidate = context.getOrDefault(REVALIDATE, false);
+            RateLimitScheduler.Priority priority = context.getOrDefault(RateLimitScheduler.PRIORITY,
+                    RateLimitScheduler.Priority.INTERACTIVE);
+            String key = username + ":" + filter + ":" + revalidate + ":" + priority;
+            boolean[] created = {false};
+            SharedAssembly shared = inFlightRequests.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return share(key, username, filter);
+            });
+            Flux<RepoDetails> repoDetails = shared.joinOr(
+                    replay -> concurrencyLimiter.withinDeadline(replay, shared.waits)
+                            .doOnSubscribe(subscription -> {
+                                if (!created[0]) {
+                                    coalesced(context, gitHubClient.constructRepoUri(username), coalescedRequestCounter);
+                                }
+                            })
+                            .doOnComplete(() -> context.<Map<String, String>>getOrEmpty(AssembledResponseCache.SOURCE_ETAGS)
+                                    .ifPresent(sourceEtags -> sourceEtags.putAll(shared.sourceEtags))),
+                    assembleRepoDetails(username, filter));
+            return timeFirstItem(repoDetails);
+        });
+    }
+
+    private SharedAssembly share(String key, String username, RepoFilter filter) {
+        Map<String, String> sourceEtags = new ConcurrentHashMap<>();
+        ConcurrencyLimiter.Waits waits = new ConcurrencyLimiter.Waits();
+        Flux<RepoDetails> assembly = assembleRepoDetails(username, filter)
+                .contextWrite(context -> ConcurrencyLimiter.sharedBy(context, waits)
+                        .put(AssembledResponseCache.SOURCE_ETAGS, sourceEtags))
+                .doFinally(signal -> inFlightRequests.remove(key));
+        return new SharedAssembly(assembly, sourceEtags, waits, replayHistory);
+    }
+
+    // measured per subscriber, so a request joining an in-flight pipeline reports its own wait; background refreshes are left out
+    private Flux<RepoDetails> timeFirstItem(Flux<RepoDetails> repoDetails) {
+        return Flux.deferContextual(context -> {
+            if (context.hasKey(REVALIDATE)) {
+                return repoDetails;
             }
-        }).subscribeOn(Schedulers.boundedElastic());
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicBoolean first = new AtomicBoolean(true);
+            return repoDetails.doOnNext(details -> {
+                if (first.compareAndSet(true, false)) {
+                    sample.stop(firstItemTimer);
+                }
+            });
+        });
     }
 
-    private Mono<RepoDetails> fillRepoDetails(GitHubRepo gitHubRepo) {
-        return getBranches(gitHubRepo.getBranchesUrl())
-                .collectList()
+    private Flux<RepoDetails> assembleRepoDetails(String username, RepoFilter filter) {
+        Flux<GitHubRepo> repositories = getRepositories(username, filter);
+        // the pipeline never blocks, so it stays on the netty event loop without a scheduler hop
+        Flux<RepoDetails> repoDetails = branchOrdered
+                ? repositories.flatMapSequential(this::fillRepoDetails, branchConcurrency, branchPrefetch)
+                : repositories.flatMap(this::fillRepoDetails, branchConcurrency, branchPrefetch);
+        return repoDetails.onErrorResume(this::translateError);
+    }
+
+    private <T> Mono<T> translateError(Throwable throwable) {
+        if (throwable instanceof UnauthorizedException || throwable instanceof NotFoundException ||
+                throwable instanceof RetryExhaustedException) {
+            return Mono.error(throwable);
+        } else {
+            return Mono.error(
+                    new ServiceException("Unexpected exception while getting data", throwable)
+            );
+        }
+    }
+
+    @Override
+    public Flux<RepoDetails> listRepositories(String username, RepoFilter filter) {
+        return getRepositories(username, filter)
+                .map(repoDetailsMapper::toRepoDetails)
+                .onErrorResume(this::translateError);
+    }
+
+    @Override
+    public Flux<BranchDetails> getBranchDetails(String owner, String repoName) {
+        GitHubRepo gitHubRepo = new GitHubRepo();
+        GitHubRepo.Owner repoOwner = new GitHubRepo.Owner();
+        repoOwner.setLogin(owner);
+        gitHubRepo.setOwner(repoOwner);
+        gitHubRepo.setName(repoName);
+        gitHubRepo.setBranchesUrl(gitHubClient.constructBranchesUrl(owner, repoName));
+        return fetchBranches(gitHubRepo)
                 .map(branchDetailsMapper::clientListToApiList)
+                .flatMapIterable(branches -> branches)
+                .onErrorResume(this::translateError);
+    }
+
+    @Override
+    public Mono<RepoDetailsPage> getRepoDetailsPage(String username, RepoFilter filter, PageCursor cursor, int limit,
+                                                    boolean withBranches) {
+        int pageNumber;
+        try {
+            pageNumber = cursor.page().isEmpty() ? 1 : Integer.parseInt(cursor.page());
+        } catch (NumberFormatException e) {
+            return Mono.error(new IllegalArgumentException("Invalid cursor value.", e));
+        }
+        if (pageNumber < 1) {
+            return Mono.error(new IllegalArgumentException("Invalid cursor value."));
+        }
+        List<GitHubRepo> repositories = new ArrayList<>(limit);
+        return collectRepositories(gitHubClient.constructRepoUri(username), pageNumber, cursor.offset(),
+                new FilterPredicate(filter), limit, repositories)
+                .flatMap(nextCursor -> (withBranches
+                        ? Flux.fromIterable(repositories).flatMapSequential(this::fillRepoDetails, branchConcurrency, branchPrefetch)
+                        : Flux.fromIterable(repositories).map(repoDetailsMapper::toRepoDetails))
+                        .collectList()
+                        .map(repoDetails -> new RepoDetailsPage(repoDetails, nextCursor.map(PageCursor::encode).orElse(null))))
+                .onErrorResume(this::translateError);
+    }
+
+    /**
+     * Walks the upstream pages from {@code pageNumber} only until {@code limit} repositories are collected,
+     * and completes with the position right after the last one.
+     */
+    private Mono<Optional<PageCursor>> collectRepositories(String uri, int pageNumber, int offset, FilterPredicate filter,
+                                                           int limit, List<GitHubRepo> collected) {
+        String pageUri = pageNumber == 1 ? uri : withPageNumber(uri, pageNumber);
+        return fetchPage(pageUri, GitHubRepo.class, ClientMetrics.REPO)
+                .flatMap(page -> resolveNextUrl(page)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(nextUrl -> {
+                            List<GitHubRepo> repositories = Optional.ofNullable(page.getBody()).orElseGet(List::of);
+                            int index = offset;
+                            while (index < repositories.size() && collected.size() < limit) {
+                                GitHubRepo repository = repositories.get(index++);
+                                if (filter.test(repository)) {
+                                    collected.add(repository);
+                                }
+                            }
+                            if (index < repositories.size()) {
+                                return Mono.just(Optional.of(new PageCursor(String.valueOf(pageNumber), index)));
+                            } else if (nextUrl.isEmpty()) {
+                                return Mono.just(Optional.<PageCursor>empty());
+                            } else if (collected.size() == limit) {
+                                return Mono.just(Optional.of(new PageCursor(String.valueOf(pageNumber + 1), 0)));
+                            }
+                            return collectRepositories(uri, pageNumber + 1, 0, filter, limit, collected);
+                        }));
+    }
+
+    @Scheduled(fixedDelayString = "${cache.swr.refreshIntervalInSec:60}", timeUnit = TimeUnit.SECONDS)
+    public void refreshHotUsers() {
+        if (!swrEnabled) {
+            return;
+        }
+        List<String> hotUsers = accessCounts.asMap().entrySet().stream()
+                .filter(entry -> entry.getValue().getAndSet(0) >= hotUserThreshold)
+                .map(Map.Entry::getKey)
+                .toList();
+        Flux.fromIterable(hotUsers)
+                .flatMap(username -> getRepoDetails(username, RepoFilter.ALL)
+                        .contextWrite(context -> context.put(REVALIDATE, true)
+                                .put(RateLimitScheduler.PRIORITY, RateLimitScheduler.Priority.BACKGROUND))
+                        .doOnError(throwable -> log.info("background refresh failed for user: " + username, throwable))
+                        .onErrorResume(throwable -> Mono.empty())
+                        .then(), branchConcurrency)
+                .subscribe();
+    }
+
+    private Mono<RepoDetails> fillRepoDetails(GitHubRepo gitHubRepo) {
+        return getBranchDetails(gitHubRepo)
                 .map(branches -> {
                             RepoDetails repoDetails = repoDetailsMapper.toRepoDetails(gitHubRepo);
                             repoDetails.setBranchDetailsList(branches);
@@ -96,37 +406,269 @@ public class GitHubServiceImplV1 implements GitHubService {
                 );
     }
 
+    /**
+     * Serves the branches from the repository's snapshot while its pushed_at is unchanged, any push that
+     * creates, moves or deletes a branch moves pushed_at, so only changed repositories reach the branch calls.
+     */
+    private Mono<List<BranchDetails>> getBranchDetails(GitHubRepo gitHubRepo) {
+        String pushedAt = gitHubRepo.getPushedAt();
+        if (pushedAt == null || gitHubRepo.getId() == null) {
+            return fetchBranches(gitHubRepo).map(branchDetailsMapper::clientListToApiList);
+        }
+        return Mono.deferContextual(context -> branchSnapshotsCache.get(gitHubRepo.getId(), BranchSnapshot.class)
+                .filter(snapshot -> pushedAt.equals(snapshot.pushedAt()))
+                .map(snapshot -> {
+                    snapshotHitCounter.increment();
+                    recordDecision(context, branchesUri(gitHubRepo.getBranchesUrl()), "snapshot_hit");
+                    return pageCodec.decode(snapshot.branches(), GitHubBranch.class);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    snapshotMissCounter.increment();
+                    recordDecision(context, branchesUri(gitHubRepo.getBranchesUrl()), "snapshot_miss");
+                    return fetchBranches(gitHubRepo)
+                            .flatMap(branches -> branchSnapshotsCache
+                                    .put(gitHubRepo.getId(), new BranchSnapshot(pushedAt, pageCodec.encode(branches)))
+                                    .thenReturn(branches));
+                }))
+                .map(branchDetailsMapper::clientListToApiList));
+    }
+
+    private Mono<List<GitHubBranch>> fetchBranches(GitHubRepo gitHubRepo) {
+        return gitHubBranchClient
+                .map(branchClient -> branchClient.fetchBranches(gitHubRepo))
+                .orElseGet(() -> getBranches(gitHubRepo.getBranchesUrl()))
+                .collectList();
+    }
+
     private Flux<GitHubRepo> getRepositories(String username, RepoFilter filter) {
         String uri = gitHubClient.constructRepoUri(username);
-        String pageEtag = etagsCache.get(uri, String.class);
         FilterPredicate filterPredicate = new FilterPredicate(filter);
-        return getEntities(uri, pageEtag, GitHubRepo.class).filter(filterPredicate);
+        return getEntities(uri, GitHubRepo.class, ClientMetrics.REPO).filter(filterPredicate);
     }
 
     private Flux<GitHubBranch> getBranches(String branchesUrl) {
-        String uri = branchesUrl.replaceAll(placeholderPattern, "") +
-                "?per_page=" + clientPageSize;
-        String pageEtag = etagsCache.get(uri, String.class);
-        return getEntities(uri, pageEtag, GitHubBranch.class);
+        return getEntities(branchesUri(branchesUrl), GitHubBranch.class, ClientMetrics.BRANCH);
     }
 
-    private <T> Flux<T> getEntities(String uri, String pageEtag, Class<T> responseType) {
-        return gitHubClient.fetchPage(uri, pageEtag, responseType)
-                .onErrorResume(throwable -> handlePageFetchError(throwable, uri, responseType))
-                .expand(response -> {
-                    Optional<String> nextUrl = getNextUrl(response);
+    private String branchesUri(String branchesUrl) {
+        return branchesUrl.replaceAll(placeholderPattern, "") + "?per_page=" + clientPageSize;
+    }
 
-                    if (nextUrl.isPresent() && response.getStatusCode().is2xxSuccessful()) {
-                        nextUrisCache.put(response.getUri(), nextUrl.get());
-                    }
+    @Override
+    public Mono<Void> invalidateRepositories(String username) {
+        return evictChain(gitHubClient.constructRepoUri(username), new ArrayList<>());
+    }
 
-                    Optional<String> nextPageEtag = nextUrl.map(next -> etagsCache.get(next, String.class));
+    @Override
+    public Mono<Void> invalidateBranches(GitHubRepo repository) {
+        Mono<Void> snapshot = repository.getId() == null
+                ? Mono.empty()
+                : branchSnapshotsCache.evict(repository.getId());
+        Mono<Void> pages = repository.getBranchesUrl() == null
+                ? Mono.empty()
+                : evictChain(branchesUri(repository.getBranchesUrl()), new ArrayList<>());
+        return snapshot.then(pages);
+    }
 
-                    return nextUrl.map(next_url -> gitHubClient.fetchPage(next_url, nextPageEtag.orElse(null), responseType)
-                            .onErrorResume(throwable -> handlePageFetchError(throwable, next_url, responseType))).orElseGet(Mono::empty);
+    /**
+     * Evicts every page linked from {@code uri} through nextUris together with its ETag and validation time.
+     */
+    private Mono<Void> evictChain(String uri, List<String> evicted) {
+        if (evicted.contains(uri)) {
+            return Mono.empty();
+        }
+        evicted.add(uri);
+        validatedCache.evict(uri);
+        return nextUrisCache.get(uri, String.class)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(nextUri -> negativeCache.evict(uri)
+                        .then(lastUrisCache.evict(uri))
+                        .then(etagsCache.evict(uri))
+                        .then(pagesCache.evict(uri))
+                        .then(nextUrisCache.evict(uri))
+                        .then(nextUri.map(next -> evictChain(next, evicted)).orElseGet(Mono::empty)));
+    }
+
+    private <T> Flux<T> getEntities(String uri, Class<T> responseType, String type) {
+        if (!swrEnabled) {
+            return fetchEntities(uri, responseType, type);
+        }
+        return Flux.deferContextual(context -> {
+            if (context.getOrDefault(REVALIDATE, false)) {
+                return fetchEntities(uri, responseType, type);
+            }
+            Long validatedAt = validatedCache.get(uri, Long.class);
+            if (validatedAt == null) {
+                missCounter.increment();
+                recordDecision(context, uri, "miss");
+                return fetchEntities(uri, responseType, type);
+            }
+            return getCachedChain(uri)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMapMany(cachedChain -> {
+                        if (cachedChain.isEmpty()) {
+                            missCounter.increment();
+                            recordDecision(context, uri, "miss");
+                            return fetchEntities(uri, responseType, type);
+                        }
+                        if (System.currentTimeMillis() - validatedAt > TimeUnit.SECONDS.toMillis(freshnessWindowInSec)) {
+                            staleCounter.increment();
+                            recordDecision(context, uri, "stale");
+                            revalidateInBackground(uri, responseType, type);
+                        } else {
+                            freshCounter.increment();
+                            recordDecision(context, uri, "fresh");
+                        }
+                        return Flux.fromIterable(cachedChain.get())
+                                .concatMap(cachedPage -> etagsCache.get(cachedPage.getKey(), String.class)
+                                        .defaultIfEmpty("")
+                                        .flatMapIterable(etag -> {
+                                            recordSourceEtag(context, cachedPage.getKey(), etag);
+                                            return pageCodec.decode(cachedPage.getValue(), responseType);
+                                        }));
+                    });
+        });
+    }
+
+    /**
+     * Collects the cached pages linked through nextUris, completes empty when one of them is missing.
+     */
+    private Mono<List<Map.Entry<String, CompactPage>>> getCachedChain(String uri) {
+        return getCachedChain(uri, new ArrayList<>());
+    }
+
+    private Mono<List<Map.Entry<String, CompactPage>>> getCachedChain(String pageUri,
+                                                                     List<Map.Entry<String, CompactPage>> chain) {
+        if (chain.stream().anyMatch(cachedPage -> cachedPage.getKey().equals(pageUri))) {
+            return Mono.empty();
+        }
+        return pagesCache.get(pageUri, CompactPage.class)
+                .flatMap(page -> {
+                    chain.add(Map.entry(pageUri, page));
+                    return nextUrisCache.get(pageUri, String.class)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .flatMap(nextUri -> nextUri.isPresent()
+                                    ? getCachedChain(nextUri.get(), chain)
+                                    : Mono.just(chain));
+                });
+    }
+
+    private <T> void revalidateInBackground(String uri, Class<T> responseType, String type) {
+        if (!revalidations.add(uri)) {
+            return;
+        }
+        fetchEntities(uri, responseType, type)
+                .doFinally(signal -> revalidations.remove(uri))
+                .contextWrite(context -> context.put(RateLimitScheduler.PRIORITY, RateLimitScheduler.Priority.BACKGROUND))
+                .subscribe(null, throwable -> log.info("background revalidation failed for uri: " + uri, throwable));
+    }
+
+    private <T> Flux<T> fetchEntities(String uri, Class<T> responseType, String type) {
+        return fetchPage(uri, responseType, type)
+                .flatMapMany(firstPage -> getLastUrl(firstPage)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMapMany(lastUrl -> {
+                            Optional<Integer> lastPageNumber = lastUrl.flatMap(this::getPageNumber);
+                            if (lastPageNumber.isEmpty()) {
+                                return expandSequentially(firstPage, responseType, type);
+                            }
+                            // all page uris are known from rel="last", so the remaining pages are fetched at once
+                            // and flatMapSequential keeps them in page order
+                            AtomicReference<Page<T>> lastPage = new AtomicReference<>(firstPage);
+                            Flux<Page<T>> remainingPages = Flux.range(2, Math.max(lastPageNumber.get() - 1, 0))
+                                    .<Page<T>>flatMapSequential(number -> fetchPage(withPageNumber(lastUrl.get(), number), responseType, type)
+                                            .flatMap(page -> resolveNextUrl(page).thenReturn(page)), pageConcurrency)
+                                    .doOnNext(lastPage::set);
+                            // rel="last" may be outdated, e.g. remembered for a 304 while the list grew since,
+                            // so whatever the last page still links to is followed one by one
+                            Flux<Page<T>> laterPages = Flux.defer(() -> expandSequentially(lastPage.get(), responseType, type)
+                                    .skip(1));
+                            return resolveNextUrl(firstPage)
+                                    .thenMany(Flux.concat(Mono.just(firstPage), remainingPages, laterPages));
+                        }))
+                .concatMap(this::parseData);
+    }
+
+    private <T> Flux<Page<T>> expandSequentially(Page<T> firstPage, Class<T> responseType, String type) {
+        return Mono.just(firstPage)
+                .expand(response -> resolveNextUrl(response)
+                        .flatMap(next_url -> fetchPage(next_url, responseType, type)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<Page<T>> fetchPage(String uri, Class<T> responseType, String type) {
+        // concurrent fetches of one page share the exchange and the cache write, cache() is not
+        // cancelled by a single subscriber going away, so the others still get the page.
+        // Revalidation changes how the page is read, so it only shares with other revalidations.
+        // Each subscriber is held to its own request deadline while the shared fetch waits for a slot,
+        // and the fetch waits for quota with the highest priority among its subscribers
+        return Mono.deferContextual(context -> {
+            boolean revalidate = context.getOrDefault(REVALIDATE, false);
+            RateLimitScheduler.Priority priority = context.getOrDefault(RateLimitScheduler.PRIORITY,
+                    RateLimitScheduler.Priority.INTERACTIVE);
+            String key = uri + ":" + revalidate;
+            boolean[] created = {false};
+            SharedPage shared = inFlightPages.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return sharePage(key, uri, revalidate, priority, responseType, type);
+            });
+            if (!created[0]) {
+                shared.priority().raise(priority);
+                coalesced(context, uri, coalescedPageCounter);
+            }
+            return concurrencyLimiter.withinDeadline((Mono<Page<T>>) shared.page(), shared.waits());
+        });
+    }
+
+    private <T> SharedPage sharePage(String key, String uri, boolean revalidate, RateLimitScheduler.Priority priority,
+                                     Class<T> responseType, String type) {
+        ConcurrencyLimiter.Waits waits = new ConcurrencyLimiter.Waits();
+        RateLimitScheduler.SharedPriority sharedPriority = new RateLimitScheduler.SharedPriority(priority);
+        Mono<Page<T>> page = Mono.deferContextual(shared -> {
+                    // revalidation looks past known 404s and empty pages, so a refresh notices a user that now exists
+                    Mono<String> negative = revalidate ? Mono.empty() : negativeCache.get(uri, String.class);
+                    return negative
+                            .flatMap(marker -> {
+                                recordDecision(shared, uri, "negative_" + marker.toLowerCase());
+                                return this.<T>negativePage(marker, uri);
+                            })
+                            .switchIfEmpty(Mono.defer(() -> etagsCache.get(uri, String.class)
+                                    .map(Optional::of)
+                                    .defaultIfEmpty(Optional.empty())
+                                    .flatMap(pageEtag -> gitHubClient.fetchPage(uri, pageEtag.orElse(null), responseType, type))
+                                    .onErrorResume(throwable -> handlePageFetchError(throwable, uri, responseType))
+                                    .flatMap(fetched -> storePage(fetched, responseType))
+                                    .flatMap(fetched -> rememberEmptyAccount(fetched, type))
+                                    .doOnNext(fetched -> recordDecision(shared, uri,
+                                            fetched.getStatusCode().value() == 304 ? "revalidated" : "fetched"))
+                                    .flatMap(fetched -> revalidate && fetched.getBody() != null && !fetched.getBody().isEmpty()
+                                            ? negativeCache.evict(uri).thenReturn(fetched)
+                                            : Mono.just(fetched))));
                 })
-                .flatMap(this::parseData);
+                .contextWrite(context -> RateLimitScheduler.sharedBy(ConcurrencyLimiter.sharedBy(context, waits), sharedPriority))
+                .doFinally(signal -> inFlightPages.remove(key))
+                .cache();
+        return new SharedPage(page, waits, sharedPriority);
+    }
 
+    private <T> Mono<Page<T>> negativePage(String marker, String uri) {
+        if (NOT_FOUND.equals(marker)) {
+            negativeNotFoundCounter.increment();
+            return Mono.error(new NotFoundException("resource which you trying to obtain does not exist", null));
+        }
+        negativeEmptyCounter.increment();
+        return Mono.just(new Page<>(List.of(), new HttpHeaders(), HttpStatusCode.valueOf(200), uri));
+    }
+
+    private Mono<String> resolveNextUrl(Page<?> response) {
+        return getNextUrl(response)
+                .flatMap(nextUrl -> response.getStatusCode().is2xxSuccessful()
+                        ? nextUrisCache.put(response.getUri(), nextUrl).thenReturn(nextUrl)
+                        : Mono.just(nextUrl));
     }
 
     private <T> Mono<Page<T>> handlePageFetchError(Throwable throwable, String uri, Class<T> responseType) {
@@ -135,24 +677,58 @@ public class GitHubServiceImplV1 implements GitHubService {
            if(statusCode.value() == 401){
                return Mono.error(new UnauthorizedException("failed  authorization on github, please check your token ", throwable));
            } else if (statusCode.value() == 404){
-               return Mono.error(new NotFoundException("resource which you trying to obtain does not exist", throwable));
+               return negativeCache.put(uri, NOT_FOUND)
+                       .then(Mono.error(new NotFoundException("resource which you trying to obtain does not exist", throwable)));
            }
             return Mono.error(throwable);
         } else if (throwable instanceof RetryExhaustedException) {
             // Attempt to retrieve cached data from the cache
-            List<T> cachedData = pagesCache.get(uri, List.class);
-            if (cachedData != null) {
-                log.info("Returning cached data for URI due to RetryExhaustedException: " + uri);
-                Page<T> cachedPage = new Page<>(cachedData, new HttpHeaders(), HttpStatusCode.valueOf(304), uri);
-                return Mono.just(cachedPage);
-            }
-            //it is possible to return page from cache but need to clarify with business
-            return Mono.error(throwable);
+            return getCachedPage(uri, responseType)
+                    .map(cachedData -> {
+                        log.info("Returning cached data for URI due to RetryExhaustedException: " + uri);
+                        return new Page<>(cachedData, new HttpHeaders(), HttpStatusCode.valueOf(304), uri);
+                    })
+                    //it is possible to return page from cache but need to clarify with business
+                    .switchIfEmpty(Mono.error(throwable));
         }
         return Mono.error(throwable);
     }
 
-    private <T> Flux<T> parseData(Page<T> response) {
+    // package-private so the jmh benchmarks can measure it in isolation
+    <T> Flux<T> parseData(Page<T> response) {
+        return Flux.deferContextual(context -> Mono.justOrEmpty(response.getHeaders().getETag())
+                .switchIfEmpty(etagsCache.get(response.getUri(), String.class))
+                .defaultIfEmpty("")
+                .flatMapIterable(etag -> {
+                    recordSourceEtag(context, response.getUri(), etag);
+                    return Optional.ofNullable(response.getBody()).orElseGet(List::of);
+                }));
+    }
+
+    private void recordDecision(ContextView context, String uri, String decision) {
+        PageCacheDecisionEvent event = new PageCacheDecisionEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.correlationId = Events.correlationId(context);
+        event.uriTemplate = Events.uriTemplate(uri);
+        event.pageIndex = Events.pageIndex(uri);
+        event.decision = decision;
+        event.commit();
+    }
+
+    // the request the shared call runs for counts its GitHub calls and records its decisions, a joiner only this
+    private void coalesced(ContextView context, String uri, Counter counter) {
+        counter.increment();
+        recordDecision(context, uri, "coalesced");
+    }
+
+    private void recordSourceEtag(ContextView context, String uri, String etag) {
+        context.<Map<String, String>>getOrEmpty(AssembledResponseCache.SOURCE_ETAGS)
+                .ifPresent(sourceEtags -> sourceEtags.put(uri, etag));
+    }
+
+    private <T> Mono<Page<T>> storePage(Page<T> response, Class<T> responseType) {
         Optional<List<T>> data = Optional.ofNullable(response.getBody());
         HttpHeaders headers = response.getHeaders();
         HttpStatusCode statusCode = response.getStatusCode();
@@ -160,36 +736,93 @@ public class GitHubServiceImplV1 implements GitHubService {
         Optional<String> eTag = Optional.ofNullable(headers.getETag());
 
         if (statusCode.value() == 304) {
-            List<T> cachedRepos = pagesCache.get(uri, List.class);
-            if(cachedRepos != null){
-                eTag.ifPresent(tag -> etagsCache.put(uri, tag));
-                log.info("getting cached page for uri: " + uri);
-                return Flux.fromIterable(cachedRepos);
-            }
+            return getCachedPage(uri, responseType)
+                    .flatMap(cachedRepos -> Mono.justOrEmpty(eTag)
+                            .flatMap(tag -> {
+                                validatedCache.put(uri, System.currentTimeMillis());
+                                return etagsCache.put(uri, tag);
+                            })
+                            .then(Mono.fromSupplier(() -> {
+                                log.info("getting cached page for uri: " + uri);
+                                return new Page<>(cachedRepos, headers, statusCode, uri);
+                            })))
+                    .defaultIfEmpty(response);
         }
 
-        if (data.isEmpty() || data.get().isEmpty()) {
-            return Flux.empty();
+        if (data.isEmpty()) {
+            return Mono.just(response);
         }
 
-        eTag.ifPresent(tag -> {
-            etagsCache.put(uri, tag);
-            pagesCache.put(uri, data.get());
-        });
+        // empty pages are stored like any other, so a branch or later page that runs empty is revalidated
+        // with its ETag instead of being taken for empty until the negative cache expires.
+        // The page is written before its ETag, so whoever sees the new ETag also finds the matching page
+        return Mono.justOrEmpty(eTag)
+                .flatMap(tag -> pagesCache.put(uri, pageCodec.encode(data.get()))
+                        .then(etagsCache.put(uri, tag))
+                        .doOnSuccess(ignored -> validatedCache.put(uri, System.currentTimeMillis())))
+                .thenReturn(response);
+    }
+
+    /**
+     * Remembers an account without repositories in the negative cache, once GitHub confirmed the empty first page
+     * with an ETag. Later pages and branch pages are left to the conditional revalidation above.
+     */
+    private <T> Mono<Page<T>> rememberEmptyAccount(Page<T> page, String type) {
+        boolean emptyAccount = ClientMetrics.REPO.equals(type) && Events.pageIndex(page.getUri()) == 1
+                && page.getBody() != null && page.getBody().isEmpty() && page.getHeaders().getETag() != null;
+        return emptyAccount
+                ? negativeCache.put(page.getUri(), EMPTY).thenReturn(page)
+                : Mono.just(page);
+    }
 
-        return Flux.fromIterable(data.get());
+    private <T> Mono<List<T>> getCachedPage(String uri, Class<T> responseType) {
+        return pagesCache.get(uri, CompactPage.class)
+                .map(cachedPage -> pageCodec.decode(cachedPage, responseType));
     }
 
-    private Optional<String> getNextUrl(Page<?> response) {
+    // package-private so the jmh benchmarks can measure it in isolation
+    Mono<String> getNextUrl(Page<?> response) {
         if (response.getStatusCode().is3xxRedirection()) {
-            return Optional.ofNullable(nextUrisCache.get(response.getUri(), String.class));
+            return nextUrisCache.get(response.getUri(), String.class);
         }
         String linkHeader = response.getHeaders().getFirst(HttpHeaders.LINK);
         if (linkHeader == null) {
-            return Optional.empty();
+            return Mono.empty();
         }
         Matcher matcher = nextPattern.matcher(linkHeader);
-        return Optional.ofNullable(matcher.find() ? matcher.group() : null);
+        return Mono.justOrEmpty(matcher.find() ? matcher.group() : null);
+    }
+
+    private Mono<String> getLastUrl(Page<?> response) {
+        if (response.getStatusCode().is3xxRedirection()) {
+            return lastUrisCache.get(response.getUri(), String.class);
+        }
+        String linkHeader = response.getHeaders().getFirst(HttpHeaders.LINK);
+        if (linkHeader == null) {
+            return Mono.empty();
+        }
+        Matcher matcher = lastPattern.matcher(linkHeader);
+        if (!matcher.find()) {
+            return Mono.empty();
+        }
+        String lastUrl = matcher.group();
+        return response.getStatusCode().is2xxSuccessful()
+                ? lastUrisCache.put(response.getUri(), lastUrl).thenReturn(lastUrl)
+                : Mono.just(lastUrl);
+    }
+
+    private Optional<Integer> getPageNumber(String url) {
+        Matcher matcher = pageNumber.matcher(url);
+        return matcher.find() ? Optional.of(Integer.parseInt(matcher.group())) : Optional.empty();
+    }
+
+    // the first page's uri carries no page parameter, so one is added when there is nothing to replace
+    private String withPageNumber(String url, int number) {
+        Matcher matcher = pageNumber.matcher(url);
+        if (matcher.find()) {
+            return matcher.replaceFirst(String.valueOf(number));
+        }
+        return UriComponentsBuilder.fromUriString(url).queryParam("page", number).build().toUriString();
     }
 }
 
@@ -0,0 +1,194 @@
+package com.example.demo.service;
+
+import com.example.demo.client.GitHubGraphQlClient;
+import com.example.demo.client.RepoFilter;
+import com.example.demo.mapper.BranchDetailsMapper;
+import com.example.demo.mapper.GraphQlMapper;
+import com.example.demo.mapper.RepoDetailsMapper;
+import com.example.demo.model.api.BranchDetails;
+import com.example.demo.model.api.RepoDetails;
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.model.client.graphql.Connection;
+import com.example.demo.model.client.graphql.RepositoryNode;
+import com.example.demo.problem.NotFoundException;
+import com.example.demo.problem.RetryExhaustedException;
+import com.example.demo.problem.ServiceException;
+import com.example.demo.problem.UnauthorizedException;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads repositories together with their first page of branches in one GraphQL query per page,
+ * and only follows the branch cursor for repositories that have more branches than that.
+ */
+@ServiceVersion("2.0.0")
+@Slf4j
+@Setter
+@Service("gitHubServiceV2")
+@ConditionalOnProperty(name = "github.version", havingValue = "2.0.0")
+public class GitHubServiceImplV2 implements GitHubService {
+
+    @Value("#{gitHubConfig.client.branchConcurrency}")
+    private int branchConcurrency;
+
+    private final GitHubGraphQlClient gitHubClient;
+    private final GraphQlMapper graphQlMapper;
+    private final BranchDetailsMapper branchDetailsMapper;
+    private final RepoDetailsMapper repoDetailsMapper;
+
+    public GitHubServiceImplV2(GitHubGraphQlClient gitHubClient, GraphQlMapper graphQlMapper,
+                               BranchDetailsMapper branchDetailsMapper, RepoDetailsMapper repoDetailsMapper) {
+        this.gitHubClient = gitHubClient;
+        this.graphQlMapper = graphQlMapper;
+        this.branchDetailsMapper = branchDetailsMapper;
+        this.repoDetailsMapper = repoDetailsMapper;
+    }
+
+    public Flux<RepoDetails> getRepoDetails(String username, RepoFilter filter) {
+        FilterPredicate filterPredicate = new FilterPredicate(filter);
+        return getRepositories(username)
+                .filter(node -> filterPredicate.test(graphQlMapper.toGitHubRepo(node)))
+                .flatMapSequential(this::fillRepoDetails, branchConcurrency)
+                .onErrorResume(this::translateError);
+    }
+
+    private <T> Mono<T> translateError(Throwable throwable) {
+        if (throwable instanceof UnauthorizedException || throwable instanceof NotFoundException ||
+                throwable instanceof RetryExhaustedException || throwable instanceof ServiceException) {
+            return Mono.error(throwable);
+        } else {
+            return Mono.error(
+                    new ServiceException("Unexpected exception while getting data", throwable)
+            );
+        }
+    }
+
+    @Override
+    public Flux<RepoDetails> listRepositories(String username, RepoFilter filter) {
+        FilterPredicate filterPredicate = new FilterPredicate(filter);
+        return getRepositories(username)
+                .map(graphQlMapper::toGitHubRepo)
+                .filter(filterPredicate)
+                .map(repoDetailsMapper::toRepoDetails)
+                .onErrorResume(this::translateError);
+    }
+
+    @Override
+    public Flux<BranchDetails> getBranchDetails(String owner, String repoName) {
+        return fetchRefs(owner, repoName, null)
+                .expand(refs -> refs.getPageInfo().isHasNextPage()
+                        ? fetchRefs(owner, repoName, refs.getPageInfo().getEndCursor())
+                        : Mono.empty())
+                .flatMapIterable(this::nodesOf)
+                .map(graphQlMapper::toGitHubBranch)
+                .map(branchDetailsMapper::toBranchDetails)
+                .onErrorResume(this::translateError);
+    }
+
+    private Mono<Connection<RepositoryNode.RefNode>> fetchRefs(String owner, String repoName, String cursor) {
+        return gitHubClient.fetchBranches(owner, repoName, cursor)
+                .flatMap(data -> data.getRepository() == null || data.getRepository().getRefs() == null
+                        ? Mono.error(new NotFoundException("resource which you trying to obtain does not exist", null))
+                        : Mono.just(data.getRepository().getRefs()));
+    }
+
+    @Override
+    public Mono<RepoDetailsPage> getRepoDetailsPage(String username, RepoFilter filter, PageCursor cursor, int limit,
+                                                    boolean withBranches) {
+        List<RepositoryNode> repositories = new ArrayList<>(limit);
+        return collectRepositories(username, cursor.page().isEmpty() ? null : cursor.page(), cursor.offset(),
+                new FilterPredicate(filter), limit, repositories)
+                .flatMap(nextCursor -> (withBranches
+                        ? Flux.fromIterable(repositories).flatMapSequential(this::fillRepoDetails, branchConcurrency)
+                        : Flux.fromIterable(repositories).map(node -> repoDetailsMapper.toRepoDetails(graphQlMapper.toGitHubRepo(node))))
+                        .collectList()
+                        .map(repoDetails -> new RepoDetailsPage(repoDetails, nextCursor.map(PageCursor::encode).orElse(null))))
+                .onErrorResume(this::translateError);
+    }
+
+    /**
+     * Reads GraphQL pages starting after {@code after} only until {@code limit} repositories are collected,
+     * the returned position pairs the cursor a page was requested with and the offset within it.
+     */
+    private Mono<Optional<PageCursor>> collectRepositories(String username, String after, int offset, FilterPredicate filter,
+                                                           int limit, List<RepositoryNode> collected) {
+        return gitHubClient.fetchRepositories(username, after)
+                .flatMap(data -> {
+                    Connection<RepositoryNode> connection = data.getRepositoryOwner().getRepositories();
+                    List<RepositoryNode> nodes = nodesOf(connection);
+                    int index = offset;
+                    while (index < nodes.size() && collected.size() < limit) {
+                        RepositoryNode node = nodes.get(index++);
+                        if (filter.test(graphQlMapper.toGitHubRepo(node))) {
+                            collected.add(node);
+                        }
+                    }
+                    Connection.PageInfo pageInfo = connection.getPageInfo();
+                    if (index < nodes.size()) {
+                        return Mono.just(Optional.of(new PageCursor(after == null ? "" : after, index)));
+                    } else if (!pageInfo.isHasNextPage()) {
+                        return Mono.just(Optional.<PageCursor>empty());
+                    } else if (collected.size() == limit) {
+                        return Mono.just(Optional.of(new PageCursor(pageInfo.getEndCursor(), 0)));
+                    }
+                    return collectRepositories(username, pageInfo.getEndCursor(), 0, filter, limit, collected);
+                });
+    }
+
+    private Flux<RepositoryNode> getRepositories(String username) {
+        return gitHubClient.fetchRepositories(username, null)
+                .expand(data -> {
+                    Connection.PageInfo pageInfo = data.getRepositoryOwner().getRepositories().getPageInfo();
+                    return pageInfo.isHasNextPage()
+                            ? gitHubClient.fetchRepositories(username, pageInfo.getEndCursor())
+                            : Mono.empty();
+                })
+                .flatMapIterable(data -> data.getRepositoryOwner().getRepositories().getNodes());
+    }
+
+    private Mono<RepoDetails> fillRepoDetails(RepositoryNode node) {
+        return getRefs(node)
+                .collectList()
+                .map(graphQlMapper::toGitHubBranches)
+                .map(branchDetailsMapper::clientListToApiList)
+                .map(branches -> {
+                            GitHubRepo gitHubRepo = graphQlMapper.toGitHubRepo(node);
+                            RepoDetails repoDetails = repoDetailsMapper.toRepoDetails(gitHubRepo);
+                            repoDetails.setBranchDetailsList(branches);
+                            return repoDetails;
+                        }
+                );
+    }
+
+    private Flux<RepositoryNode.RefNode> getRefs(RepositoryNode node) {
+        Connection<RepositoryNode.RefNode> refs = node.getRefs();
+        if (refs == null) {
+            return Flux.empty();
+        }
+        Flux<RepositoryNode.RefNode> firstPage = Flux.fromIterable(nodesOf(refs));
+        if (!refs.getPageInfo().isHasNextPage()) {
+            return firstPage;
+        }
+        String owner = node.getOwner().getLogin();
+        // the repository may be deleted or renamed between the pages, fetchRefs reports that as not found
+        Flux<RepositoryNode.RefNode> nextPages = fetchRefs(owner, node.getName(), refs.getPageInfo().getEndCursor())
+                .expand(nextRefs -> nextRefs.getPageInfo().isHasNextPage()
+                        ? fetchRefs(owner, node.getName(), nextRefs.getPageInfo().getEndCursor())
+                        : Mono.empty())
+                .flatMapIterable(this::nodesOf);
+        return firstPage.concatWith(nextPages);
+    }
+
+    private <T> List<T> nodesOf(Connection<T> connection) {
+        return connection.getNodes() == null ? List.of() : connection.getNodes();
+    }
+}
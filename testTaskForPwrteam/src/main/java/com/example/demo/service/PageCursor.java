@@ -0,0 +1,39 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a user's repository list: the upstream page it falls on and the offset of the next repository within it.
+ * {@code page} is whatever token the service pages upstream with, empty for the first page.
+ */
+public record PageCursor(String page, int offset) {
+    public static final PageCursor FIRST = new PageCursor("", 0);
+
+    public String encode() {
+        String position = offset + ":" + page;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        String position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor value.", e);
+        }
+        int separator = position.indexOf(':');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Invalid cursor value.");
+        }
+        try {
+            int offset = Integer.parseInt(position.substring(0, separator));
+            if (offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor value.");
+            }
+            return new PageCursor(position.substring(separator + 1), offset);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor value.", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+import com.example.demo.model.api.RepoDetails;
+
+import java.util.List;
+
+/**
+ * One page of a user's repositories, {@code nextCursor} is null on the last one.
+ */
+public record RepoDetailsPage(List<RepoDetails> repositories, String nextCursor) {
+
+}
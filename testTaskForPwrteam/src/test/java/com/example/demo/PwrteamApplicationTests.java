@@ -2,19 +2,28 @@ package com.example.demo;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -83,21 +92,27 @@ class PwrteamApplicationTests {
 
     private static final String APP_EXPECTED_RESPONSE = "[{\"repoName\":\"catalog-service\",\"ownerLogin\":\"gshmalyukh\","
             + "\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-service-sha\"}]}]";
-    private static final String APP_EXPECTED_RESPONSE_ALL = "[{\"repoName\":\"catalog-client\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-client-sha\"}]},{\"repoName\":\"catalog-service\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-service-sha\"}]}]";
+    private static final String APP_EXPECTED_RESPONSE_ALL = "[{\"repoName\":\"catalog-service\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-service-sha\"}]},{\"repoName\":\"catalog-client\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-client-sha\"}]}]";
     private static final String APP_EXPECTED_RESPONSE_NONFORKED = "[{\"repoName\":\"catalog-service\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-service-sha\"}]}]";
     private static final String APP_EXPECTED_RESPONSE_FORKED = "[{\"repoName\":\"catalog-client\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-client-sha\"}]}]";
+    private static final String APP_EXPECTED_RESPONSE_NDJSON = "{\"repoName\":\"catalog-service\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-service-sha\"}]}\n"
+            + "{\"repoName\":\"catalog-client\",\"ownerLogin\":\"gshmalyukh\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"catalog-client-sha\"}]}\n";
     private static final String APP_NOT_FOUND_RESPONSE = "{\"message\":\"resource which you trying to obtain does not exist\",\"status\":404}";
-    private static final String APP_NOT_ACCEPTABLE_RESPONSE = "{\"message\":\"Application response only in application/json\",\"status\":406}";
+    private static final String APP_NOT_ACCEPTABLE_RESPONSE = "{\"message\":\"Application response only in application/json, application/x-ndjson or text/event-stream\",\"status\":406}";
     private static final String APP_UNAUTHORIZED_RESPONSE = "{\"message\":\"failed  authorization on github, please check your token \",\"status\":401}";
+    private static final int BRANCH_CONCURRENCY = 2;
     @LocalServerPort
     private int port;
     @Autowired
     private WebTestClient webClient;
+    @Autowired
+    private CacheManager cacheManager;
     private static WireMockServer wireMockServer;
+    private static final ConcurrencyListener concurrencyListener = new ConcurrencyListener();
 
     @BeforeAll
     static void setWiremokServer() {
-        wireMockServer = new WireMockServer();
+        wireMockServer = new WireMockServer(options().port(8080).extensions(concurrencyListener));
         wireMockServer.start();
     }
 
@@ -106,6 +121,12 @@ class PwrteamApplicationTests {
         wireMockServer.stop();
     }
 
+    // the tests reuse usernames with different stubs, so nothing cached by an earlier test may answer a later one
+    @BeforeEach
+    void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
     @Test
     void shouldReturnSuccessful() {
         WireMock.configureFor("localhost", 8080);
@@ -156,6 +177,110 @@ class PwrteamApplicationTests {
                 isEqualTo(APP_EXPECTED_RESPONSE);
     }
 
+    @Test
+    void shouldStreamNdjson() {
+        WireMock.configureFor("localhost", 8080);
+        stubFor(get(urlEqualTo("/users/gshmalyukh/repos?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(GITHUB_REPO_RESPONSE_WITH_FOCKED_NONFOCKED)
+                ));
+        stubFor(get(urlEqualTo("/repos/gshmalyukh/catalog-service/branches?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(GITHUB_BRANCH_RESPONSE)
+                ));
+        stubFor(get(urlEqualTo("/repos/gshmalyukh/catalog-client/branches?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(GITHUB_BRANCH_RESPONSE_FOR_CATALOG_CLIENT)
+                ));
+
+        this.webClient.get().
+                uri("http://localhost:8081/users/gshmalyukh/repositories")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange().expectStatus()
+                .isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).
+                isEqualTo(APP_EXPECTED_RESPONSE_NDJSON);
+    }
+
+    @Test
+    void shouldDecodePageLargerThanInMemoryLimit() {
+        WireMock.configureFor("localhost", 8080);
+        String unusedFields = "\"description\": \"" + "x".repeat(1_000) + "\", \"topics\": [\"a\", \"b\"], "
+                + "\"license\": {\"key\": \"mit\", \"name\": \"MIT License\"}";
+        StringBuilder repos = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            repos.append(i == 0 ? "" : ",").append("""
+                    {"id": %d, "name": "repo-%d", "owner": {"login": "large"}, "fork": false, %s,
+                     "branches_url": "http://localhost:8080/repos/large/repo-%d/branches{/branch}"}
+                    """.formatted(i, i, unusedFields, i));
+        }
+        stubFor(get(urlEqualTo("/users/large/repos?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(repos.append("]").toString())
+                ));
+
+        // the page is about 550 KB, above the 256 KB codec limit an aggregating decoder would hit
+        this.webClient.get().
+                uri("http://localhost:8081/users/large/repositories?filter=forked").
+                exchange().expectStatus()
+                .isOk()
+                .expectBody(String.class).
+                isEqualTo("[]");
+    }
+
+    @Test
+    void shouldReturnNotModifiedForMatchingEtag() {
+        WireMock.configureFor("localhost", 8080);
+        stubFor(get(urlEqualTo("/users/etaguser/repos?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("ETag", "etaguser-repoetag")
+                        .withBody(GITHUB_REPO_RESPONSE)
+                ));
+        stubFor(get(urlEqualTo("/repos/gshmalyukh/catalog-service/branches?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("ETag", "branchetag")
+                        .withBody(GITHUB_BRANCH_RESPONSE)
+                ));
+
+        String etag = this.webClient.get().
+                uri("http://localhost:8081/users/etaguser/repositories").
+                exchange().expectStatus()
+                .isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+
+        this.webClient.get().
+                uri("http://localhost:8081/users/etaguser/repositories")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange().expectStatus()
+                .isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+
+        this.webClient.get().
+                uri("http://localhost:8081/users/etaguser/repositories")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/" + etag)
+                .exchange().expectStatus()
+                .isNotModified();
+
+        // both answers came from the assembled response, GitHub was asked once
+        verify(1, getRequestedFor(urlEqualTo("/users/etaguser/repos?per_page=3")));
+    }
+
     @Test
     void shouldCheckFilter() {
         WireMock.configureFor("localhost", 8080);
@@ -231,6 +356,15 @@ class PwrteamApplicationTests {
                 isEqualTo(APP_NOT_ACCEPTABLE_RESPONSE);
     }
 
+    @Test
+    void shouldReturnNotAcceptableWhenJsonIsRuledOutByQuality() {
+        this.webClient.get().
+                uri("http://localhost:8081/users/gshmalyukh/repositories")
+                .header("Accept", "application/xml, application/json;q=0")
+                .exchange().expectStatus()
+                .isEqualTo(406);
+    }
+
     @Test
     void shouldReturnUnauthorized() {
         WireMock.configureFor("localhost", 8080);
@@ -247,4 +381,120 @@ class PwrteamApplicationTests {
                 .expectBody(String.class).
                 isEqualTo(APP_UNAUTHORIZED_RESPONSE);
     }
+
+    @Test
+    void shouldBoundBranchConcurrency() {
+        WireMock.configureFor("localhost", 8080);
+        StringBuilder repos = new StringBuilder("[");
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 0; i < 6; i++) {
+            String name = "repo-" + i;
+            repos.append(i == 0 ? "" : ",").append("""
+                    {"id": %d, "name": "%s", "owner": {"login": "concurrent"}, "fork": false,
+                     "branches_url": "http://localhost:8080/repos/concurrent/%s/branches{/branch}"}
+                    """.formatted(i, name, name));
+            expected.append(i == 0 ? "" : ",").append("{\"repoName\":\"").append(name)
+                    .append("\",\"ownerLogin\":\"concurrent\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"")
+                    .append(name).append("-sha\"}]}");
+            stubFor(get(urlEqualTo("/repos/concurrent/" + name + "/branches?per_page=3"))
+                    .willReturn(aResponse()
+                            .withStatus(200)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("[{\"name\": \"main\", \"commit\": {\"sha\": \"" + name + "-sha\"}}]")
+                            // later repos answer faster, the response must still keep the GitHub order
+                            .withFixedDelay(300 - i * 40)
+                    ));
+        }
+        stubFor(get(urlEqualTo("/users/concurrent/repos?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(repos.append("]").toString())
+                ));
+        concurrencyListener.reset();
+
+        this.webClient.get().
+                uri("http://localhost:8081/users/concurrent/repositories").
+                exchange().expectStatus()
+                .isOk()
+                .expectBody(String.class).
+                isEqualTo(expected.append("]").toString());
+
+        LOGGER.info("peak concurrent branch requests: {}", concurrencyListener.getPeak());
+        assertThat(concurrencyListener.getPeak()).isEqualTo(BRANCH_CONCURRENCY);
+    }
+
+    @Test
+    void shouldExposePipelineMetricsForPrometheus() {
+        WireMock.configureFor("localhost", 8080);
+        stubFor(get(urlEqualTo("/users/metrics/repos?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(GITHUB_REPO_RESPONSE)
+                ));
+        stubFor(get(urlEqualTo("/repos/gshmalyukh/catalog-service/branches?per_page=3"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(GITHUB_BRANCH_RESPONSE)
+                ));
+        this.webClient.get().
+                uri("http://localhost:8081/users/metrics/repositories").
+                exchange().expectStatus()
+                .isOk();
+
+        String scrape = this.webClient.get().
+                uri("http://localhost:8081/actuator/prometheus").
+                header(HttpHeaders.ACCEPT, "text/plain;version=0.0.4").
+                exchange().expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(scrape)
+                .contains("github_client_requests_seconds_count{status=\"200\",type=\"repo\"}")
+                .contains("github_handler_requests_seconds_count{route=\"/users/{username}/repositories\",status=\"200\"}")
+                .contains("github_request_fanout_count{route=\"/users/{username}/repositories\"}")
+                .contains("github_repositories_first_item_seconds_count")
+                .contains("github_cache_gets_total{cache=\"pages\",result=\"miss\"}")
+                .doesNotContain("metrics/repos");
+    }
+
+    static class ConcurrencyListener implements ServeEventListener {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+
+        @Override
+        public void beforeMatch(ServeEvent serveEvent, Parameters parameters) {
+            if (isBranchRequest(serveEvent)) {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            }
+        }
+
+        @Override
+        public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
+            if (isBranchRequest(serveEvent)) {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "concurrency-listener";
+        }
+
+        int getPeak() {
+            return peak.get();
+        }
+
+        void reset() {
+            inFlight.set(0);
+            peak.set(0);
+        }
+
+        private boolean isBranchRequest(ServeEvent serveEvent) {
+            return serveEvent.getRequest().getUrl().contains("/branches");
+        }
+    }
 }
@@ -0,0 +1,194 @@
+package com.example.demo.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * In-process server speaking the RESP2 subset the cache uses: GET, SET with EX/PX, DEL, PUBLISH and SUBSCRIBE,
+ * plus the PING/CLIENT/SELECT handshake. HELLO is refused so clients fall back to RESP2.
+ */
+class FakeRedisServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, Set<Connection>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Socket> sockets = new CopyOnWriteArraySet<>();
+
+    FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fake-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    Set<String> keys() {
+        return values.keySet();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                Thread handler = new Thread(() -> serve(new Connection(socket)), "fake-redis-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Connection connection) {
+        try {
+            List<byte[]> command;
+            while ((command = connection.readCommand()) != null) {
+                handle(connection, command);
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            subscribers.values().forEach(connections -> connections.remove(connection));
+        }
+    }
+
+    private void handle(Connection connection, List<byte[]> command) throws IOException {
+        String name = new String(command.get(0), StandardCharsets.UTF_8).toUpperCase();
+        switch (name) {
+            case "PING" -> connection.write("+PONG\r\n");
+            case "CLIENT", "SELECT", "AUTH", "QUIT" -> connection.write("+OK\r\n");
+            case "GET" -> connection.writeBulk(values.get(string(command.get(1))));
+            case "SET" -> {
+                values.put(string(command.get(1)), command.get(2));
+                connection.write("+OK\r\n");
+            }
+            case "DEL" -> {
+                int removed = 0;
+                for (byte[] key : command.subList(1, command.size())) {
+                    removed += values.remove(string(key)) == null ? 0 : 1;
+                }
+                connection.write(":" + removed + "\r\n");
+            }
+            case "PUBLISH" -> {
+                Set<Connection> receivers = subscribers.getOrDefault(string(command.get(1)), Set.of());
+                for (Connection receiver : receivers) {
+                    receiver.writeArray("message".getBytes(StandardCharsets.UTF_8), command.get(1), command.get(2));
+                }
+                connection.write(":" + receivers.size() + "\r\n");
+            }
+            case "SUBSCRIBE", "UNSUBSCRIBE" -> {
+                for (byte[] channel : command.subList(1, command.size())) {
+                    Set<Connection> connections = subscribers.computeIfAbsent(string(channel), key -> new CopyOnWriteArraySet<>());
+                    if (name.equals("SUBSCRIBE")) {
+                        connections.add(connection);
+                    } else {
+                        connections.remove(connection);
+                    }
+                    connection.writeSubscription(name.toLowerCase(), channel, connections.contains(connection) ? 1 : 0);
+                }
+            }
+            default -> connection.write("-ERR unknown command '" + name + "'\r\n");
+        }
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Connection {
+        private final InputStream in;
+        private final OutputStream out;
+
+        private Connection(Socket socket) {
+            try {
+                this.in = new BufferedInputStream(socket.getInputStream());
+                this.out = socket.getOutputStream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private List<byte[]> readCommand() throws IOException {
+            String header = readLine();
+            if (header == null) {
+                return null;
+            }
+            int count = Integer.parseInt(header.substring(1));
+            List<byte[]> arguments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = Integer.parseInt(readLine().substring(1));
+                arguments.add(in.readNBytes(length));
+                in.readNBytes(2);
+            }
+            return arguments;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\r') {
+                    in.read();
+                    return line.toString(StandardCharsets.UTF_8);
+                }
+                line.write(b);
+            }
+            return null;
+        }
+
+        private synchronized void write(String reply) throws IOException {
+            out.write(reply.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        private synchronized void writeBulk(byte[] value) throws IOException {
+            if (value == null) {
+                write("$-1\r\n");
+                return;
+            }
+            out.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.write(value);
+            out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        private synchronized void writeArray(byte[]... elements) throws IOException {
+            out.write(("*" + elements.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+            for (byte[] element : elements) {
+                writeBulk(element);
+            }
+        }
+
+        private synchronized void writeSubscription(String kind, byte[] channel, int count) throws IOException {
+            out.write("*3\r\n".getBytes(StandardCharsets.UTF_8));
+            writeBulk(kind.getBytes(StandardCharsets.UTF_8));
+            writeBulk(channel);
+            write(":" + count + "\r\n");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MeteredCacheUnitTest {
+    private static final String PAGE_URI = "https://api.github.com/users/octocat/repos?per_page=3";
+
+    @Test
+    void shouldCountHitsMissesPutsAndEvictions() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MeteredCache cache = new MeteredCache(new ConcurrentMapCache("etags"), meterRegistry);
+
+        cache.get(PAGE_URI, String.class);
+        cache.put(PAGE_URI, "\"v1\"");
+        cache.get(PAGE_URI, String.class);
+        cache.get(PAGE_URI, () -> "\"v2\"");
+        cache.evict(PAGE_URI);
+
+        assertEquals(2, meterRegistry.counter("github.cache.gets", "cache", "etags", "result", "hit").count());
+        assertEquals(1, meterRegistry.counter("github.cache.gets", "cache", "etags", "result", "miss").count());
+        assertEquals(1, meterRegistry.counter("github.cache.puts", "cache", "etags").count());
+        assertEquals(1, meterRegistry.counter("github.cache.evictions", "cache", "etags").count());
+    }
+}
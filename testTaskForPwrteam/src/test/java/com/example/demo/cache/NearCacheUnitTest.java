@@ -0,0 +1,124 @@
+package com.example.demo.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NearCacheUnitTest {
+    private static final Duration TIMEOUT = Duration.ofMillis(500);
+
+    private final ConcurrentMapCache local = new ConcurrentMapCache("etags");
+    private final NearCache nearCache = new NearCache(new LocalReactiveCache(local), new UnresponsiveCache(),
+            (cache, key) -> Mono.never(), TIMEOUT, new RemoteWriteQueue());
+
+    @Test
+    void get_unresponsiveRemote_missesAfterTimeout() {
+        StepVerifier.create(nearCache.get("key", String.class))
+                .expectSubscription()
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void putAndEvict_unresponsiveRemote_completeWithoutWaiting() {
+        StepVerifier.create(nearCache.put("key", "\"v1\""))
+                .expectComplete()
+                .verify(TIMEOUT.dividedBy(2));
+        assertEquals("\"v1\"", local.get("key", String.class));
+
+        StepVerifier.create(nearCache.evict("key"))
+                .expectComplete()
+                .verify(TIMEOUT.dividedBy(2));
+        assertNull(local.get("key"));
+    }
+
+    @Test
+    void put_writesThePageToTheRemoteTierBeforeItsEtag() {
+        RemoteWriteQueue remoteWrites = new RemoteWriteQueue();
+        List<String> remoteLog = new CopyOnWriteArrayList<>();
+        Sinks.Empty<Void> pageWritten = Sinks.empty();
+        NearCache pages = new NearCache(new LocalReactiveCache(new ConcurrentMapCache("pages")),
+                new RecordingCache("pages", remoteLog, pageWritten.asMono()), (cache, key) -> Mono.empty(), TIMEOUT, remoteWrites);
+        NearCache etags = new NearCache(new LocalReactiveCache(local),
+                new RecordingCache("etags", remoteLog, Mono.empty()), (cache, key) -> Mono.empty(), TIMEOUT, remoteWrites);
+
+        pages.put("uri", "page").then(etags.put("uri", "\"v1\"")).block();
+        assertEquals(List.of("pages"), remoteLog);
+
+        pageWritten.tryEmitEmpty();
+        assertEquals(List.of("pages", "etags"), remoteLog);
+    }
+
+    @Test
+    void put_dropsTheRemoteEtagWhenItsPageWasNotWritten() {
+        RemoteWriteQueue remoteWrites = new RemoteWriteQueue();
+        List<String> remoteLog = new CopyOnWriteArrayList<>();
+        Sinks.Empty<Void> pageWritten = Sinks.empty();
+        NearCache pages = new NearCache(new LocalReactiveCache(new ConcurrentMapCache("pages")),
+                new RecordingCache("pages", remoteLog, pageWritten.asMono()), (cache, key) -> Mono.empty(), TIMEOUT, remoteWrites);
+        NearCache etags = new NearCache(new LocalReactiveCache(local),
+                new RecordingCache("etags", remoteLog, Mono.empty()), (cache, key) -> Mono.empty(), TIMEOUT, remoteWrites);
+
+        pages.put("uri", "page").then(etags.put("uri", "\"v1\"")).block();
+        pageWritten.tryEmitError(new IllegalStateException("connection reset"));
+
+        assertEquals(List.of("pages"), remoteLog);
+        assertEquals("\"v1\"", local.get("uri", String.class));
+    }
+
+    private record RecordingCache(String name, List<String> remoteLog, Mono<Void> written) implements ReactiveCache {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public <T> Mono<T> get(String key, Class<T> type) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> put(String key, Object value) {
+            return Mono.defer(() -> {
+                remoteLog.add(name);
+                return written;
+            });
+        }
+
+        @Override
+        public Mono<Void> evict(String key) {
+            return Mono.empty();
+        }
+    }
+
+    private static class UnresponsiveCache implements ReactiveCache {
+        @Override
+        public String getName() {
+            return "etags";
+        }
+
+        @Override
+        public <T> Mono<T> get(String key, Class<T> type) {
+            return Mono.never();
+        }
+
+        @Override
+        public Mono<Void> put(String key, Object value) {
+            return Mono.never();
+        }
+
+        @Override
+        public Mono<Void> evict(String key) {
+            return Mono.never();
+        }
+    }
+}
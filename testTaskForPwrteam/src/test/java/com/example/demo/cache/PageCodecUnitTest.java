@@ -0,0 +1,49 @@
+package com.example.demo.cache;
+
+import com.example.demo.model.client.GitHubBranch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PageCodecUnitTest {
+
+    @Test
+    void shouldCompressLargePagesAndDecodeThemBack() throws Exception {
+        PageCodec pageCodec = new PageCodec(new ObjectMapper());
+        pageCodec.setCompress(true);
+        List<GitHubBranch> branches = IntStream.range(0, 100).mapToObj(this::branch).toList();
+
+        CompactPage page = pageCodec.encode(branches);
+
+        assertTrue(page.compressed());
+        assertTrue(page.bytes().length < new ObjectMapper().writeValueAsBytes(branches).length / 2);
+        assertEquals(100, page.size());
+        assertEquals(branches, pageCodec.decode(page, GitHubBranch.class));
+    }
+
+    @Test
+    void shouldKeepSmallPagesUncompressed() {
+        PageCodec pageCodec = new PageCodec(new ObjectMapper());
+        pageCodec.setCompress(true);
+
+        CompactPage page = pageCodec.encode(List.of(branch(1)));
+
+        assertFalse(page.compressed());
+        assertEquals(List.of(branch(1)), pageCodec.decode(page, GitHubBranch.class));
+    }
+
+    private GitHubBranch branch(int index) {
+        GitHubBranch branch = new GitHubBranch();
+        branch.setName("feature-" + index);
+        GitHubBranch.Commit commit = new GitHubBranch.Commit();
+        commit.setSha("7fd1a60b01f91b314f59955a4e4d4e80d8edf11d");
+        branch.setCommit(commit);
+        return branch;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.cache;
+
+import com.example.demo.model.client.GitHubRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.awaitility.Awaitility.await;
+
+public class RedisReactiveCacheManagerUnitTest {
+    private static final String PAGE_URI = "https://api.github.com/users/octocat/repos?per_page=3";
+
+    private FakeRedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private ConcurrentMapCacheManager firstLocal;
+    private ConcurrentMapCacheManager secondLocal;
+    private RedisReactiveCacheManager firstReplica;
+    private RedisReactiveCacheManager secondReplica;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = new FakeRedisServer();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", redisServer.getPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        firstLocal = new ConcurrentMapCacheManager("pages", "etags", "nextUris");
+        secondLocal = new ConcurrentMapCacheManager("pages", "etags", "nextUris");
+        firstReplica = replica(firstLocal);
+        secondReplica = replica(secondLocal);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        firstReplica.preDestroy();
+        secondReplica.preDestroy();
+        connectionFactory.destroy();
+        redisServer.close();
+    }
+
+    @Test
+    void shouldShareEntriesThroughRemoteTierAndFillNearCache() {
+        PageCodec pageCodec = new PageCodec(new ObjectMapper());
+        CompactPage page = pageCodec.encode(List.of(repo("Hello-World")));
+
+        StepVerifier.create(firstReplica.getCache("pages").put(PAGE_URI, page)
+                        .then(firstReplica.getCache("etags").put(PAGE_URI, "\"v1\"")))
+                .verifyComplete();
+        // remote writes are fire-and-forget, the shared tier catches up shortly after
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> redisServer.keys().contains("github:cache:etags:" + PAGE_URI));
+
+        StepVerifier.create(secondReplica.getCache("pages").get(PAGE_URI, CompactPage.class))
+                .assertNext(shared -> assertEquals(List.of(repo("Hello-World")), pageCodec.decode(shared, GitHubRepo.class)))
+                .verifyComplete();
+        StepVerifier.create(secondReplica.getCache("etags").get(PAGE_URI, String.class))
+                .expectNext("\"v1\"")
+                .verifyComplete();
+        assertEquals("\"v1\"", secondLocal.getCache("etags").get(PAGE_URI, String.class));
+        assertTrue(redisServer.keys().contains("github:cache:etags:" + PAGE_URI));
+    }
+
+    @Test
+    void shouldInvalidateOtherReplicasNearCacheOnWrite() {
+        StepVerifier.create(firstReplica.getCache("etags").put(PAGE_URI, "\"v1\""))
+                .verifyComplete();
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> StepVerifier.create(secondReplica.getCache("etags").get(PAGE_URI, String.class))
+                        .expectNext("\"v1\"")
+                        .verifyComplete());
+
+        StepVerifier.create(firstReplica.getCache("etags").put(PAGE_URI, "\"v2\""))
+                .verifyComplete();
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertNull(secondLocal.getCache("etags").get(PAGE_URI)));
+        StepVerifier.create(secondReplica.getCache("etags").get(PAGE_URI, String.class))
+                .expectNext("\"v2\"")
+                .verifyComplete();
+        assertEquals("\"v2\"", firstLocal.getCache("etags").get(PAGE_URI, String.class));
+    }
+
+    private RedisReactiveCacheManager replica(ConcurrentMapCacheManager local) {
+        RedisReactiveCacheManager replica = new RedisReactiveCacheManager(local, connectionFactory, new ObjectMapper());
+        replica.setKeyPrefix("github:cache:");
+        replica.setExpireAfterWriteInMin(60);
+        replica.setTimeoutInMillis(1000);
+        replica.postConstruct();
+        replica.subscribed().block(Duration.ofSeconds(5));
+        return replica;
+    }
+
+    private GitHubRepo repo(String name) {
+        GitHubRepo repo = new GitHubRepo();
+        repo.setId("1");
+        repo.setName(name);
+        GitHubRepo.Owner owner = new GitHubRepo.Owner();
+        owner.setLogin("octocat");
+        repo.setOwner(owner);
+        return repo;
+    }
+}
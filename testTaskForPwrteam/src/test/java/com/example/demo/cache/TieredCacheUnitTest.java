@@ -0,0 +1,128 @@
+package com.example.demo.cache;
+
+import com.example.demo.model.client.GitHubRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TieredCacheUnitTest {
+    private static final String URI = "http://localhost:8080/users/octocat/repos?per_page=3";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper VALUE_MAPPER = CacheValueMapper.typed(OBJECT_MAPPER);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldServePagesFromDiskAfterRestart() throws Exception {
+        DiskCacheStore disk = store("pages");
+        TieredCache cache = new TieredCache(new ConcurrentMapCache("pages"), disk, new SimpleMeterRegistry());
+        cache.put(URI, new ArrayList<>(List.of(repo("Hello-World"), repo("Spoon-Knife"))));
+        cache.put("compact", new PageCodec(OBJECT_MAPPER).encode(List.of(repo("Hello-World"))));
+        cache.put("evicted", new ArrayList<>(List.of(repo("gone"))));
+        cache.evict("evicted");
+        disk.close();
+
+        DiskCacheStore reopened = store("pages");
+        ConcurrentMapCache heap = new ConcurrentMapCache("pages");
+        TieredCache restarted = new TieredCache(heap, reopened, new SimpleMeterRegistry());
+        reopened.load().get(5, TimeUnit.SECONDS);
+
+        List<?> page = restarted.get(URI, List.class);
+        assertEquals(List.of(repo("Hello-World"), repo("Spoon-Knife")), page);
+        assertEquals(page, heap.get(URI, List.class));
+        assertNull(restarted.get("evicted"));
+        assertEquals(List.of(repo("Hello-World")),
+                new PageCodec(OBJECT_MAPPER).decode(restarted.get("compact", CompactPage.class), GitHubRepo.class));
+        reopened.close();
+    }
+
+    @Test
+    void shouldWarmHeapWithMostRecentEntries() throws Exception {
+        DiskCacheStore disk = store("etags");
+        TieredCache cache = new TieredCache(new ConcurrentMapCache("etags"), disk, new SimpleMeterRegistry());
+        cache.put("cold", "\"1\"");
+        Thread.sleep(5);
+        cache.put("hot", "\"2\"");
+        disk.close();
+
+        DiskCacheStore reopened = store("etags");
+        ConcurrentMapCache heap = new ConcurrentMapCache("etags");
+        new TieredCache(heap, reopened, new SimpleMeterRegistry()).warm(1).get(5, TimeUnit.SECONDS);
+
+        assertEquals("\"2\"", heap.get("hot", String.class));
+        assertNull(heap.get("cold"));
+        reopened.close();
+    }
+
+    @Test
+    void shouldCompactOverwrittenEntries() throws Exception {
+        DiskCacheStore disk = store("nextUris");
+        String padding = "x".repeat(1024);
+        for (int i = 0; i < 200; i++) {
+            disk.put("next", padding + i);
+        }
+        disk.load().get(5, TimeUnit.SECONDS);
+
+        assertTrue(Files.size(directory.resolve("nextUris.log")) < 64 * 1024);
+        assertEquals(padding + 199, disk.get("next").orElseThrow());
+        disk.close();
+    }
+
+    @Test
+    void shouldReadTieredCachesOffTheCallingThread() throws Exception {
+        DiskCacheStore disk = store("etags");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TieredCache tiered = new TieredCache(new ConcurrentMapCache("etags"), disk, meterRegistry);
+        tiered.put("hot", "\"1\"");
+
+        StepVerifier.create(new LocalReactiveCache(new MeteredCache(tiered, meterRegistry)).get("hot", String.class)
+                        .map(etag -> Thread.currentThread().getName()))
+                .expectNextMatches(thread -> thread.startsWith("boundedElastic"))
+                .verifyComplete();
+        StepVerifier.create(new LocalReactiveCache(new ConcurrentMapCache("heap")).get("hot", String.class))
+                .verifyComplete();
+        disk.close();
+    }
+
+    @Test
+    void shouldClearDiskEntries() throws Exception {
+        DiskCacheStore disk = store("etags");
+        disk.put("hot", "\"1\"");
+        disk.clear();
+        disk.load().get(5, TimeUnit.SECONDS);
+
+        assertTrue(disk.get("hot").isEmpty());
+        assertEquals(0, Files.size(directory.resolve("etags.log")));
+        disk.close();
+    }
+
+    private DiskCacheStore store(String name) throws IOException {
+        return new DiskCacheStore(directory, name, OBJECT_MAPPER, VALUE_MAPPER, TimeUnit.HOURS.toMillis(1), 0.5);
+    }
+
+    private GitHubRepo repo(String name) {
+        GitHubRepo repo = new GitHubRepo();
+        repo.setId(name.hashCode() + "");
+        repo.setName(name);
+        GitHubRepo.Owner owner = new GitHubRepo.Owner();
+        owner.setLogin("octocat");
+        repo.setOwner(owner);
+        repo.setBranchesUrl("https://api.github.com/repos/octocat/" + name + "/branches{/branch}");
+        return repo;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.client;
+
+import com.example.demo.problem.ServiceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimiterUnitTest {
+
+    @Test
+    void shouldQueueCallsBeyondTheLimitUntilASlotFrees() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConcurrencyLimiter limiter = limiter(meterRegistry, 1);
+        Sinks.One<String> first = Sinks.one();
+
+        StepVerifier.create(limiter.limited(first.asMono()))
+                .then(() -> {
+                    StepVerifier.create(limiter.limited(Mono.just("second")))
+                            .then(() -> {
+                                assertEquals(1.0, meterRegistry.get("github.client.concurrency.inflight").gauge().value());
+                                assertEquals(1.0, meterRegistry.get("github.client.concurrency.queued").gauge().value());
+                                first.tryEmitValue("first");
+                            })
+                            .expectNext("second")
+                            .verifyComplete();
+                })
+                .expectNext("first")
+                .verifyComplete();
+
+        assertEquals(0, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+    }
+
+    @Test
+    void shouldRejectQueuedCallOnceTheRequestDeadlinePasses() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConcurrencyLimiter limiter = limiter(meterRegistry, 1);
+        limiter.limited(Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limited(Mono.just("queued"))
+                        .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, System.currentTimeMillis() + 200)))
+                .expectError(ServiceException.class)
+                .verify(Duration.ofSeconds(2));
+
+        assertEquals(0, limiter.queued());
+        assertEquals(1.0, meterRegistry.get("github.client.concurrency.rejections").tag("reason", "deadline").counter().count());
+    }
+
+    @Test
+    void shouldLetACallThatGotItsSlotOutlastTheDeadline() {
+        ConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 1);
+
+        StepVerifier.create(limiter.limited(Mono.just("slow").delayElement(Duration.ofMillis(300)))
+                        .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, System.currentTimeMillis() + 100)))
+                .expectNext("slow")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldLeaveASharedCallWaitingWhenOneSubscribersDeadlinePasses() {
+        ConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 1);
+        Sinks.One<String> occupying = Sinks.one();
+        limiter.limited(occupying.asMono()).subscribe();
+        ConcurrencyLimiter.Waits waits = new ConcurrencyLimiter.Waits();
+        Mono<String> shared = limiter.limited(Mono.just("shared"))
+                .contextWrite(context -> ConcurrencyLimiter.sharedBy(context, waits))
+                .cache();
+        long now = System.currentTimeMillis();
+        Mono.delay(Duration.ofMillis(300)).subscribe(ignored -> occupying.tryEmitValue("done"));
+
+        StepVerifier.create(Flux.merge(
+                        limiter.withinDeadline(shared, waits)
+                                .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, now + 100))
+                                .onErrorReturn(ServiceException.class, "rejected"),
+                        limiter.withinDeadline(shared, waits)
+                                .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, now + 5_000))))
+                .expectNext("rejected", "shared")
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shouldNotCutOffASharedStreamThatOutlastsTheDeadline() {
+        ConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 1);
+        ConcurrencyLimiter.Waits waits = new ConcurrencyLimiter.Waits();
+        Flux<Integer> stream = Flux.range(0, 5)
+                .concatMap(i -> limiter.limited(Mono.just(i).delayElement(Duration.ofMillis(100))))
+                .contextWrite(context -> ConcurrencyLimiter.sharedBy(context, waits));
+
+        StepVerifier.create(limiter.withinDeadline(stream, waits)
+                        .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, System.currentTimeMillis() + 150)))
+                .expectNext(0, 1, 2, 3, 4)
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shouldFailASharedStreamOnceOneOfItsCallsWaitsPastTheDeadline() {
+        ConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 1);
+        // the first call would otherwise grow the limit and leave room for the second
+        limiter.setMaxLimit(1);
+        Sinks.One<String> occupying = Sinks.one();
+        ConcurrencyLimiter.Waits waits = new ConcurrencyLimiter.Waits();
+        Flux<String> stream = limiter.limited(Mono.just("first").delayElement(Duration.ofMillis(200)))
+                .doOnNext(ignored -> limiter.limited(occupying.asMono()).subscribe())
+                .concatWith(limiter.limited(Mono.just("second")))
+                .contextWrite(context -> ConcurrencyLimiter.sharedBy(context, waits));
+
+        StepVerifier.create(limiter.withinDeadline(stream, waits)
+                        .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, System.currentTimeMillis() + 100)))
+                .expectNext("first")
+                .expectError(ServiceException.class)
+                .verify(Duration.ofSeconds(2));
+        occupying.tryEmitValue("done");
+    }
+
+    @Test
+    void shouldHalveTheLimitOnSecondaryRateLimit() {
+        ConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 8);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "60");
+
+        StepVerifier.create(limiter.limited(Mono.error(WebClientResponseException.create(
+                        HttpStatus.FORBIDDEN.value(), "Forbidden", headers, new byte[0], null))))
+                .expectError(WebClientResponseException.class)
+                .verify();
+
+        assertEquals(4.0, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void shouldKeepTheLimitOnForbiddenWithoutRetryAfter() {
+        ConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 8);
+
+        StepVerifier.create(limiter.limited(Mono.error(WebClientResponseException.create(
+                        HttpStatus.FORBIDDEN.value(), "Forbidden", new HttpHeaders(), new byte[0], null))))
+                .expectError(WebClientResponseException.class)
+                .verify();
+
+        assertEquals(8.0, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void shouldGrowWhileLatencyIsFlatAndBackOffWhenItGrows() {
+        ConcurrencyLimiter limiter = limiter(new SimpleMeterRegistry(), 2);
+
+        Flux.range(0, 60)
+                .flatMap(i -> limiter.limited(Mono.delay(Duration.ofMillis(10))), 8)
+                .blockLast();
+        double grown = limiter.limit();
+        assertTrue(grown > 2, "limit should grow while latency is flat, was " + grown);
+
+        Flux.range(0, 10)
+                .flatMap(i -> limiter.limited(Mono.delay(Duration.ofMillis(100))), 8)
+                .blockLast();
+        assertTrue(limiter.limit() < grown, "limit should back off once latency grows, was " + limiter.limit());
+    }
+
+    private static ConcurrencyLimiter limiter(SimpleMeterRegistry meterRegistry, int initialLimit) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(meterRegistry);
+        limiter.setInitialLimit(initialLimit);
+        limiter.setMinLimit(1);
+        return limiter;
+    }
+}
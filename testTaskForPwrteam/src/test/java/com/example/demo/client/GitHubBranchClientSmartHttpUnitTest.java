@@ -0,0 +1,128 @@
+package com.example.demo.client;
+
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.problem.NotFoundException;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GitHubBranchClientSmartHttpUnitTest {
+    private static final String REFS_PATH = "/octocat/Hello-World.git/info/refs?service=git-upload-pack";
+    private static final int MAX_RETRY_ATTEMPTS = 1;
+    private static final int MIN_BACKOFF = 10;
+    private static final int MAX_BACKOFF_IN_SECONDS = 1;
+
+    private static WireMockServer fixtureServer;
+    private static byte[] advertisement;
+    private GitHubBranchClientSmartHttp gitHubBranchClient;
+
+    @BeforeAll
+    static void startFixtureServer() throws IOException {
+        try (InputStream inputStream = GitHubBranchClientSmartHttpUnitTest.class
+                .getResourceAsStream("/fixtures/hello-world-info-refs.pkt")) {
+            advertisement = inputStream.readAllBytes();
+        }
+        fixtureServer = new WireMockServer(options().dynamicPort());
+        fixtureServer.start();
+        fixtureServer.stubFor(get(urlEqualTo(REFS_PATH))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/x-git-upload-pack-advertisement")
+                        .withBody(advertisement)));
+        fixtureServer.stubFor(get(urlEqualTo("/octocat/missing.git/info/refs?service=git-upload-pack"))
+                .willReturn(aResponse().withStatus(404)));
+    }
+
+    @AfterAll
+    static void stopFixtureServer() {
+        fixtureServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        gitHubBranchClient = new GitHubBranchClientSmartHttp(WebClient.create(), new ClientMetrics(new SimpleMeterRegistry()));
+        gitHubBranchClient.setGitBaseUrl(fixtureServer.baseUrl());
+        gitHubBranchClient.setMaxRetryAttempts(MAX_RETRY_ATTEMPTS);
+        gitHubBranchClient.setMinBackOff(MIN_BACKOFF);
+        gitHubBranchClient.setMaxBackoffInSeconds(MAX_BACKOFF_IN_SECONDS);
+    }
+
+    @Test
+    void fetchBranches_shouldReturnOnlyHeads() {
+        StepVerifier.create(gitHubBranchClient.fetchBranches(repo("Hello-World")))
+                .expectNextMatches(branch -> isBranch(branch, "octocat-patch-1", "b1b3f9723831141a31a1a7252a213e216ea76e56"))
+                .expectNextMatches(branch -> isBranch(branch, "master", "7fd1a60b01f91b314f59955a4e4d4e80d8edf11d"))
+                .expectNextMatches(branch -> isBranch(branch, "test", "b3cbd5bbd7e81436d2eee04537ea2b4c0cad4cdf"))
+                .verifyComplete();
+    }
+
+    @Test
+    void fetchBranches_unknownRepo_returnsNotFound() {
+        StepVerifier.create(gitHubBranchClient.fetchBranches(repo("missing")))
+                .expectError(NotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void decode_shouldJoinLinesSplitAcrossBuffers() {
+        PktLineDecoder decoder = new PktLineDecoder();
+        List<String> lines = new ArrayList<>();
+        for (int offset = 0; offset < advertisement.length; offset += 7) {
+            byte[] chunk = Arrays.copyOfRange(advertisement, offset, Math.min(offset + 7, advertisement.length));
+            DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(chunk);
+            lines.addAll(decoder.decode(buffer));
+        }
+
+        assertEquals(8, lines.size());
+        assertEquals("# service=git-upload-pack\n", lines.get(0));
+        assertEquals("b3cbd5bbd7e81436d2eee04537ea2b4c0cad4cdf refs/heads/test\n", lines.get(4));
+    }
+
+    @Test
+    void decode_shouldGrowForLinesLongerThanItsBuffer() {
+        String payload = "x".repeat(20_000) + "\n";
+        byte[] stream = (String.format("%04x", payload.length() + 4) + payload + "0000").getBytes(StandardCharsets.US_ASCII);
+        PktLineDecoder decoder = new PktLineDecoder();
+        List<String> lines = new ArrayList<>();
+        for (int offset = 0; offset < stream.length; offset += 1000) {
+            byte[] chunk = Arrays.copyOfRange(stream, offset, Math.min(offset + 1000, stream.length));
+            lines.addAll(decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(chunk)));
+        }
+
+        assertEquals(List.of(payload), lines);
+    }
+
+    private boolean isBranch(GitHubBranch branch, String name, String sha) {
+        return branch.getName().equals(name) && branch.getCommit().getSha().equals(sha);
+    }
+
+    private GitHubRepo repo(String name) {
+        GitHubRepo.Owner owner = new GitHubRepo.Owner();
+        owner.setLogin("octocat");
+        GitHubRepo gitHubRepo = new GitHubRepo();
+        gitHubRepo.setName(name);
+        gitHubRepo.setOwner(owner);
+        return gitHubRepo;
+    }
+}
@@ -1,22 +1,41 @@
 package com.example.demo.client;
 
+import com.example.demo.jfr.Events;
+import com.example.demo.model.client.GitHubRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.demo.model.client.Page;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.BodyExtractor;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +60,16 @@ public class GitHubClientImplV1UnitTest {
     private WebClient.RequestHeadersSpec requestHeadersSpec;
     @Mock
     private WebClient.ResponseSpec responseSpec;
+    @Spy
+    private RateLimitScheduler rateLimitScheduler = new RateLimitScheduler(
+            new TokenPool(List.of("token"), null, 600, new SimpleMeterRegistry()), new SimpleMeterRegistry());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private ClientMetrics clientMetrics = new ClientMetrics(meterRegistry);
+    @Spy
+    private ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(meterRegistry);
+    @Spy
+    private PageDecoder pageDecoder = new PageDecoder(new ObjectMapper());
     @InjectMocks
     private GitHubClientImplV1 gitHubClient;
 
@@ -68,6 +97,14 @@ public class GitHubClientImplV1UnitTest {
         assertEquals(expectedUri, constructedUri);
     }
 
+    @Test
+    void constructBranchesUrl_encodesOwnerAndRepository() {
+        assertEquals("https://api.github.com/repos/octocat/Hello-World/branches",
+                gitHubClient.constructBranchesUrl("octocat", "Hello-World"));
+        assertEquals("https://api.github.com/repos/octo%2Fcat/hello%20world%3Fpage%3D2/branches",
+                gitHubClient.constructBranchesUrl("octo/cat", "hello world?page=2"));
+    }
+
     @Test
     void fetchPage_shouldReturnPage() {
         // Prepare mock data
@@ -87,19 +124,78 @@ public class GitHubClientImplV1UnitTest {
 
         // Mock WebClient behavior
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
-        when(requestHeadersUriSpec.uri(eq(uri))).thenReturn(requestHeadersSpec);
+        when(requestHeadersUriSpec.uri(eq(URI.create(uri)))).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header(eq("X-GitHub-Api-Version"), eq(X_GITHUB_API_VERSION))).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header(eq("if-none-match"), eq(pageEtag))).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toEntityList(eq(responseType)))
-                .thenReturn(Mono.just(new ResponseEntity<>(mockPage.getBody(), headers, HttpStatus.OK)));
+        when(responseSpec.toEntityFlux(any(BodyExtractor.class)))
+                .thenReturn(Mono.just(new ResponseEntity<>(body("[\"item1\",", " \"item2\"]"), headers, HttpStatus.OK)));
 
         // Call the method and verify results
-        StepVerifier.create(gitHubClient.fetchPage(uri, pageEtag, responseType))
+        StepVerifier.create(gitHubClient.fetchPage(uri, pageEtag, responseType, ClientMetrics.REPO))
                 .expectNextMatches(page -> page.getBody().equals(mockPage.getBody()) &&
                         page.getHeaders().equals(mockPage.getHeaders()) &&
                         page.getStatusCode().equals(mockPage.getStatusCode()) &&
                         page.getUri().equals(mockPage.getUri()))
                 .verifyComplete();
     }
+
+    @Test
+    void fetchPage_recordsAttemptAndCountsOutboundCall() {
+        String uri = "http://example.com";
+        AtomicInteger outboundCalls = new AtomicInteger();
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(eq(URI.create(uri)))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.header(eq("X-GitHub-Api-Version"), eq(X_GITHUB_API_VERSION))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(any(BodyExtractor.class)))
+                .thenReturn(Mono.just(new ResponseEntity<>(Flux.<DataBuffer>empty(), new HttpHeaders(), HttpStatus.NOT_MODIFIED)));
+
+        StepVerifier.create(gitHubClient.fetchPage(uri, null, GitHubRepo.class, ClientMetrics.REPO)
+                        .contextWrite(context -> context.put(ClientMetrics.OUTBOUND_CALLS, outboundCalls)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, outboundCalls.get());
+        assertEquals(1, meterRegistry.get("github.client.requests").tags("type", "repo", "status", "304").timer().count());
+    }
+
+    @Test
+    void fetchPage_emitsPageFetchEventWithCorrelationId() throws IOException {
+        String uri = BASE_URL + "/users/octocat/repos?per_page=3&page=2";
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(eq(URI.create(uri)))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.header(eq("X-GitHub-Api-Version"), eq(X_GITHUB_API_VERSION))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(any(BodyExtractor.class)))
+                .thenReturn(Mono.just(new ResponseEntity<>(Flux.<DataBuffer>empty(), new HttpHeaders(), HttpStatus.NOT_MODIFIED)));
+
+        Path dump = Files.createTempFile("page-fetch", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.demo.PageFetch");
+            recording.start();
+            StepVerifier.create(gitHubClient.fetchPage(uri, null, GitHubRepo.class, ClientMetrics.REPO)
+                            .contextWrite(context -> context.put(Events.CORRELATION_ID, "req-1")))
+                    .expectNextCount(1)
+                    .verifyComplete();
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("req-1", event.getString("correlationId"));
+            assertEquals("/users/{username}/repos", event.getString("uriTemplate"));
+            assertEquals(2, event.getInt("pageIndex"));
+            assertEquals(0, event.getInt("attempt"));
+            assertEquals(304, event.getInt("status"));
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static Flux<DataBuffer> body(String... chunks) {
+        return Flux.fromArray(chunks)
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
 }
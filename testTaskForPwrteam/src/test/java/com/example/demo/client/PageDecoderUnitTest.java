@@ -0,0 +1,103 @@
+package com.example.demo.client;
+
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+class PageDecoderUnitTest {
+    private static final String REPO_PAGE = """
+            [{"id": 1, "name": "Hello-World", "full_name": "octocat/Hello-World",
+              "owner": {"login": "octocat", "id": 583231, "site_admin": false, "plan": {"name": "pro"}},
+              "topics": ["octocat", "api"], "license": {"key": "mit", "spdx_id": "MIT"}, "fork": false,
+              "branches_url": "https://api.github.com/repos/octocat/Hello-World/branches{/branch}",
+              "pushed_at": "2011-01-26T19:06:43Z", "permissions": {"admin": false, "push": false}},
+             {"id": 2, "name": "Spoon-Knife", "owner": {"login": "octocat"}, "fork": true, "archived": null}]
+            """;
+
+    // configured like the WebClient codecs, which do not fail on unknown properties
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final PageDecoder pageDecoder = new PageDecoder(objectMapper);
+
+    @Test
+    void decode_bindsLikeJacksonWhateverTheBufferBoundaries() throws Exception {
+        List<GitHubRepo> expected = objectMapper.readValue(REPO_PAGE,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, GitHubRepo.class));
+        byte[] bytes = REPO_PAGE.getBytes(StandardCharsets.UTF_8);
+
+        for (int chunkSize : new int[]{1, 7, 64, bytes.length}) {
+            StepVerifier.create(pageDecoder.decode(chunked(bytes, chunkSize), GitHubRepo.class).collectList())
+                    .expectNext(expected)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void decode_neverHandsSkippedFieldsToTheBinder() {
+        ObjectMapper strict = new ObjectMapper().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        StepVerifier.create(new PageDecoder(strict).decode(chunked(REPO_PAGE.getBytes(StandardCharsets.UTF_8), 16),
+                        StrictRepo.class))
+                .expectNextMatches(repo -> repo.name().equals("Hello-World") && repo.owner().login().equals("octocat"))
+                .expectNextMatches(repo -> repo.name().equals("Spoon-Knife"))
+                .verifyComplete();
+    }
+
+    @Test
+    void decode_keepsNestedObjectsOfKeptFields() {
+        String page = "[{\"name\": \"main\", \"commit\": {\"sha\": \"c5b97d5\", \"url\": \"https://api.github.com\"},"
+                + " \"protected\": true}]";
+
+        StepVerifier.create(pageDecoder.decode(chunked(page.getBytes(StandardCharsets.UTF_8), 5), GitHubBranch.class))
+                .expectNextMatches(branch -> branch.getName().equals("main") && branch.getCommit().getSha().equals("c5b97d5"))
+                .verifyComplete();
+    }
+
+    @Test
+    void decode_emitsNothingForAnEmptyBody() {
+        StepVerifier.create(pageDecoder.decode(Flux.empty(), GitHubRepo.class))
+                .verifyComplete();
+        StepVerifier.create(pageDecoder.decode(chunked("[]".getBytes(StandardCharsets.UTF_8), 1), GitHubRepo.class))
+                .verifyComplete();
+    }
+
+    @Test
+    void decode_rejectsAnythingButAnArray() {
+        StepVerifier.create(pageDecoder.decode(chunked("{\"message\": \"Not Found\"}".getBytes(StandardCharsets.UTF_8), 8),
+                        GitHubRepo.class))
+                .verifyError(DecodingException.class);
+    }
+
+    @Test
+    void decode_rejectsATruncatedPage() {
+        byte[] bytes = REPO_PAGE.getBytes(StandardCharsets.UTF_8);
+
+        StepVerifier.create(pageDecoder.decode(chunked(bytes, 32).take(3), GitHubRepo.class))
+                .verifyError(DecodingException.class);
+    }
+
+    private static Flux<DataBuffer> chunked(byte[] bytes, int chunkSize) {
+        return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+                .map(chunk -> {
+                    int from = chunk * chunkSize;
+                    byte[] slice = Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + chunkSize));
+                    return DefaultDataBufferFactory.sharedInstance.wrap(slice);
+                });
+    }
+
+    record StrictRepo(String name, Owner owner, boolean fork) {
+        record Owner(String login) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RateLimitSchedulerUnitTest {
+
+    @Test
+    void shouldReleaseImmediatelyWhileQuotaIsPlenty() {
+        TokenPool tokenPool = new TokenPool(List.of("token"), null, 600, new SimpleMeterRegistry());
+        RateLimitScheduler scheduler = new RateLimitScheduler(tokenPool, new SimpleMeterRegistry());
+        tokenPool.update("token", quotaHeaders(5000, 4000, 3600));
+
+        StepVerifier.create(scheduler.acquire())
+                .expectComplete()
+                .verify(Duration.ofMillis(100));
+    }
+
+    @Test
+    void shouldReleaseInteractiveBeforeBackgroundOnceRetryAfterPasses() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitScheduler scheduler = new RateLimitScheduler(
+                new TokenPool(List.of("token"), null, 600, meterRegistry), meterRegistry);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        scheduler.update(headers);
+
+        List<String> released = new CopyOnWriteArrayList<>();
+        Mono<Void> background = scheduler.acquire()
+                .doOnSuccess(ignored -> released.add("background"))
+                .contextWrite(context -> context.put(RateLimitScheduler.PRIORITY, RateLimitScheduler.Priority.BACKGROUND));
+        Mono<Void> interactive = scheduler.acquire()
+                .doOnSuccess(ignored -> released.add("interactive"));
+
+        background.subscribe();
+        interactive.subscribe();
+        assertEquals(1.0, meterRegistry.get("github.ratelimit.queue.depth").tag("priority", "background").gauge().value());
+        assertEquals(1.0, meterRegistry.get("github.ratelimit.queue.depth").tag("priority", "interactive").gauge().value());
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(1500)).then(Mono.fromCallable(() -> released)))
+                .expectNext(List.of("interactive", "background"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldMoveAWaitingSharedCallUpWhenAnInteractiveSubscriberRaisesIt() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitScheduler scheduler = new RateLimitScheduler(
+                new TokenPool(List.of("token"), null, 600, meterRegistry), meterRegistry);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        scheduler.update(headers);
+
+        List<String> released = new CopyOnWriteArrayList<>();
+        RateLimitScheduler.SharedPriority priority = new RateLimitScheduler.SharedPriority(RateLimitScheduler.Priority.BACKGROUND);
+        Mono<Void> shared = scheduler.acquire()
+                .doOnSuccess(ignored -> released.add("shared"))
+                .contextWrite(context -> RateLimitScheduler.sharedBy(context, priority))
+                .contextWrite(context -> context.put(RateLimitScheduler.PRIORITY, RateLimitScheduler.Priority.BACKGROUND));
+        Mono<Void> interactive = scheduler.acquire()
+                .doOnSuccess(ignored -> released.add("interactive"));
+
+        shared.subscribe();
+        interactive.subscribe();
+        priority.raise(RateLimitScheduler.Priority.INTERACTIVE);
+        assertEquals(0.0, meterRegistry.get("github.ratelimit.queue.depth").tag("priority", "background").gauge().value());
+        assertEquals(2.0, meterRegistry.get("github.ratelimit.queue.depth").tag("priority", "interactive").gauge().value());
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(1500)).then(Mono.fromCallable(() -> released)))
+                .expectNext(List.of("shared", "interactive"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldPaceRequestsWhenQuotaIsLow() {
+        TokenPool tokenPool = new TokenPool(List.of("token"), null, 600, new SimpleMeterRegistry());
+        RateLimitScheduler scheduler = new RateLimitScheduler(tokenPool, new SimpleMeterRegistry());
+        tokenPool.update("token", quotaHeaders(5000, 10, 5));
+
+        long start = System.nanoTime();
+        StepVerifier.create(scheduler.acquire().then(scheduler.acquire()))
+                .verifyComplete();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(true, elapsedMillis >= 300, "second request should be spaced out, took " + elapsedMillis);
+    }
+
+    @Test
+    void shouldHoldRequestsUntilResetWhenEveryTokenIsExhausted() {
+        TokenPool tokenPool = new TokenPool(List.of("first", "second"), null, 600, new SimpleMeterRegistry());
+        RateLimitScheduler scheduler = new RateLimitScheduler(tokenPool, new SimpleMeterRegistry());
+        tokenPool.update("first", quotaHeaders(5000, 0, 2));
+        tokenPool.update("second", quotaHeaders(5000, 0, 3));
+
+        long start = System.nanoTime();
+        StepVerifier.create(scheduler.acquire())
+                .verifyComplete();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(true, elapsedMillis >= 900, "request should wait for the first reset, took " + elapsedMillis);
+    }
+
+    static HttpHeaders quotaHeaders(long limit, long remaining, long resetInSeconds) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-RateLimit-Limit", String.valueOf(limit));
+        headers.set("X-RateLimit-Remaining", String.valueOf(remaining));
+        headers.set("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + resetInSeconds));
+        return headers;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.example.demo.client.RateLimitSchedulerUnitTest.quotaHeaders;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TokenPoolUnitTest {
+
+    @Test
+    void shouldPickTokenWithMostRemainingQuota() {
+        TokenPool tokenPool = new TokenPool(List.of("first", "second", "third"), null, 600, new SimpleMeterRegistry());
+        tokenPool.update("first", quotaHeaders(5000, 100, 3600));
+        tokenPool.update("second", quotaHeaders(5000, 4000, 3600));
+        tokenPool.update("third", quotaHeaders(5000, 0, 3600));
+
+        assertEquals("second", tokenPool.select());
+        assertEquals(4100, tokenPool.remaining());
+    }
+
+    @Test
+    void shouldFallBackToSingleTokenAndIgnoreOtherResources() {
+        TokenPool tokenPool = new TokenPool(null, "single", 600, new SimpleMeterRegistry());
+        HttpHeaders graphqlQuota = quotaHeaders(5000, 0, 3600);
+        graphqlQuota.set("X-RateLimit-Resource", "graphql");
+        tokenPool.update("single", graphqlQuota);
+
+        assertEquals("single", tokenPool.select());
+        assertEquals(0, tokenPool.exhaustedUntilMillis());
+    }
+
+    @Test
+    void shouldQuarantineRejectedTokenAndReplayWithNextOne() {
+        TokenPool tokenPool = new TokenPool(List.of("revoked", "valid"), null, 600, new SimpleMeterRegistry());
+        tokenPool.update("revoked", quotaHeaders(5000, 4000, 3600));
+        tokenPool.update("valid", quotaHeaders(5000, 3000, 3600));
+        TokenRotationFilter filter = new TokenRotationFilter(tokenPool);
+        List<String> sentAuthorizations = new CopyOnWriteArrayList<>();
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://api.github.com/users/x/repos"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"etag\"")
+                .build();
+
+        StepVerifier.create(filter.filter(request, authorized -> {
+                    sentAuthorizations.add(authorized.headers().getFirst(HttpHeaders.AUTHORIZATION));
+                    assertEquals("\"etag\"", authorized.headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+                    HttpStatus status = authorized.headers().getFirst(HttpHeaders.AUTHORIZATION).endsWith("revoked")
+                            ? HttpStatus.UNAUTHORIZED
+                            : HttpStatus.NOT_MODIFIED;
+                    return Mono.just(ClientResponse.create(status).build());
+                }).map(response -> response.statusCode().value()))
+                .expectNext(HttpStatus.NOT_MODIFIED.value())
+                .verifyComplete();
+
+        assertEquals(List.of("token revoked", "token valid"), sentAuthorizations);
+        assertEquals("valid", tokenPool.select());
+    }
+}
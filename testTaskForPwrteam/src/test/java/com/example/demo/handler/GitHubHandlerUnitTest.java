@@ -1,8 +1,12 @@
 package com.example.demo.handler;
 
 import com.example.demo.client.RepoFilter;
+import com.example.demo.model.api.BatchRequest;
 import com.example.demo.model.api.BranchDetails;
 import com.example.demo.model.api.RepoDetails;
+import com.example.demo.model.api.UserRepoDetails;
+import com.example.demo.service.AssembledResponse;
+import com.example.demo.service.AssembledResponseCache;
 import com.example.demo.service.GitHubService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +14,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
@@ -18,8 +24,14 @@ import reactor.test.StepVerifier;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class GitHubHandlerUnitTest {
@@ -35,9 +47,16 @@ public class GitHubHandlerUnitTest {
     @Mock
     private GitHubService gitHubService;
 
+    @Mock
+    private AssembledResponseCache assembledResponseCache;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        gitHubHandler.setBatchConcurrency(2);
+        gitHubHandler.setBatchMaxUsernames(3);
+        gitHubHandler.setDefaultLimit(30);
+        gitHubHandler.setMaxLimit(100);
     }
 
     @Test
@@ -56,11 +75,16 @@ public class GitHubHandlerUnitTest {
         // Mock the service call
         when(gitHubService.getRepoDetails(username, filter))
                 .thenReturn(repoDetailsFlux);
+        when(assembledResponseCache.get(eq(username), eq(filter), any()))
+                .thenReturn(Mono.just(new AssembledResponse(new byte[0], "\"etag\"", Map.of())));
 
         // Create a mock ServerRequest
         ServerRequest serverRequest = mock(ServerRequest.class);
         when(serverRequest.queryParam("filter")).thenReturn(Optional.of("all"));
         when(serverRequest.pathVariable("username")).thenReturn(username);
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(headers.accept()).thenReturn(List.of());
+        when(serverRequest.headers()).thenReturn(headers);
 
         // Call the handler method
         Mono<ServerResponse> responseMono = gitHubHandler.getRepoDetails(serverRequest);
@@ -69,11 +93,51 @@ public class GitHubHandlerUnitTest {
         StepVerifier.create(responseMono)
                 .expectNextMatches(response -> {
                     // Check the status code
-                    return response.statusCode().equals(HttpStatus.OK);
+                    return response.statusCode().equals(HttpStatus.OK) &&
+                            MediaType.APPLICATION_JSON.equals(response.headers().getContentType()) &&
+                            "\"etag\"".equals(response.headers().getETag());
                 })
                 .verifyComplete();
     }
 
+    @Test
+    void getRepoDetails_ndjsonAccepted_returnsStream() {
+        String username = "testuser";
+        when(gitHubService.getRepoDetails(username, RepoFilter.ALL))
+                .thenReturn(Flux.just(new RepoDetails(ID, REPO_NAME, OWNER_LOGIN, List.of())));
+
+        ServerRequest serverRequest = mock(ServerRequest.class);
+        when(serverRequest.queryParam("filter")).thenReturn(Optional.empty());
+        when(serverRequest.pathVariable("username")).thenReturn(username);
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(headers.accept()).thenReturn(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+        when(serverRequest.headers()).thenReturn(headers);
+
+        StepVerifier.create(gitHubHandler.getRepoDetails(serverRequest))
+                .expectNextMatches(response -> response.statusCode().equals(HttpStatus.OK) &&
+                        MediaType.APPLICATION_NDJSON.equals(response.headers().getContentType()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getRepoDetails_acceptWithQualityValues_prefersHighestQuality() {
+        String username = "testuser";
+        when(gitHubService.getRepoDetails(username, RepoFilter.ALL))
+                .thenReturn(Flux.just(new RepoDetails(ID, REPO_NAME, OWNER_LOGIN, List.of())));
+
+        ServerRequest serverRequest = mock(ServerRequest.class);
+        when(serverRequest.queryParam("filter")).thenReturn(Optional.empty());
+        when(serverRequest.pathVariable("username")).thenReturn(username);
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(headers.accept()).thenReturn(MediaType.parseMediaTypes("text/event-stream;q=0.5, application/x-ndjson"));
+        when(serverRequest.headers()).thenReturn(headers);
+
+        StepVerifier.create(gitHubHandler.getRepoDetails(serverRequest))
+                .expectNextMatches(response -> response.statusCode().equals(HttpStatus.OK) &&
+                        MediaType.APPLICATION_NDJSON.equals(response.headers().getContentType()))
+                .verifyComplete();
+    }
+
     @Test
     void getRepoDetails_invalidFilter_returnsBadRequest() {
         // Prepare mock data
@@ -97,4 +161,75 @@ public class GitHubHandlerUnitTest {
                 })
                 .verifyComplete();
     }
+
+    @Test
+    void getRepoDetailsBatch_validRequest_streamsNdjson() {
+        when(gitHubService.getRepoDetails(List.of("one", "two"), RepoFilter.FORKED, 2))
+                .thenReturn(Flux.just(UserRepoDetails.found("one", List.of())));
+        MockServerRequest serverRequest = MockServerRequest.builder()
+                .body(Mono.just(new BatchRequest(List.of("one", "two"), "forked")));
+
+        StepVerifier.create(gitHubHandler.getRepoDetailsBatch(serverRequest))
+                .expectNextMatches(response -> response.statusCode().equals(HttpStatus.OK) &&
+                        MediaType.APPLICATION_NDJSON.equals(response.headers().getContentType()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getRepoDetailsBatch_tooManyUsernames_returnsBadRequest() {
+        MockServerRequest serverRequest = MockServerRequest.builder()
+                .body(Mono.just(new BatchRequest(List.of("a", "b", "c", "d"), null)));
+
+        StepVerifier.create(gitHubHandler.getRepoDetailsBatch(serverRequest))
+                .expectNextMatches(response -> response.statusCode().equals(HttpStatus.BAD_REQUEST))
+                .verifyComplete();
+        verify(gitHubService, never()).getRepoDetails(anyList(), any(), anyInt());
+    }
+
+    @Test
+    void getRepoDetails_invalidCursor_returnsBadRequest() {
+        ServerRequest serverRequest = mock(ServerRequest.class);
+        when(serverRequest.queryParam("filter")).thenReturn(Optional.empty());
+        when(serverRequest.queryParam("cursor")).thenReturn(Optional.of("not a cursor"));
+        when(serverRequest.pathVariable("username")).thenReturn("testuser");
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(headers.accept()).thenReturn(List.of());
+        when(serverRequest.headers()).thenReturn(headers);
+
+        StepVerifier.create(gitHubHandler.getRepoDetails(serverRequest))
+                .expectNextMatches(response -> response.statusCode().equals(HttpStatus.BAD_REQUEST))
+                .verifyComplete();
+        verify(gitHubService, never()).getRepoDetailsPage(any(), any(), any(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void getRepoDetails_fieldsWithoutBranches_skipsBranchFanOut() {
+        when(gitHubService.listRepositories("testuser", RepoFilter.ALL))
+                .thenReturn(Flux.just(new RepoDetails(ID, REPO_NAME, OWNER_LOGIN, null)));
+        ServerRequest serverRequest = mock(ServerRequest.class);
+        when(serverRequest.queryParam("filter")).thenReturn(Optional.empty());
+        when(serverRequest.queryParam("fields")).thenReturn(Optional.of("repoName"));
+        when(serverRequest.pathVariable("username")).thenReturn("testuser");
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(headers.accept()).thenReturn(List.of());
+        when(serverRequest.headers()).thenReturn(headers);
+
+        StepVerifier.create(gitHubHandler.getRepoDetails(serverRequest))
+                .expectNextMatches(response -> response.statusCode().equals(HttpStatus.OK))
+                .verifyComplete();
+        verify(gitHubService).listRepositories("testuser", RepoFilter.ALL);
+        verify(gitHubService, never()).getRepoDetails("testuser", RepoFilter.ALL);
+        verify(assembledResponseCache, never()).get(any(), any(), any());
+    }
+
+    @Test
+    void getRepoDetails_unknownField_returnsBadRequest() {
+        ServerRequest serverRequest = mock(ServerRequest.class);
+        when(serverRequest.queryParam("filter")).thenReturn(Optional.empty());
+        when(serverRequest.queryParam("fields")).thenReturn(Optional.of("repoName,stars"));
+
+        StepVerifier.create(gitHubHandler.getRepoDetails(serverRequest))
+                .expectNextMatches(response -> response.statusCode().equals(HttpStatus.BAD_REQUEST))
+                .verifyComplete();
+    }
 }
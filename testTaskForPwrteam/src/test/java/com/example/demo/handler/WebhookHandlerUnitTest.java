@@ -0,0 +1,126 @@
+package com.example.demo.handler;
+
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.service.AssembledResponseCache;
+import com.example.demo.service.GitHubService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WebhookHandlerUnitTest {
+    private static final String SECRET = "It's a Secret to Everybody";
+    private static final String REPOSITORY = "{\"id\":\"1\",\"name\":\"one\",\"owner\":{\"login\":\"octocat\"},"
+            + "\"branches_url\":\"https://api.github.com/repos/octocat/one/branches{/branch}\"}";
+
+    private GitHubService gitHubService;
+    private AssembledResponseCache assembledResponseCache;
+    private WebhookHandler webhookHandler;
+
+    @BeforeEach
+    void setUp() {
+        gitHubService = mock(GitHubService.class);
+        assembledResponseCache = mock(AssembledResponseCache.class);
+        when(gitHubService.invalidateRepositories(anyString())).thenReturn(Mono.empty());
+        when(gitHubService.invalidateBranches(any())).thenReturn(Mono.empty());
+        webhookHandler = new WebhookHandler(gitHubService, assembledResponseCache, new ObjectMapper());
+        webhookHandler.setWebhookSecret(SECRET);
+        webhookHandler.setWebhookMaxPayloadSize(DataSize.ofKilobytes(1));
+    }
+
+    @Test
+    void handleEvent_signedPush_invalidatesRepositoriesAndBranches() throws Exception {
+        String body = "{\"ref\":\"refs/heads/main\",\"repository\":" + REPOSITORY + "}";
+
+        StepVerifier.create(webhookHandler.handleEvent(request("push", body, sign(body))).map(ServerResponse::statusCode))
+                .expectNext(HttpStatus.NO_CONTENT)
+                .verifyComplete();
+
+        verify(gitHubService).invalidateRepositories("octocat");
+        verify(gitHubService).invalidateBranches(any(GitHubRepo.class));
+        verify(assembledResponseCache).evict("octocat");
+    }
+
+    @Test
+    void handleEvent_fork_invalidatesForkOwner() throws Exception {
+        String body = "{\"forkee\":{\"id\":\"2\",\"name\":\"one\",\"owner\":{\"login\":\"hubot\"}},\"repository\":" + REPOSITORY + "}";
+
+        StepVerifier.create(webhookHandler.handleEvent(request("fork", body, sign(body))).map(ServerResponse::statusCode))
+                .expectNext(HttpStatus.NO_CONTENT)
+                .verifyComplete();
+
+        verify(gitHubService).invalidateRepositories("hubot");
+        verify(assembledResponseCache).evict("hubot");
+        verify(gitHubService, never()).invalidateBranches(any());
+    }
+
+    @Test
+    void handleEvent_invalidSignature_rejectsWithoutInvalidating() throws Exception {
+        String body = "{\"repository\":" + REPOSITORY + "}";
+
+        StepVerifier.create(webhookHandler.handleEvent(request("push", body, sign(body + " "))).map(ServerResponse::statusCode))
+                .expectNext(HttpStatus.UNAUTHORIZED)
+                .verifyComplete();
+
+        verify(gitHubService, never()).invalidateRepositories(anyString());
+        verify(assembledResponseCache, never()).evict(anyString());
+    }
+
+    @Test
+    void handleEvent_organizationTransfer_invalidatesPreviousOrganization() throws Exception {
+        String body = "{\"action\":\"transferred\",\"changes\":{\"owner\":{\"from\":{\"organization\":{\"login\":\"github\"}}}},"
+                + "\"repository\":" + REPOSITORY + "}";
+
+        StepVerifier.create(webhookHandler.handleEvent(request("repository", body, sign(body))).map(ServerResponse::statusCode))
+                .expectNext(HttpStatus.NO_CONTENT)
+                .verifyComplete();
+
+        verify(gitHubService).invalidateRepositories("octocat");
+        verify(gitHubService).invalidateRepositories("github");
+        verify(assembledResponseCache).evict("github");
+        verify(gitHubService).invalidateBranches(any(GitHubRepo.class));
+    }
+
+    @Test
+    void handleEvent_payloadOverLimit_isRejected() throws Exception {
+        String body = "{\"ref\":\"" + "x".repeat(2048) + "\",\"repository\":" + REPOSITORY + "}";
+
+        StepVerifier.create(webhookHandler.handleEvent(request("push", body, sign(body))).map(ServerResponse::statusCode))
+                .expectNext(HttpStatus.PAYLOAD_TOO_LARGE)
+                .verifyComplete();
+
+        verify(gitHubService, never()).invalidateRepositories(anyString());
+    }
+
+    private MockServerRequest request(String event, String body, String signature) {
+        return MockServerRequest.builder()
+                .header(WebhookHandler.EVENT_HEADER, event)
+                .header(WebhookHandler.SIGNATURE_HEADER, signature)
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private String sign(String body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.LocalReactiveCacheManager;
+import com.example.demo.client.RepoFilter;
+import com.example.demo.model.api.BranchDetails;
+import com.example.demo.model.api.RepoDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class AssembledResponseCacheUnitTest {
+    private static final String USERNAME = "testUser";
+    private static final String PAGE_URI = "https://api.github.com/users/testUser/repos?per_page=3";
+
+    private ConcurrentMapCacheManager cacheManager;
+    private AssembledResponseCache assembledResponseCache;
+    private final AtomicInteger assembled = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager("responses", "etags");
+        assembledResponseCache = new AssembledResponseCache(cacheManager, new LocalReactiveCacheManager(cacheManager), new ObjectMapper());
+        assembledResponseCache.postConstruct();
+        cacheManager.getCache("etags").put(PAGE_URI, "etag-1");
+    }
+
+    @Test
+    void get_unchangedSourceEtags_servesCachedBytes() {
+        AssembledResponse first = assembledResponseCache.get(USERNAME, RepoFilter.ALL, this::source).block();
+        AssembledResponse second = assembledResponseCache.get(USERNAME, RepoFilter.ALL, this::source).block();
+
+        assertEquals(1, assembled.get());
+        assertEquals(first.etag(), second.etag());
+        assertEquals("[{\"repoName\":\"one\",\"ownerLogin\":\"two\",\"branchDetailsList\":[{\"branchName\":\"main\",\"branchSha\":\"sha\"}]}]",
+                new String(second.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void get_changedSourceEtag_reassemblesWithNewEtag() {
+        AssembledResponse first = assembledResponseCache.get(USERNAME, RepoFilter.ALL, this::source).block();
+        cacheManager.getCache("etags").put(PAGE_URI, "etag-2");
+
+        StepVerifier.create(assembledResponseCache.get(USERNAME, RepoFilter.ALL, this::source))
+                .expectNextMatches(response -> !response.etag().equals(first.etag()))
+                .verifyComplete();
+        assertEquals(2, assembled.get());
+    }
+
+    @Test
+    void get_filtersAreCachedSeparately() {
+        AssembledResponse all = assembledResponseCache.get(USERNAME, RepoFilter.ALL, this::source).block();
+        AssembledResponse forked = assembledResponseCache.get(USERNAME, RepoFilter.FORKED, this::source).block();
+
+        assertEquals(2, assembled.get());
+        assertNotEquals(all.etag(), forked.etag());
+    }
+
+    @Test
+    void get_withoutSourceEtags_isNotServedFromCache() {
+        Flux<RepoDetails> untracked = Flux.defer(() -> {
+            assembled.incrementAndGet();
+            return Flux.just(new RepoDetails("1", "one", "two", List.of()));
+        });
+
+        assembledResponseCache.get(USERNAME, RepoFilter.ALL, () -> untracked).block();
+        assembledResponseCache.get(USERNAME, RepoFilter.ALL, () -> untracked).block();
+
+        assertEquals(2, assembled.get());
+    }
+
+    private Flux<RepoDetails> source() {
+        return Flux.deferContextual(context -> {
+            assembled.incrementAndGet();
+            context.<Map<String, String>>get(AssembledResponseCache.SOURCE_ETAGS)
+                    .put(PAGE_URI, cacheManager.getCache("etags").get(PAGE_URI, String.class));
+            return Flux.just(new RepoDetails("1", "one", "two", List.of(new BranchDetails("main", "sha"))));
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.LocalReactiveCacheManager;
+import com.example.demo.cache.PageCodec;
+import com.example.demo.client.ClientMetrics;
+import com.example.demo.client.ConcurrencyLimiter;
+import com.example.demo.client.GitHubClient;
+import com.example.demo.client.RepoFilter;
+import com.example.demo.mapper.BranchDetailsMapperImpl;
+import com.example.demo.mapper.RepoDetailsMapperImpl;
+import com.example.demo.model.api.RepoDetails;
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.model.client.Page;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GitHubServiceImplV1PaginationUnitTest {
+    private static final String REPO_URI = "https://api.github.com/users/testUser/repos?per_page=3";
+    private static final String SECOND_PAGE_URI = REPO_URI + "&page=2";
+
+    private GitHubClient gitHubClient;
+    private GitHubServiceImplV1 gitHubService;
+
+    @BeforeEach
+    void setUp() {
+        gitHubClient = mock(GitHubClient.class);
+        ConcurrentMapCacheManager cacheManager =
+                new ConcurrentMapCacheManager("pages", "etags", "nextUris", "lastUris", "validated", "branchSnapshots", "negative");
+        gitHubService = new GitHubServiceImplV1(gitHubClient, Optional.empty(),
+                new ConcurrencyLimiter(new SimpleMeterRegistry()), cacheManager,
+                new LocalReactiveCacheManager(cacheManager), new SimpleMeterRegistry(),
+                new BranchDetailsMapperImpl(), new RepoDetailsMapperImpl(), new PageCodec(new ObjectMapper()));
+        gitHubService.setLinkNextPattern("(?<=<)([^>]+)(?=>;\\s*rel=\"next\")");
+        gitHubService.setLinkLastPattern("(?<=<)([^>]+)(?=>;\\s*rel=\"last\")");
+        gitHubService.setPageNumberPattern("(?<=[?&]page=)\\d+");
+        gitHubService.setPlaceholderPattern("\\{.*?\\}");
+        gitHubService.setClientPageSize(3);
+        gitHubService.setPageConcurrency(4);
+        gitHubService.setBranchConcurrency(2);
+        gitHubService.setBranchPrefetch(32);
+        gitHubService.setBranchOrdered(true);
+        gitHubService.setReplayHistory(256);
+        gitHubService.postConstruct();
+
+        HttpHeaders firstPageHeaders = new HttpHeaders();
+        firstPageHeaders.add(HttpHeaders.LINK, "<" + SECOND_PAGE_URI + ">; rel=\"next\"");
+        when(gitHubClient.constructRepoUri("testUser")).thenReturn(REPO_URI);
+        when(gitHubClient.fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<>(List.of(repo("a"), repo("b"), repo("c")),
+                        firstPageHeaders, HttpStatusCode.valueOf(200), REPO_URI)));
+        when(gitHubClient.fetchPage(eq(SECOND_PAGE_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<>(List.of(repo("d")),
+                        new HttpHeaders(), HttpStatusCode.valueOf(200), SECOND_PAGE_URI)));
+        when(gitHubClient.fetchPage(anyString(), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH)))
+                .thenAnswer(invocation -> Mono.just(new Page<>(List.of(), new HttpHeaders(),
+                        HttpStatusCode.valueOf(200), invocation.getArgument(0))));
+    }
+
+    @Test
+    void getRepoDetailsPage_firstPage_fetchesOnlyTheUpstreamPageItNeeds() {
+        StepVerifier.create(gitHubService.getRepoDetailsPage("testUser", RepoFilter.ALL, PageCursor.FIRST, 2, true))
+                .assertNext(page -> {
+                    assertEquals(List.of("a", "b"), page.repositories().stream().map(RepoDetails::getRepoName).toList());
+                    assertEquals(new PageCursor("1", 2), PageCursor.decode(page.nextCursor()));
+                })
+                .verifyComplete();
+
+        verify(gitHubClient, never()).fetchPage(eq(SECOND_PAGE_URI), any(), any(), any());
+        verify(gitHubClient, times(2)).fetchPage(anyString(), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+    }
+
+    @Test
+    void getRepoDetailsPage_fromCursor_continuesAcrossUpstreamPagesUntilTheEnd() {
+        String cursor = gitHubService.getRepoDetailsPage("testUser", RepoFilter.ALL, PageCursor.FIRST, 2, true)
+                .block().nextCursor();
+
+        StepVerifier.create(gitHubService.getRepoDetailsPage("testUser", RepoFilter.ALL, PageCursor.decode(cursor), 2, true))
+                .assertNext(page -> {
+                    assertEquals(List.of("c", "d"), page.repositories().stream().map(RepoDetails::getRepoName).toList());
+                    assertNull(page.nextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getRepoDetailsPage_withoutBranches_readsOnlyRepositoryPages() {
+        StepVerifier.create(gitHubService.getRepoDetailsPage("testUser", RepoFilter.ALL, PageCursor.FIRST, 4, false))
+                .assertNext(page -> {
+                    assertEquals(List.of("a", "b", "c", "d"), page.repositories().stream().map(RepoDetails::getRepoName).toList());
+                    assertNull(page.repositories().get(0).getBranchDetailsList());
+                })
+                .verifyComplete();
+
+        verify(gitHubClient, never()).fetchPage(anyString(), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+    }
+
+    @Test
+    void getRepoDetailsPage_cursorOnLaterPage_fetchesThatPageDirectly() {
+        StepVerifier.create(gitHubService.getRepoDetailsPage("testUser", RepoFilter.ALL, new PageCursor("2", 0), 2, false))
+                .assertNext(page -> assertEquals(List.of("d"), page.repositories().stream().map(RepoDetails::getRepoName).toList()))
+                .verifyComplete();
+
+        verify(gitHubClient, never()).fetchPage(eq(REPO_URI), any(), any(), any());
+    }
+
+    @Test
+    void getRepoDetailsPage_cursorPageBelowOne_isRejected() {
+        StepVerifier.create(gitHubService.getRepoDetailsPage("testUser", RepoFilter.ALL, new PageCursor("0", 0), 2, true))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(gitHubService.getRepoDetailsPage("testUser", RepoFilter.ALL, new PageCursor("-1", 0), 2, true))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(gitHubClient, never()).fetchPage(anyString(), any(), any(), any());
+    }
+
+    private GitHubRepo repo(String name) {
+        GitHubRepo repo = new GitHubRepo();
+        repo.setId(name);
+        repo.setName(name);
+        repo.setBranchesUrl("https://api.github.com/repos/testUser/" + name + "/branches{/branch}");
+        return repo;
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.LocalReactiveCacheManager;
+import com.example.demo.cache.PageCodec;
+import com.example.demo.cache.ReactiveCache;
+import com.example.demo.cache.ReactiveCacheManager;
+import com.example.demo.client.ClientMetrics;
+import com.example.demo.client.ConcurrencyLimiter;
+import com.example.demo.client.GitHubClient;
+import com.example.demo.client.RepoFilter;
+import com.example.demo.mapper.BranchDetailsMapperImpl;
+import com.example.demo.mapper.RepoDetailsMapperImpl;
+import com.example.demo.model.api.RepoDetails;
+import com.example.demo.model.client.GitHubBranch;
+import com.example.demo.model.client.GitHubRepo;
+import com.example.demo.model.client.Page;
+import com.example.demo.problem.NotFoundException;
+import com.example.demo.problem.ServiceException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GitHubServiceImplV1SwrUnitTest {
+    private static final String REPO_URI = "https://api.github.com/users/testUser/repos?per_page=3";
+    private static final String BRANCH_URI = "https://api.github.com/repos/testUser/one/branches?per_page=3";
+
+    private GitHubClient gitHubClient;
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrentMapCacheManager cacheManager;
+    private GitHubServiceImplV1 gitHubService;
+    private GitHubRepo gitHubRepo;
+
+    @BeforeEach
+    void setUp() {
+        gitHubClient = mock(GitHubClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cacheManager = new ConcurrentMapCacheManager("pages", "etags", "nextUris", "lastUris", "validated",
+                "branchSnapshots", "negative", "responses");
+        gitHubService = service(new LocalReactiveCacheManager(cacheManager));
+        gitHubService.setSwrEnabled(true);
+        gitHubService.setFreshnessWindowInSec(60);
+        gitHubService.postConstruct();
+
+        gitHubRepo = new GitHubRepo();
+        gitHubRepo.setId("1");
+        gitHubRepo.setName("one");
+        gitHubRepo.setBranchesUrl("https://api.github.com/repos/testUser/one/branches{/branch}");
+        GitHubBranch.Commit commit = new GitHubBranch.Commit();
+        commit.setSha("sha");
+        GitHubBranch gitHubBranch = new GitHubBranch();
+        gitHubBranch.setName("main");
+        gitHubBranch.setCommit(commit);
+
+        when(gitHubClient.constructRepoUri("testUser")).thenReturn(REPO_URI);
+        when(gitHubClient.fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<>(List.of(gitHubRepo), etag("repo"), HttpStatusCode.valueOf(200), REPO_URI)));
+        when(gitHubClient.fetchPage(eq(BRANCH_URI), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<>(List.of(gitHubBranch), etag("branch"), HttpStatusCode.valueOf(200), BRANCH_URI)));
+    }
+
+    @Test
+    void getRepoDetails_withinFreshnessWindow_servesFromCache() {
+        StepVerifier.create(gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName))
+                .expectNext("one")
+                .verifyComplete();
+        StepVerifier.create(gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName))
+                .expectNext("one")
+                .verifyComplete();
+
+        verify(gitHubClient, times(1)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        verify(gitHubClient, times(1)).fetchPage(eq(BRANCH_URI), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+        assertEquals(2, count("fresh"));
+        assertEquals(2, count("miss"));
+    }
+
+    @Test
+    void getRepoDetails_afterFreshnessWindow_servesStaleAndRevalidates() {
+        gitHubService.setFreshnessWindowInSec(0);
+        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).blockLast();
+
+        StepVerifier.create(gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName))
+                .expectNext("one")
+                .verifyComplete();
+
+        verify(gitHubClient, timeout(1_000).times(2)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        verify(gitHubClient, timeout(1_000).times(2)).fetchPage(eq(BRANCH_URI), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+        assertEquals(2, count("stale"));
+    }
+
+    @Test
+    void refreshHotUsers_revalidatesFrequentlyRequestedUsers() {
+        gitHubService.setHotUserThreshold(2);
+        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).blockLast();
+        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).blockLast();
+
+        gitHubService.refreshHotUsers();
+
+        verify(gitHubClient, timeout(1_000).times(2)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+    }
+
+    @Test
+    void refreshHotUsers_userWithoutTraffic_dropsOutAfterOneRound() {
+        gitHubService.setHotUserThreshold(1);
+        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).blockLast();
+
+        gitHubService.refreshHotUsers();
+        verify(gitHubClient, timeout(1_000).times(2)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        gitHubService.refreshHotUsers();
+
+        verify(gitHubClient, after(300).times(2)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+    }
+
+    @Test
+    void getRepoDetails_unchangedPushedAt_servesBranchesFromSnapshot() {
+        gitHubService.setSwrEnabled(false);
+        gitHubRepo.setPushedAt("2024-01-01T00:00:00Z");
+        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).blockLast();
+
+        StepVerifier.create(gitHubService.getRepoDetails("testUser", RepoFilter.ALL)
+                        .map(repoDetails -> repoDetails.getBranchDetailsList().get(0).branchName()))
+                .expectNext("main")
+                .verifyComplete();
+        verify(gitHubClient, times(2)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        verify(gitHubClient, times(1)).fetchPage(eq(BRANCH_URI), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+
+        gitHubRepo.setPushedAt("2024-01-02T00:00:00Z");
+        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).blockLast();
+
+        verify(gitHubClient, times(2)).fetchPage(eq(BRANCH_URI), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+        assertEquals(1, meterRegistry.counter("github.branches.snapshot.requests", "result", "hit").count());
+        assertEquals(2, meterRegistry.counter("github.branches.snapshot.requests", "result", "miss").count());
+    }
+
+    @Test
+    void invalidate_dropsCachedPages_nextRequestFetchesAgain() {
+        gitHubRepo.setPushedAt("2024-01-01T00:00:00Z");
+        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).blockLast();
+
+        StepVerifier.create(gitHubService.invalidateRepositories("testUser")
+                        .then(gitHubService.invalidateBranches(gitHubRepo)))
+                .verifyComplete();
+        StepVerifier.create(gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName))
+                .expectNext("one")
+                .verifyComplete();
+
+        verify(gitHubClient, times(2)).fetchPage(eq(REPO_URI), eq(null), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        verify(gitHubClient, times(2)).fetchPage(eq(BRANCH_URI), eq(null), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+    }
+
+    @Test
+    void getRepoDetails_unknownUser_isServedFromNegativeCacheUntilInvalidated() {
+        String missingUri = "https://api.github.com/users/missing/repos?per_page=3";
+        when(gitHubClient.constructRepoUri("missing")).thenReturn(missingUri);
+        when(gitHubClient.fetchPage(eq(missingUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)));
+
+        StepVerifier.create(gitHubService.getRepoDetails("missing", RepoFilter.ALL))
+                .expectError(NotFoundException.class)
+                .verify();
+        StepVerifier.create(gitHubService.getRepoDetails("missing", RepoFilter.ALL))
+                .expectError(NotFoundException.class)
+                .verify();
+        verify(gitHubClient, times(1)).fetchPage(eq(missingUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        assertEquals(1, meterRegistry.counter("github.cache.negative.hits", "kind", "not_found").count());
+
+        gitHubService.invalidateRepositories("missing").block();
+        StepVerifier.create(gitHubService.getRepoDetails("missing", RepoFilter.ALL))
+                .expectError(NotFoundException.class)
+                .verify();
+        verify(gitHubClient, times(2)).fetchPage(eq(missingUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+    }
+
+    @Test
+    void getRepoDetails_emptyAccount_isServedFromNegativeCacheAndRefreshedOnRevalidation() {
+        gitHubService.setSwrEnabled(false);
+        String emptyUri = "https://api.github.com/users/empty/repos?per_page=3";
+        List<GitHubRepo> repositories = new ArrayList<>();
+        when(gitHubClient.constructRepoUri("empty")).thenReturn(emptyUri);
+        when(gitHubClient.fetchPage(eq(emptyUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenAnswer(invocation -> Mono.just(new Page<>(List.copyOf(repositories), etag("empty"),
+                        HttpStatusCode.valueOf(200), emptyUri)));
+
+        gitHubService.getRepoDetails("empty", RepoFilter.ALL).blockLast();
+        StepVerifier.create(gitHubService.getRepoDetails("empty", RepoFilter.ALL))
+                .verifyComplete();
+        verify(gitHubClient, times(1)).fetchPage(eq(emptyUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        assertEquals(1, meterRegistry.counter("github.cache.negative.hits", "kind", "empty").count());
+
+        repositories.add(gitHubRepo);
+        gitHubService.getRepoDetails("empty", RepoFilter.ALL)
+                .contextWrite(context -> context.put("revalidate", true))
+                .blockLast();
+        StepVerifier.create(gitHubService.getRepoDetails("empty", RepoFilter.ALL).map(RepoDetails::getRepoName))
+                .expectNext("one")
+                .verifyComplete();
+    }
+
+    @Test
+    void getRepoDetails_emptyBranchPage_isRevalidatedWithItsEtagInsteadOfNegativeCached() {
+        gitHubService.setSwrEnabled(false);
+        when(gitHubClient.fetchPage(eq(BRANCH_URI), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1) == null
+                        ? new Page<>(List.<GitHubBranch>of(), etag("no-branches"), HttpStatusCode.valueOf(200), BRANCH_URI)
+                        : new Page<GitHubBranch>(null, etag("no-branches"), HttpStatusCode.valueOf(304), BRANCH_URI)));
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(gitHubService.getRepoDetails("testUser", RepoFilter.ALL))
+                    .expectNextMatches(details -> details.getRepoName().equals("one") && details.getBranchDetailsList().isEmpty())
+                    .verifyComplete();
+        }
+
+        verify(gitHubClient, times(1)).fetchPage(eq(BRANCH_URI), eq("\"no-branches\""), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+        assertEquals(0, meterRegistry.counter("github.cache.negative.hits", "kind", "empty").count());
+    }
+
+    @Test
+    void getRepoDetails_revalidationDuringPlainFetch_doesNotJoinIt() {
+        LocalReactiveCacheManager local = new LocalReactiveCacheManager(cacheManager);
+        ReactiveCache negative = local.getCache("negative");
+        // a slow negative lookup keeps the plain fetch of the page in flight while the revalidation arrives
+        ReactiveCache slowNegative = new ReactiveCache() {
+            @Override
+            public String getName() {
+                return negative.getName();
+            }
+
+            @Override
+            public <T> Mono<T> get(String key, Class<T> type) {
+                return negative.get(key, type).delayElement(Duration.ofMillis(100));
+            }
+
+            @Override
+            public Mono<Void> put(String key, Object value) {
+                return negative.put(key, value);
+            }
+
+            @Override
+            public Mono<Void> evict(String key) {
+                return negative.evict(key);
+            }
+        };
+        gitHubService = service(name -> name.equals("negative") ? slowNegative : local.getCache(name));
+        gitHubService.postConstruct();
+        cacheManager.getCache("negative").put(REPO_URI, "EMPTY");
+
+        StepVerifier.create(Flux.merge(
+                        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName).collectList(),
+                        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName).collectList()
+                                .contextWrite(context -> context.put("revalidate", true))
+                                .delaySubscription(Duration.ofMillis(20)))
+                        .collectList())
+                .assertNext(results -> assertEquals(Set.of(List.of(), List.of("one")), Set.copyOf(results)))
+                .verifyComplete();
+
+        verify(gitHubClient, times(1)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+    }
+
+    @Test
+    void getRepoDetails_concurrentSubscribers_eachKeepSourceEtags() {
+        when(gitHubClient.fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<>(List.of(gitHubRepo), etag("repo"), HttpStatusCode.valueOf(200), REPO_URI))
+                        .delayElement(Duration.ofMillis(100)));
+        AssembledResponseCache assembledResponseCache = new AssembledResponseCache(cacheManager,
+                new LocalReactiveCacheManager(cacheManager), new ObjectMapper());
+        assembledResponseCache.postConstruct();
+        Supplier<Flux<RepoDetails>> source = () -> gitHubService.getRepoDetails("testUser", RepoFilter.ALL);
+        Set<String> sourceUris = Set.of(REPO_URI, BRANCH_URI);
+
+        // the second request joins the first one's pipeline, it must still learn which pages it was built from
+        StepVerifier.create(Flux.merge(assembledResponseCache.get("testUser", RepoFilter.ALL, source),
+                        assembledResponseCache.get("testUser", RepoFilter.ALL, source)))
+                .assertNext(response -> assertEquals(sourceUris, response.sourceEtags().keySet()))
+                .assertNext(response -> assertEquals(sourceUris, response.sourceEtags().keySet()))
+                .verifyComplete();
+
+        verify(gitHubClient, times(1)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        AssembledResponse cached = cacheManager.getCache("responses").get("testuser:" + RepoFilter.ALL, AssembledResponse.class);
+        assertEquals(sourceUris, cached.sourceEtags().keySet());
+        assertEquals(1.0, meterRegistry.counter("github.coalesced", "kind", "repositories").count());
+    }
+
+    @Test
+    void getRepoDetails_sharedFetch_appliesEachSubscribersOwnDeadline() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(meterRegistry);
+        limiter.setInitialLimit(1);
+        limiter.setMinLimit(1);
+        Sinks.One<String> occupying = Sinks.one();
+        limiter.limited(occupying.asMono()).subscribe();
+        when(gitHubClient.fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(limiter.limited(Mono.fromSupplier(() -> new Page<>(List.of(gitHubRepo), etag("repo"),
+                        HttpStatusCode.valueOf(200), REPO_URI))));
+        long now = System.currentTimeMillis();
+        Mono.delay(Duration.ofMillis(300)).subscribe(ignored -> occupying.tryEmitValue("done"));
+
+        // the request with the earlier deadline gives up waiting for a slot, the one sharing its fetch still gets the page
+        StepVerifier.create(Flux.merge(
+                        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName).collectList()
+                                .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, now + 100))
+                                .onErrorResume(ServiceException.class, ex -> Mono.just(List.of("rejected"))),
+                        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName).collectList()
+                                .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, now + 5_000)))
+                        .collectList())
+                .assertNext(results -> assertEquals(List.of(List.of("rejected"), List.of("one")), results))
+                .verifyComplete();
+
+        verify(gitHubClient, times(1)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+    }
+
+    @Test
+    void getRepoDetails_streamOutlastingTheDeadline_completes() {
+        when(gitHubClient.fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<>(List.of(gitHubRepo), etag("repo"), HttpStatusCode.valueOf(200), REPO_URI))
+                        .delayElement(Duration.ofMillis(300)));
+
+        StepVerifier.create(gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName)
+                        .contextWrite(context -> context.put(ConcurrencyLimiter.DEADLINE, System.currentTimeMillis() + 100)))
+                .expectNext("one")
+                .verifyComplete();
+    }
+
+    @Test
+    void getRepoDetails_joiningPastTheReplayHistory_runsItsOwnPipelineOverSharedPages() {
+        String secondBranchUri = "https://api.github.com/repos/testUser/two/branches?per_page=3";
+        GitHubRepo second = new GitHubRepo();
+        second.setId("2");
+        second.setName("two");
+        second.setBranchesUrl("https://api.github.com/repos/testUser/two/branches{/branch}");
+        when(gitHubClient.fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<>(List.of(gitHubRepo, second), etag("repo"), HttpStatusCode.valueOf(200), REPO_URI)));
+        when(gitHubClient.fetchPage(eq(secondBranchUri), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH)))
+                .thenReturn(Mono.fromSupplier(() -> new Page<GitHubBranch>(List.of(), etag("empty"), HttpStatusCode.valueOf(200), secondBranchUri))
+                        .delayElement(Duration.ofMillis(300)));
+        gitHubService.setReplayHistory(0);
+
+        // "one" has gone by when the second request arrives, so it assembles on its own and only joins the pending page
+        StepVerifier.create(Flux.merge(
+                        gitHubService.getRepoDetails("testUser", RepoFilter.ALL).map(RepoDetails::getRepoName).collectList(),
+                        Mono.delay(Duration.ofMillis(100)).thenMany(gitHubService.getRepoDetails("testUser", RepoFilter.ALL))
+                                .map(RepoDetails::getRepoName).collectList())
+                        .collectList())
+                .assertNext(results -> assertEquals(List.of(List.of("one", "two"), List.of("one", "two")), results))
+                .verifyComplete();
+
+        verify(gitHubClient, times(1)).fetchPage(eq(REPO_URI), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        verify(gitHubClient, times(1)).fetchPage(eq(secondBranchUri), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+        assertEquals(0.0, meterRegistry.counter("github.coalesced", "kind", "repositories").count());
+        assertEquals(1.0, meterRegistry.counter("github.coalesced", "kind", "page").count());
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("github.cache.swr.requests", "result", result).count();
+    }
+
+    private GitHubServiceImplV1 service(ReactiveCacheManager reactiveCacheManager) {
+        PageCodec pageCodec = new PageCodec(new ObjectMapper());
+        pageCodec.setCompress(true);
+        GitHubServiceImplV1 service = new GitHubServiceImplV1(gitHubClient, Optional.empty(),
+                new ConcurrencyLimiter(meterRegistry), cacheManager, reactiveCacheManager, meterRegistry,
+                new BranchDetailsMapperImpl(), new RepoDetailsMapperImpl(), pageCodec);
+        service.setLinkNextPattern("(?<=<)([^>]+)(?=>;\\s*rel=\"next\")");
+        service.setLinkLastPattern("(?<=<)([^>]+)(?=>;\\s*rel=\"last\")");
+        service.setPageNumberPattern("(?<=[?&]page=)\\d+");
+        service.setPlaceholderPattern("\\{.*?\\}");
+        service.setClientPageSize(3);
+        service.setPageConcurrency(4);
+        service.setBranchConcurrency(2);
+        service.setBranchPrefetch(32);
+        service.setBranchOrdered(true);
+        service.setReplayHistory(256);
+        return service;
+    }
+
+    private HttpHeaders etag(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"" + value + "\"");
+        return headers;
+    }
+}
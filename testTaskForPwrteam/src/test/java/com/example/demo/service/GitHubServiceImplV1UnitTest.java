@@ -1,5 +1,10 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.LocalReactiveCache;
+import com.example.demo.cache.PageCodec;
+import com.example.demo.cache.ReactiveCacheManager;
+import com.example.demo.client.ClientMetrics;
+import com.example.demo.client.ConcurrencyLimiter;
 import com.example.demo.client.GitHubClient;
 import com.example.demo.client.RepoFilter;
 import com.example.demo.mapper.BranchDetailsMapper;
@@ -10,10 +15,13 @@ import com.example.demo.model.client.GitHubBranch;
 import com.example.demo.model.client.GitHubRepo;
 import com.example.demo.model.client.Page;
 import com.example.demo.problem.RetryExhaustedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cache.CacheManager;
@@ -28,15 +36,24 @@ import org.springframework.http.HttpHeaders;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class GitHubServiceImplV1UnitTest {
     private static final String LINK_NEXT_PATTERN = "(?<=<)([^>]+)(?=>;\\s*rel=\"next\")";
+    private static final String LINK_LAST_PATTERN = "(?<=<)([^>]+)(?=>;\\s*rel=\"last\")";
+    private static final String PAGE_NUMBER_PATTERN = "(?<=[?&]page=)\\d+";
     private  static final String PLACEHOLDER_PATTERN = " \\{.*?\\}";
     private  static final int CLIENT_PAGE_SIZE = 3;
+    private  static final int PAGE_CONCURRENCY = 4;
+    private  static final int BRANCH_CONCURRENCY = 2;
+    private  static final int BRANCH_PREFETCH = 32;
 
     private static final String REPO_ID = "12345";
     private static final String BRANCH_SHA = "5678";
@@ -52,6 +69,9 @@ public class GitHubServiceImplV1UnitTest {
     @Mock
     private CacheManager cacheManager;
 
+    @Mock
+    private ReactiveCacheManager reactiveCacheManager;
+
     @Mock
     private Cache etagsCache;
 
@@ -61,22 +81,51 @@ public class GitHubServiceImplV1UnitTest {
     @Mock
     private Cache nextUrisCache;
 
-    @InjectMocks
+    @Mock
+    private Cache lastUrisCache;
+
+    @Mock
+    private Cache validatedCache;
+
+    @Mock
+    private Cache branchSnapshotsCache;
+
+    @Mock
+    private Cache negativeCache;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private PageCodec pageCodec = new PageCodec(new ObjectMapper());
+
     private GitHubServiceImplV1 gitHubService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        gitHubService = new GitHubServiceImplV1(gitHubClient, Optional.empty(), new ConcurrencyLimiter(meterRegistry),
+                cacheManager, reactiveCacheManager, meterRegistry, branchDetailsMapper, repoDetailsMapper, pageCodec);
 
-        when(cacheManager.getCache("etags")).thenReturn(etagsCache);
-        when(cacheManager.getCache("pages")).thenReturn(pagesCache);
-        when(cacheManager.getCache("nextUris")).thenReturn(nextUrisCache);
+        when(reactiveCacheManager.getCache("etags")).thenReturn(new LocalReactiveCache(etagsCache));
+        when(reactiveCacheManager.getCache("pages")).thenReturn(new LocalReactiveCache(pagesCache));
+        when(reactiveCacheManager.getCache("nextUris")).thenReturn(new LocalReactiveCache(nextUrisCache));
+        when(reactiveCacheManager.getCache("branchSnapshots")).thenReturn(new LocalReactiveCache(branchSnapshotsCache));
+        when(reactiveCacheManager.getCache("negative")).thenReturn(new LocalReactiveCache(negativeCache));
+        when(reactiveCacheManager.getCache("lastUris")).thenReturn(new LocalReactiveCache(lastUrisCache));
+        when(cacheManager.getCache("validated")).thenReturn(validatedCache);
 
         when(etagsCache.get(any(String.class), eq(String.class))).thenReturn("etag");
 
         gitHubService.setLinkNextPattern(LINK_NEXT_PATTERN);
+        gitHubService.setLinkLastPattern(LINK_LAST_PATTERN);
+        gitHubService.setPageNumberPattern(PAGE_NUMBER_PATTERN);
         gitHubService.setPlaceholderPattern(PLACEHOLDER_PATTERN);
         gitHubService.setClientPageSize(CLIENT_PAGE_SIZE);
+        gitHubService.setPageConcurrency(PAGE_CONCURRENCY);
+        gitHubService.setBranchConcurrency(BRANCH_CONCURRENCY);
+        gitHubService.setBranchPrefetch(BRANCH_PREFETCH);
+        gitHubService.setBranchOrdered(true);
+        gitHubService.setReplayHistory(256);
 
         gitHubService.postConstruct();
     }
@@ -98,9 +147,9 @@ public class GitHubServiceImplV1UnitTest {
         Page branchPage = new Page(branchList, new HttpHeaders(), HttpStatusCode.valueOf(200), "branchUri");
 
         when(gitHubClient.constructRepoUri(username)).thenReturn("repoUri");
-        when(gitHubClient.fetchPage(any(String.class), any(String.class), eq(GitHubRepo.class)))
+        when(gitHubClient.fetchPage(any(String.class), any(String.class), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
                 .thenReturn(Mono.just(repoPage));
-        when(gitHubClient.fetchPage(any(String.class), any(String.class), eq(GitHubBranch.class)))
+        when(gitHubClient.fetchPage(any(String.class), any(String.class), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH)))
                 .thenReturn(Mono.just(branchPage));
         when(branchDetailsMapper.clientListToApiList(branchList)).
                 thenReturn(Collections.singletonList(new BranchDetails("one", BRANCH_SHA)));
@@ -113,4 +162,107 @@ public class GitHubServiceImplV1UnitTest {
                         details.getBranchDetailsList().get(0).branchSha().equals(BRANCH_SHA))
                 .verifyComplete();
     }
+
+    @Test
+    void testGetRepoDetails_fetchesRemainingPagesInOrder() {
+        String username = "testUser";
+        String repoUri = "https://api.github.com/users/testUser/repos?per_page=1";
+        String secondPageUri = "https://api.github.com/user/1/repos?per_page=1&page=2";
+        String lastPageUri = "https://api.github.com/user/1/repos?per_page=1&page=3";
+
+        HttpHeaders firstPageHeaders = new HttpHeaders();
+        firstPageHeaders.add(HttpHeaders.LINK, "<" + secondPageUri + ">; rel=\"next\", <" + lastPageUri + ">; rel=\"last\"");
+
+        Page<GitHubRepo> firstPage = new Page<>(List.of(repo("1")), firstPageHeaders, HttpStatusCode.valueOf(200), repoUri);
+        Page<GitHubRepo> secondPage = new Page<>(List.of(repo("2")), new HttpHeaders(), HttpStatusCode.valueOf(200), secondPageUri);
+        Page<GitHubRepo> lastPage = new Page<>(List.of(repo("3")), new HttpHeaders(), HttpStatusCode.valueOf(200), lastPageUri);
+        Page branchPage = new Page(Collections.emptyList(), new HttpHeaders(), HttpStatusCode.valueOf(200), "branchUri");
+
+        when(gitHubClient.constructRepoUri(username)).thenReturn(repoUri);
+        when(gitHubClient.fetchPage(eq(repoUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO))).thenReturn(Mono.just(firstPage));
+        // the second page answers last, the result must still come out in page order
+        when(gitHubClient.fetchPage(eq(secondPageUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.just(secondPage).delayElement(Duration.ofMillis(100)));
+        when(gitHubClient.fetchPage(eq(lastPageUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO))).thenReturn(Mono.just(lastPage));
+        when(gitHubClient.fetchPage(any(String.class), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH))).thenReturn(Mono.just(branchPage));
+        when(repoDetailsMapper.toRepoDetails(any(GitHubRepo.class))).thenAnswer(invocation -> {
+            RepoDetails repoDetails = new RepoDetails();
+            repoDetails.setId(((GitHubRepo) invocation.getArgument(0)).getId());
+            return repoDetails;
+        });
+
+        StepVerifier.create(gitHubService.getRepoDetails(username, RepoFilter.ALL).map(RepoDetails::getId))
+                .expectNext("1", "2", "3")
+                .verifyComplete();
+
+        verify(lastUrisCache).put(repoUri, lastPageUri);
+        verify(nextUrisCache).put(repoUri, secondPageUri);
+    }
+
+    @Test
+    void testGetRepoDetails_followsNextLinksPastACachedLastPage() {
+        String username = "testUser";
+        String repoUri = "https://api.github.com/users/testUser/repos?per_page=1";
+        String secondPageUri = "https://api.github.com/user/1/repos?per_page=1&page=2";
+        String thirdPageUri = "https://api.github.com/user/1/repos?per_page=1&page=3";
+
+        // the first page is unchanged, but a repository was added since page 2 was remembered as the last one
+        HttpHeaders secondPageHeaders = new HttpHeaders();
+        secondPageHeaders.add(HttpHeaders.LINK, "<" + thirdPageUri + ">; rel=\"next\", <" + thirdPageUri + ">; rel=\"last\"");
+        Page<GitHubRepo> firstPage = new Page<>(null, new HttpHeaders(), HttpStatusCode.valueOf(304), repoUri);
+        Page<GitHubRepo> secondPage = new Page<>(List.of(repo("2")), secondPageHeaders, HttpStatusCode.valueOf(200), secondPageUri);
+        Page<GitHubRepo> thirdPage = new Page<>(List.of(repo("3")), new HttpHeaders(), HttpStatusCode.valueOf(200), thirdPageUri);
+        Page branchPage = new Page(Collections.emptyList(), new HttpHeaders(), HttpStatusCode.valueOf(200), "branchUri");
+
+        when(lastUrisCache.get(repoUri, String.class)).thenReturn(secondPageUri);
+        when(gitHubClient.constructRepoUri(username)).thenReturn(repoUri);
+        when(gitHubClient.fetchPage(eq(repoUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO))).thenReturn(Mono.just(firstPage));
+        when(gitHubClient.fetchPage(eq(secondPageUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO))).thenReturn(Mono.just(secondPage));
+        when(gitHubClient.fetchPage(eq(thirdPageUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO))).thenReturn(Mono.just(thirdPage));
+        when(gitHubClient.fetchPage(any(String.class), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH))).thenReturn(Mono.just(branchPage));
+        when(repoDetailsMapper.toRepoDetails(any(GitHubRepo.class))).thenAnswer(invocation -> {
+            RepoDetails repoDetails = new RepoDetails();
+            repoDetails.setId(((GitHubRepo) invocation.getArgument(0)).getId());
+            return repoDetails;
+        });
+
+        StepVerifier.create(gitHubService.getRepoDetails(username, RepoFilter.ALL).map(RepoDetails::getId))
+                .expectNext("2", "3")
+                .verifyComplete();
+
+        verify(gitHubClient, times(1)).fetchPage(eq(thirdPageUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+    }
+
+    @Test
+    void testGetRepoDetails_concurrentCallsShareOneUpstreamFetch() {
+        String username = "testUser";
+        String repoUri = "https://api.github.com/users/testUser/repos?per_page=3";
+        Page<GitHubRepo> repoPage = new Page<>(List.of(repo("1")), new HttpHeaders(), HttpStatusCode.valueOf(200), repoUri);
+        Page branchPage = new Page(Collections.emptyList(), new HttpHeaders(), HttpStatusCode.valueOf(200), "branchUri");
+
+        when(gitHubClient.constructRepoUri(username)).thenReturn(repoUri);
+        when(gitHubClient.fetchPage(eq(repoUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO)))
+                .thenReturn(Mono.just(repoPage).delayElement(Duration.ofMillis(100)));
+        when(gitHubClient.fetchPage(any(String.class), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH))).thenReturn(Mono.just(branchPage));
+        when(repoDetailsMapper.toRepoDetails(any(GitHubRepo.class))).thenReturn(new RepoDetails(REPO_ID, "one", username, null));
+
+        // the first client disconnects before the page arrives, the shared fetch must still serve the second one
+        gitHubService.getRepoDetails(username, RepoFilter.ALL).subscribe().dispose();
+        Flux<RepoDetails> second = gitHubService.getRepoDetails(username, RepoFilter.ALL);
+        Flux<RepoDetails> third = gitHubService.getRepoDetails(username, RepoFilter.ALL);
+
+        StepVerifier.create(Flux.merge(second, third).map(RepoDetails::getId))
+                .expectNext(REPO_ID, REPO_ID)
+                .verifyComplete();
+
+        verify(gitHubClient, times(1)).fetchPage(eq(repoUri), any(), eq(GitHubRepo.class), eq(ClientMetrics.REPO));
+        verify(gitHubClient, times(1)).fetchPage(any(String.class), any(), eq(GitHubBranch.class), eq(ClientMetrics.BRANCH));
+    }
+
+    private GitHubRepo repo(String id) {
+        GitHubRepo gitHubRepo = new GitHubRepo();
+        gitHubRepo.setId(id);
+        gitHubRepo.setBranchesUrl("https://api.github.com/repos/testUser/" + id + "/branches");
+        return gitHubRepo;
+    }
 }
@@ -0,0 +1,191 @@
+package com.example.demo.service;
+
+import com.example.demo.client.ConcurrencyLimiter;
+import com.example.demo.client.GitHubClientImplV2;
+import com.example.demo.client.RateLimitScheduler;
+import com.example.demo.client.RepoFilter;
+import com.example.demo.client.TokenPool;
+import com.example.demo.mapper.BranchDetailsMapperImpl;
+import com.example.demo.mapper.GraphQlMapperImpl;
+import com.example.demo.mapper.RepoDetailsMapperImpl;
+import com.example.demo.model.api.BranchDetails;
+import com.example.demo.model.api.RepoDetails;
+import com.example.demo.problem.NotFoundException;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+public class GitHubServiceImplV2UnitTest {
+    private static final String GRAPHQL_ENDPOINT = "/graphql";
+    private static final int GRAPHQL_PAGE_SIZE = 100;
+    private static final int BRANCH_CONCURRENCY = 2;
+
+    private static final String REPOSITORIES_RESPONSE = """
+            {"data": {"repositoryOwner": {"repositories": {
+                "pageInfo": {"hasNextPage": false, "endCursor": "Y3Vyc29yOjI="},
+                "nodes": [
+                    {"id": "R_1", "name": "catalog-service", "isFork": false, "owner": {"login": "gshmalyukh"},
+                     "refs": {"pageInfo": {"hasNextPage": true, "endCursor": "MQ"},
+                              "nodes": [{"name": "main", "target": {"oid": "catalog-service-sha"}}]}},
+                    {"id": "R_2", "name": "catalog-client", "isFork": true, "owner": {"login": "gshmalyukh"},
+                     "refs": {"pageInfo": {"hasNextPage": false, "endCursor": "MQ"},
+                              "nodes": [{"name": "main", "target": {"oid": "catalog-client-sha"}}]}}
+                ]}}}}
+            """;
+    private static final String BRANCHES_RESPONSE = """
+            {"data": {"repository": {"refs": {
+                "pageInfo": {"hasNextPage": false, "endCursor": "Mg"},
+                "nodes": [{"name": "develop", "target": {"oid": "develop-sha"}}]}}}}
+            """;
+    private static final String MOVED_REPOSITORIES_RESPONSE = """
+            {"data": {"repositoryOwner": {"repositories": {
+                "pageInfo": {"hasNextPage": false, "endCursor": "Y3Vyc29yOjE="},
+                "nodes": [
+                    {"id": "R_3", "name": "renamed-service", "isFork": false, "owner": {"login": "mover"},
+                     "refs": {"pageInfo": {"hasNextPage": true, "endCursor": "MQ"},
+                              "nodes": [{"name": "main", "target": {"oid": "renamed-service-sha"}}]}}
+                ]}}}}
+            """;
+    private static final String MISSING_REPOSITORY_RESPONSE = """
+            {"data": {"repository": null}}
+            """;
+    private static final String NOT_FOUND_RESPONSE = """
+            {"data": {"repositoryOwner": null},
+             "errors": [{"type": "NOT_FOUND", "message": "Could not resolve to a RepositoryOwner with the login of 'nobody'."}]}
+            """;
+
+    private static WireMockServer wireMockServer;
+    private RateLimitScheduler rateLimitScheduler;
+    private GitHubServiceImplV2 gitHubService;
+
+    @BeforeAll
+    static void startWireMock() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(post(urlEqualTo(GRAPHQL_ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.variables.login", equalTo("gshmalyukh")))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(REPOSITORIES_RESPONSE)));
+        wireMockServer.stubFor(post(urlEqualTo(GRAPHQL_ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.variables.name", equalTo("catalog-service")))
+                .withRequestBody(matchingJsonPath("$.variables.cursor", equalTo("MQ")))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(BRANCHES_RESPONSE)));
+        wireMockServer.stubFor(post(urlEqualTo(GRAPHQL_ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.variables.login", equalTo("mover")))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(MOVED_REPOSITORIES_RESPONSE)));
+        wireMockServer.stubFor(post(urlEqualTo(GRAPHQL_ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.variables.name", equalTo("renamed-service")))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(MISSING_REPOSITORY_RESPONSE)));
+        wireMockServer.stubFor(post(urlEqualTo(GRAPHQL_ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.variables.login", equalTo("nobody")))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(NOT_FOUND_RESPONSE)));
+    }
+
+    @AfterAll
+    static void stopWireMock() {
+        wireMockServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer.resetRequests();
+        rateLimitScheduler = new RateLimitScheduler(new TokenPool(List.of("token"), null, 600, new SimpleMeterRegistry()),
+                new SimpleMeterRegistry());
+        GitHubClientImplV2 gitHubClient = new GitHubClientImplV2(WebClient.create(), rateLimitScheduler,
+                new ConcurrencyLimiter(new SimpleMeterRegistry()));
+        gitHubClient.setBaseUrl(wireMockServer.baseUrl());
+        gitHubClient.setGraphqlEndpoint(GRAPHQL_ENDPOINT);
+        gitHubClient.setGraphqlPageSize(GRAPHQL_PAGE_SIZE);
+        gitHubClient.setMaxRetryAttempts(1);
+        gitHubClient.setMinBackOff(10);
+        gitHubClient.setMaxBackoffInSeconds(1);
+
+        gitHubService = new GitHubServiceImplV2(gitHubClient, new GraphQlMapperImpl(),
+                new BranchDetailsMapperImpl(), new RepoDetailsMapperImpl());
+        gitHubService.setBranchConcurrency(BRANCH_CONCURRENCY);
+    }
+
+    @Test
+    void testGetRepoDetails_followsBranchCursorOnlyWhenNeeded() {
+        StepVerifier.create(gitHubService.getRepoDetails("gshmalyukh", RepoFilter.ALL))
+                .expectNext(new RepoDetails("R_1", "catalog-service", "gshmalyukh", List.of(
+                        new BranchDetails("main", "catalog-service-sha"),
+                        new BranchDetails("develop", "develop-sha"))))
+                .expectNext(new RepoDetails("R_2", "catalog-client", "gshmalyukh", List.of(
+                        new BranchDetails("main", "catalog-client-sha"))))
+                .verifyComplete();
+
+        wireMockServer.verify(2, postRequestedFor(urlEqualTo(GRAPHQL_ENDPOINT)));
+        // /users/{username}/repos lists only owned repositories, so the GraphQL query must not add collaborations
+        wireMockServer.verify(postRequestedFor(urlEqualTo(GRAPHQL_ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.query", containing("ownerAffiliations: OWNER"))));
+    }
+
+    @Test
+    void testGetRepoDetails_appliesFilter() {
+        StepVerifier.create(gitHubService.getRepoDetails("gshmalyukh", RepoFilter.FORKED).map(RepoDetails::getRepoName))
+                .expectNext("catalog-client")
+                .verifyComplete();
+
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(GRAPHQL_ENDPOINT)));
+    }
+
+    @Test
+    void testGetRepoDetails_repositoryGoneWhileReadingBranches() {
+        StepVerifier.create(gitHubService.getRepoDetails("mover", RepoFilter.ALL))
+                .expectError(NotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void testGetRepoDetails_waitsOutASecondaryRateLimit() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        rateLimitScheduler.update(headers);
+
+        StepVerifier.create(gitHubService.getRepoDetails("gshmalyukh", RepoFilter.FORKED).map(RepoDetails::getRepoName))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(500))
+                .expectNext("catalog-client")
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetRepoDetails_unknownUser() {
+        StepVerifier.create(gitHubService.getRepoDetails("nobody", RepoFilter.ALL))
+                .expectError(NotFoundException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import com.example.demo.client.RepoFilter;
+import com.example.demo.model.api.BranchDetails;
+import com.example.demo.model.api.RepoDetails;
+import com.example.demo.model.api.UserRepoDetails;
+import com.example.demo.problem.NotFoundException;
+import com.example.demo.problem.RetryExhaustedException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GitHubServiceUnitTest {
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    private final GitHubService gitHubService = new GitHubService() {
+        @Override
+        public Flux<RepoDetails> getRepoDetails(String username, RepoFilter repoFilter) {
+            calls.computeIfAbsent(username.toLowerCase(), key -> new AtomicInteger()).incrementAndGet();
+            return switch (username) {
+                case "missing" -> Flux.error(new NotFoundException("no such user", null));
+                case "slow" -> Flux.error(new RetryExhaustedException("retries exhausted", ReadTimeoutException.INSTANCE,
+                        "https://api.github.com/users/slow/repos", RepoDetails.class));
+                default -> Flux.just(new RepoDetails("1", "one", username, List.of()));
+            };
+        }
+
+        @Override
+        public Flux<RepoDetails> listRepositories(String username, RepoFilter repoFilter) {
+            return Flux.empty();
+        }
+
+        @Override
+        public Flux<BranchDetails> getBranchDetails(String owner, String repoName) {
+            return Flux.empty();
+        }
+
+        @Override
+        public Mono<RepoDetailsPage> getRepoDetailsPage(String username, RepoFilter repoFilter, PageCursor cursor,
+                                                        int limit, boolean withBranches) {
+            return Mono.empty();
+        }
+    };
+
+    @Test
+    void getRepoDetailsBatch_failingUsers_areReportedInlineWithTheirApiStatus() {
+        StepVerifier.create(gitHubService.getRepoDetails(List.of("one", "missing", "slow"), RepoFilter.ALL, 2)
+                        .collectMap(UserRepoDetails::username))
+                .assertNext(results -> {
+                    assertEquals(1, results.get("one").repositories().size());
+                    assertEquals(404, results.get("missing").status());
+                    assertNull(results.get("missing").repositories());
+                    // the same status the single-user endpoint answers with
+                    assertEquals(504, results.get("slow").status());
+                    assertEquals("The server took too long to respond. https://api.github.com/users/slow/repos",
+                            results.get("slow").message());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getRepoDetailsBatch_usernamesDifferingInCase_areResolvedOnce() {
+        StepVerifier.create(gitHubService.getRepoDetails(List.of("Octocat", "octocat", "OCTOCAT"), RepoFilter.ALL, 2))
+                .expectNextMatches(result -> result.username().equals("Octocat"))
+                .verifyComplete();
+        assertEquals(1, calls.get("octocat").get());
+    }
+}